@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.WebEidSpringbootExampleApplication;
+import eu.webeid.example.testutil.ObjectMother;
+import eu.webeid.security.authtoken.WebEidAuthToken;
+import eu.webeid.security.certificate.CertificateLoader;
+import eu.webeid.security.exceptions.AuthTokenException;
+import eu.webeid.security.validator.AuthTokenValidator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test that compares synchronous and asynchronous login when OCSP responses are slow. The application runs
+ * with a small Tomcat thread pool, and auth token validation is replaced with a stub that sleeps for the simulated
+ * OCSP latency before accepting the token. Each virtual user opens the start page, requests a challenge and logs in.
+ * <p>
+ * Run with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.main=eu.webeid.example.benchmark.AsyncLoginLoadTest}.
+ */
+public class AsyncLoginLoadTest {
+
+    private static final Duration OCSP_LATENCY = Duration.ofMillis(500);
+    private static final int TOMCAT_MAX_THREADS = 16;
+    private static final int USERS = 200;
+    private static final int LOGINS_PER_USER = 5;
+
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"csrftoken\" content=\"([^\"]+)\"");
+    private static final Pattern CSRF_HEADER = Pattern.compile("name=\"csrfheadername\" content=\"([^\"]+)\"");
+    private static final Pattern SESSION_COOKIE = Pattern.compile("JSESSIONID=([^;]+)");
+
+    public static void main(String[] args) throws Exception {
+        for (boolean asyncLogin : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                    WebEidSpringbootExampleApplication.class, SlowOcspConfiguration.class)
+                    .properties(
+                            "spring.profiles.active=dev",
+                            "server.port=0",
+                            "server.tomcat.threads.max=" + TOMCAT_MAX_THREADS,
+                            "logging.level.eu.webeid=WARN",
+                            "logging.level.org.springframework.security=WARN",
+                            "web-eid-auth-token.validation.async-login=" + asyncLogin)
+                    .run()) {
+                final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                run(asyncLogin ? "async" : "sync", URI.create("http://localhost:" + port));
+            }
+        }
+    }
+
+    private static void run(String mode, URI baseUri) throws Exception {
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final ExecutorService users = Executors.newFixedThreadPool(USERS);
+        final List<Future<long[]>> results = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int user = 0; user < USERS; user++) {
+            results.add(users.submit(() -> {
+                final long[] latencies = new long[LOGINS_PER_USER];
+                for (int i = 0; i < LOGINS_PER_USER; i++) {
+                    latencies[i] = login(client, baseUri);
+                }
+                return latencies;
+            }));
+        }
+        final List<Long> latencies = new ArrayList<>();
+        int failures = 0;
+        for (Future<long[]> result : results) {
+            for (long latency : result.get()) {
+                if (latency < 0) {
+                    failures++;
+                } else {
+                    latencies.add(latency);
+                }
+            }
+        }
+        final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        users.shutdown();
+
+        final long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        System.out.printf("%n%s login: %d logins in %.1f s, %.1f logins/s, %d failed, " +
+                        "login request latency p50 %d ms, p99 %d ms%n",
+                mode, sorted.length, elapsedSeconds, sorted.length / elapsedSeconds, failures,
+                percentile(sorted, 0.5), percentile(sorted, 0.99));
+    }
+
+    /**
+     * Performs a login and returns the latency of the login request in milliseconds, or -1 if the login failed.
+     */
+    private static long login(HttpClient client, URI baseUri) throws Exception {
+        final HttpResponse<String> page = client.send(HttpRequest.newBuilder(baseUri.resolve("/")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        final String sessionCookie = "JSESSIONID=" + find(SESSION_COOKIE, String.join(";", page.headers().allValues("Set-Cookie")));
+
+        client.send(HttpRequest.newBuilder(baseUri.resolve("/auth/challenge")).header("Cookie", sessionCookie).build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        final long start = System.nanoTime();
+        final HttpResponse<Void> login = client.send(HttpRequest.newBuilder(baseUri.resolve("/auth/login"))
+                        .header("Cookie", sessionCookie)
+                        .header("Content-Type", "application/json")
+                        .header(find(CSRF_HEADER, page.body()), find(CSRF_TOKEN, page.body()))
+                        .POST(HttpRequest.BodyPublishers.ofString(ObjectMother.toJson(ObjectMother.mockAuthToken())))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        final long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+        return login.statusCode() == 200 ? latencyMillis : -1;
+    }
+
+    private static String find(Pattern pattern, String input) {
+        final Matcher matcher = pattern.matcher(input);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Pattern " + pattern + " not found in response");
+        }
+        return matcher.group(1);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))];
+    }
+
+    // Not annotated with @Configuration, so that component scanning does not pick it up in other tests.
+    static class SlowOcspConfiguration {
+
+        @Bean
+        @Primary
+        AuthTokenValidator slowOcspValidator() {
+            return new AuthTokenValidator() {
+                @Override
+                public WebEidAuthToken parse(String authToken) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public X509Certificate validate(WebEidAuthToken authToken, String currentChallengeNonce) throws AuthTokenException {
+                    try {
+                        Thread.sleep(OCSP_LATENCY.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return CertificateLoader.decodeCertificateFromBase64(authToken.getUnverifiedCertificate());
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import eu.webeid.example.security.AuthTokenDTOReader;
+import eu.webeid.example.security.dto.AuthTokenDTO;
+import eu.webeid.example.testutil.ObjectMother;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the login request body with the data-binding object reader through a character reader, as the
+ * login filter used to, with the streaming {@link AuthTokenDTOReader}. Run with the GC profiler to see the
+ * allocation per login request:
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="AuthTokenParsingBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthTokenParsingBenchmark {
+
+    private final ObjectReader objectReader = new ObjectMapper().readerFor(AuthTokenDTO.class);
+    private final AuthTokenDTOReader streamingReader = new AuthTokenDTOReader();
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = ObjectMother.toJson(ObjectMother.mockAuthToken()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public AuthTokenDTO objectReaderFromCharacterReader() throws IOException {
+        return objectReader.readValue(new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public AuthTokenDTO streamingReaderFromInputStream() throws IOException {
+        return streamingReader.read(new ByteArrayInputStream(body), body.length);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.security.AuthTokenDTOAuthenticationProvider;
+import eu.webeid.example.security.CertificateSubjectCache;
+import eu.webeid.example.security.AuthTokenDTOReader;
+import eu.webeid.example.security.WebEidAuthentication;
+import eu.webeid.example.security.challenge.SealedChallengeNonceVerifier;
+import eu.webeid.example.security.dto.AuthTokenDTO;
+import eu.webeid.example.security.trust.TrustAnchorLoader;
+import eu.webeid.example.testutil.ObjectMother;
+import eu.webeid.security.authtoken.WebEidAuthToken;
+import eu.webeid.security.certificate.CertificateLoader;
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceStore;
+import eu.webeid.security.exceptions.AuthTokenException;
+import eu.webeid.security.util.DateAndTime;
+import eu.webeid.security.validator.AuthTokenValidator;
+import eu.webeid.security.validator.AuthTokenValidatorBuilder;
+import eu.webeid.security.validator.certvalidators.SubjectCertificateNotRevokedValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import mockit.Mock;
+import mockit.MockUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the steps of a login request with the {@link ObjectMother} authentication token: parsing the request
+ * body, validating the token, creating the authentication from the user certificate, and the whole authentication
+ * provider call, which takes the challenge nonce from the store, validates the token and creates the authentication.
+ * The OCSP check is replaced with a no-op and the current time is fixed within the validity of the test
+ * certificate, as in {@code WebApplicationTest}, so the benchmark runs offline and the token does not expire.
+ * <p>
+ * Measure throughput and allocation per operation with 1, 4 and 16 threads with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.main=eu.webeid.example.benchmark.AuthenticationPipelineBenchmark},
+ * or with a single thread count with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="AuthenticationPipelineBenchmark -t 8 -prof gc"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationPipelineBenchmark {
+
+    private static final URI SITE_ORIGIN = URI.create("https://ria.ee");
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2025, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+    private static final List<GrantedAuthority> AUTHORITIES =
+            List.of(new SimpleGrantedAuthority(AuthTokenDTOAuthenticationProvider.ROLE_USER));
+
+    private final AuthTokenDTOReader authTokenDTOReader = new AuthTokenDTOReader();
+    private byte[] body;
+    private AuthTokenDTO authTokenDTO;
+    private WebEidAuthToken authToken;
+    private X509Certificate userCertificate;
+    private AuthTokenValidator validator;
+    private AuthTokenDTOAuthenticationProvider authenticationProvider;
+
+    @Setup
+    public void setUp() throws Exception {
+        // The authentication provider logs every call, which would otherwise dominate the measurement.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        new MockUp<DateAndTime>() {
+            @Mock
+            public ZonedDateTime utcNow() {
+                return NOW;
+            }
+        };
+        new MockUp<SubjectCertificateNotRevokedValidator>() {
+            @Mock
+            public void validateCertificateNotRevoked(X509Certificate subjectCertificate) {
+                // Do not call the real OCSP service in benchmarks.
+            }
+        };
+
+        authTokenDTO = ObjectMother.mockAuthToken();
+        body = ObjectMother.toJson(authTokenDTO).getBytes(StandardCharsets.UTF_8);
+        authToken = authTokenDTO.getToken();
+        userCertificate = CertificateLoader.decodeCertificateFromBase64(authToken.getUnverifiedCertificate());
+        validator = new AuthTokenValidatorBuilder()
+                .withSiteOrigin(SITE_ORIGIN)
+                .withTrustedCertificateAuthorities(new TrustAnchorLoader("classpath:/certs/dev/", null).load().toArray())
+                .build();
+        authenticationProvider = new AuthTokenDTOAuthenticationProvider(validator, new ConstantChallengeNonceStore(),
+                new StaticListableBeanFactory().getBeanProvider(SealedChallengeNonceVerifier.class),
+                new CertificateSubjectCache(1024), new SimpleMeterRegistry(),
+                new StaticListableBeanFactory().getBeanProvider(OpenTelemetry.class));
+    }
+
+    @Benchmark
+    public AuthTokenDTO parseAuthTokenDTO() throws IOException {
+        return authTokenDTOReader.read(new ByteArrayInputStream(body), body.length);
+    }
+
+    @Benchmark
+    public X509Certificate validate() throws AuthTokenException {
+        return validator.validate(authToken, ObjectMother.VALID_CHALLENGE_NONCE);
+    }
+
+    @Benchmark
+    public Authentication fromCertificate() throws CertificateEncodingException {
+        return WebEidAuthentication.fromCertificate(userCertificate, AUTHORITIES);
+    }
+
+    @Benchmark
+    public Authentication authenticate() {
+        return authenticationProvider.authenticate(new PreAuthenticatedAuthenticationToken(null, authTokenDTO));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 4, 16}) {
+            new Runner(new OptionsBuilder()
+                    .include(AuthenticationPipelineBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build())
+                    .run();
+        }
+    }
+
+    /**
+     * Returns the nonce that the {@link ObjectMother} token was signed for on every call, so that all threads can
+     * log in with the same token.
+     */
+    private static final class ConstantChallengeNonceStore implements ChallengeNonceStore {
+        private final ChallengeNonce challengeNonce =
+                new ChallengeNonce(ObjectMother.VALID_CHALLENGE_NONCE, NOW.plusMinutes(5));
+
+        @Override
+        public void put(ChallengeNonce challengeNonce) {
+        }
+
+        @Override
+        public ChallengeNonce getAndRemoveImpl() {
+            return challengeNonce;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.security.CertificateSubject;
+import eu.webeid.example.security.CertificateSubjectCache;
+import eu.webeid.example.testutil.ObjectMother;
+import eu.webeid.security.certificate.CertificateData;
+import eu.webeid.security.certificate.CertificateLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares extracting the subject fields that login and signing need with {@link CertificateData}, which parses the
+ * certificate again for each field, with parsing the subject DN once into {@link CertificateSubject} and with the
+ * subject-keyed {@link CertificateSubjectCache}. Each benchmark reads the given name, surname, CN
+ * and ID code for login and the ID code again for the signing certificate check. Run with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="CertificateSubjectBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CertificateSubjectBenchmark {
+
+    private final CertificateSubjectCache cache = new CertificateSubjectCache(1024);
+    private X509Certificate certificate;
+
+    @Setup
+    public void setUp() throws CertificateException {
+        certificate = CertificateLoader.decodeCertificateFromBase64(
+                ObjectMother.mockAuthToken().getToken().getUnverifiedCertificate());
+    }
+
+    @Benchmark
+    public void certificateDataPerField(Blackhole blackhole) throws CertificateException {
+        blackhole.consume(CertificateData.getSubjectGivenName(certificate));
+        blackhole.consume(CertificateData.getSubjectSurname(certificate));
+        blackhole.consume(CertificateData.getSubjectCN(certificate));
+        blackhole.consume(CertificateData.getSubjectIdCode(certificate));
+        blackhole.consume(CertificateData.getSubjectIdCode(certificate));
+    }
+
+    @Benchmark
+    public void certificateSubjectParsedOnce(Blackhole blackhole) throws CertificateException {
+        final CertificateSubject subject = CertificateSubject.parse(certificate);
+        consume(subject, blackhole);
+        blackhole.consume(subject.getIdCode());
+    }
+
+    @Benchmark
+    public void certificateSubjectCached(Blackhole blackhole) throws CertificateException {
+        consume(cache.get(certificate), blackhole);
+        blackhole.consume(cache.get(certificate).getIdCode());
+    }
+
+    private static void consume(CertificateSubject subject, Blackhole blackhole) {
+        blackhole.consume(subject.getGivenName());
+        blackhole.consume(subject.getSurname());
+        blackhole.consume(subject.getCommonName());
+        blackhole.consume(subject.getIdCode());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.security.challenge.NoncePool;
+import eu.webeid.example.security.challenge.PooledChallengeNonceGenerator;
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceGenerator;
+import eu.webeid.security.challenge.ChallengeNonceGeneratorBuilder;
+import eu.webeid.security.challenge.ChallengeNonceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the stock challenge nonce generator with the pooled generator. The nonce store is a no-op,
+ * so that only nonce generation is measured.
+ * <p>
+ * Measure with 1 to 64 threads with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.main=eu.webeid.example.benchmark.ChallengeNonceGeneratorBenchmark},
+ * or with a single thread count with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ChallengeNonceGeneratorBenchmark -t 32"}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChallengeNonceGeneratorBenchmark {
+
+    private static final Duration NONCE_TTL = Duration.ofMinutes(5);
+    private static final ChallengeNonceStore NO_OP_STORE = new ChallengeNonceStore() {
+        @Override
+        public void put(ChallengeNonce challengeNonce) {
+        }
+
+        @Override
+        public ChallengeNonce getAndRemoveImpl() {
+            return null;
+        }
+    };
+
+    private ChallengeNonceGenerator stockGenerator;
+    private NoncePool noncePool;
+    private ChallengeNonceGenerator pooledGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stockGenerator = new ChallengeNonceGeneratorBuilder()
+                .withNonceTtl(NONCE_TTL)
+                .withChallengeNonceStore(NO_OP_STORE)
+                .build();
+        noncePool = new NoncePool(4096, 2);
+        pooledGenerator = new PooledChallengeNonceGenerator(noncePool, NO_OP_STORE, NONCE_TTL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nNonce pool hits: %d, misses: %d%n", noncePool.hitCount(), noncePool.missCount());
+        noncePool.close();
+    }
+
+    @Benchmark
+    public ChallengeNonce stockGenerator() {
+        return stockGenerator.generateAndStoreNonce();
+    }
+
+    @Benchmark
+    public ChallengeNonce pooledGenerator() {
+        return pooledGenerator.generateAndStoreNonce();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(ChallengeNonceGeneratorBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build())
+                    .run();
+        }
+    }
+}
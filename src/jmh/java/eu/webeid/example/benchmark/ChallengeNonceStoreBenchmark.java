@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.config.SessionBackedChallengeNonceStore;
+import eu.webeid.example.security.challenge.InMemoryChallengeNonceStore;
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceStore;
+import eu.webeid.security.exceptions.AuthTokenException;
+import eu.webeid.security.util.DateAndTime;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the challenge → login round trip of the session-backed and the in-memory challenge nonce stores
+ * under concurrency. Every operation simulates a new anonymous user, so the session-backed store pays for
+ * creating a session each time, as it does in production.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ChallengeNonceStoreBenchmark -t 16"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ChallengeNonceStoreBenchmark {
+
+    private static final String NONCE = "12345678123456781234567812345678912356789123";
+
+    @State(Scope.Benchmark)
+    public static class InMemoryStore {
+        InMemoryChallengeNonceStore store;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            store = new InMemoryChallengeNonceStore(Duration.ofMinutes(5), 1_000_000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            store.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CurrentSession {
+        HttpSession session;
+        ChallengeNonceStore store;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            store = new SessionBackedChallengeNonceStore(() -> session);
+        }
+    }
+
+    @Benchmark
+    public ChallengeNonce sessionBackedStore(CurrentSession current) throws AuthTokenException {
+        current.session = new MockHttpSession();
+        current.store.put(newNonce());
+        return current.store.getAndRemove();
+    }
+
+    @Benchmark
+    public ChallengeNonce inMemoryStore(InMemoryStore inMemory) throws AuthTokenException {
+        final MockHttpServletResponse challengeResponse = bindRequest(new MockHttpServletRequest());
+        inMemory.store.put(newNonce());
+
+        final Cookie keyCookie = challengeResponse.getCookie(InMemoryChallengeNonceStore.CHALLENGE_KEY_COOKIE);
+        final MockHttpServletRequest loginRequest = new MockHttpServletRequest();
+        loginRequest.setCookies(keyCookie);
+        bindRequest(loginRequest);
+        return inMemory.store.getAndRemove();
+    }
+
+    private static ChallengeNonce newNonce() {
+        return new ChallengeNonce(NONCE, DateAndTime.utcNow().plusMinutes(5));
+    }
+
+    private static MockHttpServletResponse bindRequest(MockHttpServletRequest request) {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        return response;
+    }
+}
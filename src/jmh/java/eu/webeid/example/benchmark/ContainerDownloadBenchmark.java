@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.service.container.ContainerFileStore;
+import eu.webeid.example.service.container.SignedContainerFile;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.DataFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares ways of sending a signed container to the client: serializing the container into a byte array for every
+ * download as the download endpoint used to do, streaming the serialization directly to the socket, and serializing
+ * the container once to a file with {@link ContainerFileStore} and transferring the file with
+ * {@link FileChannel#transferTo}. The client is a loopback socket that a background thread drains. Run with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ContainerDownloadBenchmark -prof gc"} to see the
+ * allocation rate of each approach next to the latency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ContainerDownloadBenchmark {
+
+    @Param({"1", "16", "256", "1024"})
+    public int sizeMegabytes;
+
+    private Path directory;
+    private Container container;
+    private SignedContainerFile containerFile;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread drain;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("container-download-benchmark");
+        final Path dataFile = directory.resolve("document.bin");
+        writeRandomFile(dataFile, sizeMegabytes * 1024L * 1024L);
+        container = ContainerBuilder
+                .aContainer(Container.DocumentType.ASICE)
+                .withDataFile(new DataFile(dataFile.toString(), "application/octet-stream"))
+                .withConfiguration(Configuration.of(Configuration.Mode.TEST))
+                .build();
+        containerFile = new ContainerFileStore(directory.resolve("containers")).write(container, "document.asice");
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        final SocketChannel peer = server.accept();
+        drain = new Thread(() -> drain(peer), "download-client");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        containerFile.delete();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void byteArrayPerDownload() throws IOException {
+        final byte[] bytes;
+        try (InputStream stream = container.saveAsStream()) {
+            bytes = stream.readAllBytes();
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    @Benchmark
+    public void serializedToSocketPerDownload() throws IOException {
+        final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(client));
+        container.save(out);
+        out.flush();
+    }
+
+    @Benchmark
+    public void transferredFromFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(containerFile.getPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, client);
+            }
+        }
+    }
+
+    private static void writeRandomFile(Path file, long size) throws IOException {
+        final byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+    }
+
+    private static void drain(SocketChannel peer) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+        try (peer) {
+            while (peer.read(buffer) >= 0) {
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            // The benchmark closed the connection.
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.europa.esig.dss.service.http.commons.OCSPDataLoader;
+import eu.europa.esig.dss.service.http.commons.TimestampDataLoader;
+import eu.webeid.example.http.SharedHttpClient;
+import eu.webeid.example.http.SharedHttpDataLoader;
+import eu.webeid.example.ocsp.SharedHttpOcspClient;
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import eu.webeid.security.validator.ocsp.OcspClientImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the outbound OCSP and time-stamp requests of the default clients with {@link SharedHttpClient} against
+ * local stand-ins. DSS data loaders, which DigiDoc4j uses during signing, open a new connection for every request,
+ * while the shared client reuses kept-alive connections. The Web eID OCSP client is included as the baseline for
+ * authentication. The time-stamping stand-in returns a fixed body, as only the transport is measured. Run with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="SharedHttpClientBenchmark -t 8"} to compare under
+ * concurrency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedHttpClientBenchmark {
+
+    private OcspResponderStandIn ocspResponder;
+    private HttpServer timestampServer;
+    private String ocspUrl;
+    private String timestampUrl;
+    private OCSPReq ocspRequest;
+    private byte[] ocspRequestBytes;
+    private byte[] timestampRequestBytes;
+
+    private OCSPDataLoader dssOcspDataLoader;
+    private TimestampDataLoader dssTimestampDataLoader;
+    private OcspClient webEidOcspClient;
+    private SharedHttpDataLoader sharedOcspDataLoader;
+    private SharedHttpDataLoader sharedTimestampDataLoader;
+    private SharedHttpOcspClient sharedOcspClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        ocspResponder = new OcspResponderStandIn();
+        ocspUrl = ocspResponder.getUri().toString();
+        ocspRequest = OcspResponderStandIn.createRequest(
+                TestPki.selfSignedCertificate("CN=Test CA", TestPki.generateKeyPair()), BigInteger.ONE, false);
+        ocspRequestBytes = ocspRequest.getEncoded();
+
+        final byte[] timestampResponse = new byte[4096];
+        new Random(42).nextBytes(timestampResponse);
+        timestampServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        timestampServer.createContext("/tsa", exchange -> respond(exchange, timestampResponse));
+        timestampServer.setExecutor(Executors.newCachedThreadPool());
+        timestampServer.start();
+        timestampUrl = "http://127.0.0.1:" + timestampServer.getAddress().getPort() + "/tsa";
+        timestampRequestBytes = new byte[64];
+
+        dssOcspDataLoader = new OCSPDataLoader();
+        dssTimestampDataLoader = new TimestampDataLoader();
+        webEidOcspClient = OcspClientImpl.build(Duration.ofSeconds(5));
+
+        final SharedHttpClient httpClient = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofSeconds(5), 64, new SimpleMeterRegistry());
+        sharedOcspDataLoader = new SharedHttpDataLoader(httpClient, "signing-ocsp", "application/ocsp-request");
+        sharedTimestampDataLoader = new SharedHttpDataLoader(httpClient, "signing-tsa", "application/timestamp-query");
+        sharedOcspClient = new SharedHttpOcspClient(httpClient);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ocspResponder.close();
+        timestampServer.stop(0);
+        ((ExecutorService) timestampServer.getExecutor()).shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] dssOcspDataLoader() {
+        return dssOcspDataLoader.post(ocspUrl, ocspRequestBytes);
+    }
+
+    @Benchmark
+    public byte[] sharedOcspDataLoader() {
+        return sharedOcspDataLoader.post(ocspUrl, ocspRequestBytes);
+    }
+
+    @Benchmark
+    public byte[] dssTimestampDataLoader() {
+        return dssTimestampDataLoader.post(timestampUrl, timestampRequestBytes);
+    }
+
+    @Benchmark
+    public byte[] sharedTimestampDataLoader() {
+        return sharedTimestampDataLoader.post(timestampUrl, timestampRequestBytes);
+    }
+
+    @Benchmark
+    public OCSPResp webEidOcspClient() throws IOException {
+        return webEidOcspClient.request(URI.create(ocspUrl), ocspRequest);
+    }
+
+    @Benchmark
+    public OCSPResp sharedOcspClient() throws IOException {
+        return sharedOcspClient.request(URI.create(ocspUrl), ocspRequest);
+    }
+
+    private static void respond(HttpExchange exchange, byte[] response) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/timestamp-reply");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
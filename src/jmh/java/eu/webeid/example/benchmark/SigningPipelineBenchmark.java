@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.security.AuthTokenDTOAuthenticationProvider;
+import eu.webeid.example.security.CertificateSubjectCache;
+import eu.webeid.example.security.WebEidAuthentication;
+import eu.webeid.example.service.SigningService;
+import eu.webeid.example.service.container.ContainerFileStore;
+import eu.webeid.example.service.container.SignedContainerFile;
+import eu.webeid.example.service.document.DocumentStore;
+import eu.webeid.example.service.dto.CertificateDTO;
+import eu.webeid.example.service.dto.DigestDTO;
+import eu.webeid.example.service.dto.FileDTO;
+import eu.webeid.example.service.dto.SignatureAlgorithmDTO;
+import eu.webeid.example.service.dto.SignatureDTO;
+import eu.webeid.example.service.job.SigningJobExecutor;
+import eu.webeid.example.service.session.HttpSessionSigningSessionStore;
+import eu.webeid.example.service.session.SigningSessionStore;
+import eu.webeid.example.service.signing.SigningConfigurationProvider;
+import eu.webeid.example.service.upload.UploadService;
+import eu.webeid.example.testutil.HttpHelper;
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.example.testutil.TimestampAuthorityStandIn;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DataToSign;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.SignatureBuilder;
+import org.digidoc4j.SignatureProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the signing steps of {@link SigningService} with a locally generated signing key and certificate, and
+ * with OCSP and time-stamping served by local stand-ins:
+ * <ul>
+ *     <li>{@code prepareContainer} builds the container of an uploaded file and computes the data to sign,</li>
+ *     <li>{@code signContainer} finalizes the signature, which fetches the time-stamp and the OCSP response, and
+ *     serializes the signed container to a file,</li>
+ *     <li>{@code serializeContainer} serializes a signed container to a file on its own,</li>
+ *     <li>{@code buildDataToSign} builds a container with several data files and computes the data to sign with
+ *     DigiDoc4j in the same way as {@code prepareContainer}, as the signing service signs one file per container.</li>
+ * </ul>
+ * The digest algorithm is selected with the curve of the signing key, as it is determined from the signing
+ * certificate. The stand-in certificates are added to the trusted list certificates, and the LOTL is the local
+ * stand-in LOTL, so that the benchmark runs offline.
+ * <p>
+ * Report throughput, latency percentiles and allocation per operation with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.main=eu.webeid.example.benchmark.SigningPipelineBenchmark},
+ * or select the steps and parameters with for example
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="SigningPipelineBenchmark.signContainer -p documentSizeKilobytes=16384 -t 8 -prof gc"}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SigningPipelineBenchmark {
+
+    private static final String ID_CODE = "PNOEE-38001085718";
+    private static final String CA_DN = "CN=Benchmark Signing CA, O=Benchmark, C=EE";
+    private static final Map<String, String> CURVES = Map.of(
+            "SHA-256", "secp256r1",
+            "SHA-384", "secp384r1",
+            "SHA-512", "secp521r1");
+    private static final List<GrantedAuthority> AUTHORITIES =
+            List.of(new SimpleGrantedAuthority(AuthTokenDTOAuthenticationProvider.ROLE_USER));
+
+    @State(Scope.Benchmark)
+    public static class Services {
+        private OcspResponderStandIn ocspResponder;
+        private TimestampAuthorityStandIn timestampAuthority;
+        private KeyPair caKeyPair;
+        private Path directory;
+        private SigningConfigurationProvider signingConfigurationProvider;
+        private DocumentStore documentStore;
+        private ContainerFileStore containerFileStore;
+        private UploadService uploadService;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            // The signing service logs every step, which would otherwise distort the measurement.
+            ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                    .setLevel(ch.qos.logback.classic.Level.WARN);
+            ocspResponder = new OcspResponderStandIn();
+            timestampAuthority = new TimestampAuthorityStandIn();
+            caKeyPair = TestPki.generateKeyPair();
+            final X509Certificate caCertificate = TestPki.selfSignedCertificate(CA_DN, caKeyPair);
+            final String lotlLocation = new ClassPathResource("tsl/stand-in-lotl.xml").getURL().toString();
+            signingConfigurationProvider = new SigningConfigurationProvider(() -> {
+                final Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+                configuration.setPreferAiaOcsp(true);
+                configuration.setLotlLocation(lotlLocation);
+                configuration.setTspSource(timestampAuthority.getUri().toString());
+                configuration.getTSL().addTSLCertificate(caCertificate);
+                configuration.getTSL().addTSLCertificate(ocspResponder.getResponderCertificate());
+                configuration.getTSL().addTSLCertificate(timestampAuthority.getAuthorityCertificate());
+                return configuration;
+            }, false, Duration.ofHours(6));
+
+            directory = Files.createTempDirectory("webeid-signing-benchmark");
+            documentStore = new DocumentStore(64 * 1024 * 1024);
+            containerFileStore = new ContainerFileStore(directory.resolve("containers"));
+            uploadService = new UploadService(directory.resolve("uploads"), Long.MAX_VALUE, Long.MAX_VALUE, Duration.ZERO);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            ocspResponder.close();
+            timestampAuthority.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * The signing session of one user, each benchmark thread signs in its own HTTP session.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        @Param({"1", "1024", "16384"})
+        private int documentSizeKilobytes;
+
+        @Param({"SHA-256", "SHA-384", "SHA-512"})
+        private String digestAlgorithm;
+
+        private KeyPair signerKeyPair;
+        private X509Certificate signingCertificate;
+        private CertificateDTO certificateDTO;
+        private WebEidAuthentication authentication;
+        private SigningSessionStore signingSessionStore;
+        private SigningService signingService;
+
+        @Setup(Level.Trial)
+        public void setUp(Services services) throws Exception {
+            signerKeyPair = TestPki.generateKeyPair(CURVES.get(digestAlgorithm));
+            signingCertificate = TestPki.issueSigningCertificate(
+                    "CN=BENCHMARK\\,SIGNER\\,38001085718, SURNAME=BENCHMARK, GIVENNAME=SIGNER, SERIALNUMBER=" + ID_CODE + ", C=EE",
+                    signerKeyPair, CA_DN, services.caKeyPair, services.ocspResponder.getUri());
+            certificateDTO = new CertificateDTO();
+            certificateDTO.setCertificate(Base64.getEncoder().encodeToString(signingCertificate.getEncoded()));
+            certificateDTO.setSupportedSignatureAlgorithms(List.of(signatureAlgorithm(digestAlgorithm)));
+            authentication = (WebEidAuthentication) WebEidAuthentication.fromCertificate(signingCertificate, AUTHORITIES);
+
+            final MockHttpSession httpSession = new MockHttpSession();
+            signingSessionStore = new HttpSessionSigningSessionStore(() -> httpSession);
+            signingService = new SigningService(() -> httpSession, services.signingConfigurationProvider,
+                    services.documentStore, signingSessionStore, services.containerFileStore,
+                    new StaticListableBeanFactory().getBeanProvider(SigningJobExecutor.class),
+                    new CertificateSubjectCache(1024), new SimpleMeterRegistry(),
+                    new StaticListableBeanFactory().getBeanProvider(OpenTelemetry.class));
+
+            final byte[] content = new byte[documentSizeKilobytes * 1024];
+            new Random(42).nextBytes(content);
+            final byte[] body = HttpHelper.multipartBody(new MockMultipartFile("file", "document.bin", "application/octet-stream", content));
+            final MockHttpServletRequest uploadRequest = new MockHttpServletRequest("POST", "/sign/upload");
+            uploadRequest.setContentType("multipart/form-data; boundary=" + HttpHelper.MULTIPART_BOUNDARY);
+            uploadRequest.setContent(body);
+            signingService.setFileToSign(services.uploadService.receive(uploadRequest));
+
+            final String hashFunction = signingService.prepareContainer(certificateDTO, authentication).getHashFunction();
+            if (!hashFunction.equals(digestAlgorithm)) {
+                throw new IllegalStateException("Signing key selects " + hashFunction + " instead of " + digestAlgorithm);
+            }
+        }
+
+        /**
+         * Signs the digest with the signing key in the way the Web eID browser extension does.
+         */
+        SignatureDTO sign(DigestDTO digestDTO) throws GeneralSecurityException {
+            final Signature signature = Signature.getInstance("NONEwithECDSAinP1363Format");
+            signature.initSign(signerKeyPair.getPrivate());
+            signature.update(Base64.getDecoder().decode(digestDTO.getHash()));
+            final SignatureDTO signatureDTO = new SignatureDTO();
+            signatureDTO.setBase64Signature(Base64.getEncoder().encodeToString(signature.sign()));
+            return signatureDTO;
+        }
+
+        private static SignatureAlgorithmDTO signatureAlgorithm(String hashFunction) {
+            final SignatureAlgorithmDTO signatureAlgorithmDTO = new SignatureAlgorithmDTO();
+            signatureAlgorithmDTO.setCryptoAlgorithm("ECC");
+            signatureAlgorithmDTO.setHashFunction(hashFunction);
+            signatureAlgorithmDTO.setPaddingScheme("NONE");
+            return signatureAlgorithmDTO;
+        }
+    }
+
+    /**
+     * A prepared container and the signature of its data, so that only finalization is measured.
+     */
+    @State(Scope.Thread)
+    public static class PreparedSignature {
+        private SignatureDTO signatureDTO;
+
+        @Setup(Level.Invocation)
+        public void setUp(Session session) throws Exception {
+            signatureDTO = session.sign(session.signingService.prepareContainer(session.certificateDTO, session.authentication));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SignedContainer {
+        private Container container;
+
+        @Setup(Level.Trial)
+        public void setUp(Session session) throws Exception {
+            session.signingService.signContainer(
+                    session.sign(session.signingService.prepareContainer(session.certificateDTO, session.authentication)));
+            container = session.signingSessionStore.get().orElseThrow().container();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DataFiles {
+        @Param({"1", "10"})
+        private int fileCount;
+
+        private List<DataFile> dataFiles;
+
+        @Setup(Level.Trial)
+        public void setUp(Session session) {
+            final Random random = new Random(42);
+            dataFiles = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                final byte[] content = new byte[session.documentSizeKilobytes * 1024];
+                random.nextBytes(content);
+                dataFiles.add(new DataFile(content, "document-" + i + ".bin", "application/octet-stream"));
+            }
+        }
+    }
+
+    @Benchmark
+    public DigestDTO prepareContainer(Session session) throws Exception {
+        return session.signingService.prepareContainer(session.certificateDTO, session.authentication);
+    }
+
+    @Benchmark
+    public FileDTO signContainer(Session session, PreparedSignature preparedSignature) throws IOException {
+        return session.signingService.signContainer(preparedSignature.signatureDTO);
+    }
+
+    @Benchmark
+    public long serializeContainer(Services services, SignedContainer signedContainer) throws IOException {
+        final SignedContainerFile containerFile = services.containerFileStore.write(signedContainer.container, "document.asice");
+        containerFile.delete();
+        return containerFile.getSize();
+    }
+
+    @Benchmark
+    public DataToSign buildDataToSign(Services services, Session session, DataFiles dataFiles) {
+        final ContainerBuilder containerBuilder = ContainerBuilder
+                .aContainer(Container.DocumentType.ASICE)
+                .withConfiguration(services.signingConfigurationProvider.get());
+        dataFiles.dataFiles.forEach(containerBuilder::withDataFile);
+        return SignatureBuilder
+                .aSignature(containerBuilder.build())
+                .withSignatureProfile(SignatureProfile.LT)
+                .withSigningCertificate(session.signingCertificate)
+                .withSignatureDigestAlgorithm(DigestAlgorithm.valueOf(session.digestAlgorithm.replace("-", "")))
+                .buildDataToSign();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SigningPipelineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark;
+
+import eu.webeid.example.security.trust.TrustAnchorRegistry;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.security.exceptions.JceException;
+import eu.webeid.security.validator.AuthTokenValidator;
+import eu.webeid.security.validator.AuthTokenValidatorBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures issuer lookup and rebuild cost with large trust anchor sets: issuer lookup from the trust anchor registry
+ * compared with a linear scan over all anchors, building the registry, and building the auth token validator, which
+ * is what a trust anchor reload costs.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="TrustAnchorRegistryBenchmark"}.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrustAnchorRegistryBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int anchorCount;
+
+    private List<X509Certificate> anchors;
+    private TrustAnchorRegistry registry;
+    private X509Certificate userCertificate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        anchors = new ArrayList<>(anchorCount);
+        KeyPair lastCaKeyPair = null;
+        for (int i = 0; i < anchorCount; i++) {
+            lastCaKeyPair = TestPki.generateKeyPair();
+            anchors.add(TestPki.selfSignedCertificate("CN=Bridge CA " + i + ", O=Benchmark, C=EE", lastCaKeyPair));
+        }
+        registry = TrustAnchorRegistry.of(anchors);
+        userCertificate = TestPki.issueCertificate("CN=Benchmark User, C=EE", TestPki.generateKeyPair(),
+                "CN=Bridge CA " + (anchorCount - 1) + ", O=Benchmark, C=EE", lastCaKeyPair, false);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<X509Certificate> registryIssuerLookup() {
+        return registry.findIssuers(userCertificate);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public X509Certificate linearIssuerScan() {
+        for (X509Certificate anchor : anchors) {
+            if (anchor.getSubjectX500Principal().equals(userCertificate.getIssuerX500Principal())) {
+                return anchor;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TrustAnchorRegistry buildRegistry() {
+        return TrustAnchorRegistry.of(anchors);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AuthTokenValidator buildValidator() throws JceException {
+        return new AuthTokenValidatorBuilder()
+                .withSiteOrigin(URI.create("https://ria.ee"))
+                .withTrustedCertificateAuthorities(registry.toArray())
+                .build();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark.loadtest;
+
+import eu.webeid.example.WebEidSpringbootExampleApplication;
+import eu.webeid.example.service.dto.ChallengeDTO;
+import eu.webeid.example.service.dto.DigestDTO;
+import eu.webeid.example.testutil.ObjectMother;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test of the authentication and signing flow with simulated Web eID clients. The application runs
+ * in the {@code loadtest} profile against the local OCSP and time-stamping stand-ins of {@link LoadTestPki}, and
+ * trusts only the test CA that is created at startup. Each flow opens the start page, requests a challenge, logs in
+ * with an authentication token created by {@link SimulatedWebEidClient}, prepares the example document for signing,
+ * signs it and downloads the signed container.
+ * <p>
+ * Flows are started at a fixed arrival rate, whether or not the previous flows have completed, so that a slow
+ * application builds up concurrent flows as it would with real users instead of lowering the load. The latency of
+ * each step is recorded in a histogram, which is printed with the failure counts at the end.
+ * <p>
+ * Run for example with 20 flows per second for 60 seconds with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.main=eu.webeid.example.benchmark.loadtest.EndToEndLoadTest -Djmh.args="20 60"}.
+ */
+public class EndToEndLoadTest {
+
+    private static final URI ORIGIN = URI.create("https://localhost");
+    private static final int USERS = 100;
+    private static final double DEFAULT_ARRIVALS_PER_SECOND = 10;
+    private static final long DEFAULT_DURATION_SECONDS = 60;
+
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"csrftoken\" content=\"([^\"]+)\"");
+    private static final Pattern CSRF_HEADER = Pattern.compile("name=\"csrfheadername\" content=\"([^\"]+)\"");
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI baseUri;
+    private final List<SimulatedWebEidClient> users;
+    private final AtomicInteger nextUser = new AtomicInteger();
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private final LongAdder completedFlows = new LongAdder();
+
+    private EndToEndLoadTest(URI baseUri, List<SimulatedWebEidClient> users) {
+        this.baseUri = baseUri;
+        this.users = users;
+        for (String step : List.of("challenge", "login", "prepare", "sign", "download")) {
+            steps.put(step, new Step());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final double arrivalsPerSecond = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_ARRIVALS_PER_SECOND;
+        final long durationSeconds = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_DURATION_SECONDS;
+        final Path directory = Files.createTempDirectory("webeid-load-test");
+        try (LoadTestPki pki = new LoadTestPki();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                     WebEidSpringbootExampleApplication.class, StandInServicesConfiguration.class)
+                     .initializers(applicationContext -> applicationContext.getBeanFactory().registerSingleton("loadTestPki", pki))
+                     .properties(
+                             "spring.profiles.active=loadtest",
+                             "server.port=0",
+                             "web-eid-auth-token.validation.trusted-certificates-directory=" +
+                                     pki.writeTrustedCertificates(directory.resolve("trusted-certificates")))
+                     .run()) {
+            final List<SimulatedWebEidClient> users = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                users.add(pki.newClient(String.valueOf(38001010000L + i)));
+            }
+            final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            final EndToEndLoadTest loadTest = new EndToEndLoadTest(URI.create("http://localhost:" + port), users);
+            loadTest.run(arrivalsPerSecond, durationSeconds);
+            System.out.printf("OCSP stand-in requests: %d, time-stamping stand-in requests: %d%n",
+                    pki.getOcspRequestCount(), pki.getTimestampRequestCount());
+        } finally {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    private void run(double arrivalsPerSecond, long durationSeconds) throws InterruptedException {
+        final ScheduledExecutorService arrivals = Executors.newSingleThreadScheduledExecutor();
+        final ExecutorService flows = Executors.newCachedThreadPool();
+        final long start = System.nanoTime();
+        arrivals.scheduleAtFixedRate(() -> flows.execute(this::flow), 0,
+                Math.round(TimeUnit.SECONDS.toNanos(1) / arrivalsPerSecond), TimeUnit.NANOSECONDS);
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        arrivals.shutdownNow();
+        flows.shutdown();
+        if (!flows.awaitTermination(2, TimeUnit.MINUTES)) {
+            flows.shutdownNow();
+        }
+        final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%n%d flows completed in %.1f s at %.1f arrivals/s, %.1f completed flows/s%n",
+                completedFlows.sum(), elapsedSeconds, arrivalsPerSecond, completedFlows.sum() / elapsedSeconds);
+        System.out.printf("%-10s %8s %8s %10s %10s %10s %10s %10s%n",
+                "step", "count", "failed", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        steps.forEach((name, step) -> {
+            final Histogram histogram = step.latencies;
+            System.out.printf("%-10s %8d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", name,
+                    histogram.getTotalCount(), step.failures.sum(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        });
+        steps.forEach((name, step) -> {
+            System.out.printf("%nLatency distribution of %s in milliseconds:%n", name);
+            step.latencies.outputPercentileDistribution(System.out, 1000.0);
+        });
+    }
+
+    private void flow() {
+        final SimulatedWebEidClient user = users.get(Math.floorMod(nextUser.getAndIncrement(), users.size()));
+        final Session session = new Session();
+        try {
+            session.open(send(null, session, HttpRequest.newBuilder(baseUri.resolve("/"))));
+
+            final ChallengeDTO challenge = ObjectMother.jsonStringToBean(
+                    send("challenge", session, HttpRequest.newBuilder(baseUri.resolve("/auth/challenge"))), ChallengeDTO.class);
+            send("login", session, post(session, "/auth/login",
+                    ObjectMother.toJson(user.authenticate(ORIGIN, challenge.getNonce()))));
+            // The CSRF token is replaced when the user logs in.
+            session.open(send(null, session, HttpRequest.newBuilder(baseUri.resolve("/welcome"))));
+
+            final DigestDTO digest = ObjectMother.jsonStringToBean(
+                    send("prepare", session, post(session, "/sign/prepare", ObjectMother.toJson(user.getSigningCertificate()))),
+                    DigestDTO.class);
+            send("sign", session, post(session, "/sign/sign", ObjectMother.toJson(user.sign(digest))));
+            send("download", session, HttpRequest.newBuilder(baseUri.resolve("/sign/download")));
+            completedFlows.increment();
+        } catch (FailedStepException e) {
+            // The failure was counted for the step.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Flow failed: " + e);
+        }
+    }
+
+    private HttpRequest.Builder post(Session session, String path, String json) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .header(session.csrfHeaderName, session.csrfToken)
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    /**
+     * Sends the request in the session and records its latency for the step, steps that are not measured are
+     * {@code null}.
+     */
+    private String send(String stepName, Session session, HttpRequest.Builder request) throws IOException, InterruptedException {
+        if (!session.cookies.isEmpty()) {
+            request.header("Cookie", session.cookieHeader());
+        }
+        final Step step = stepName != null ? steps.get(stepName) : null;
+        final long start = System.nanoTime();
+        final HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            if (step != null) {
+                step.failures.increment();
+            }
+            throw e;
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+        session.updateCookies(response);
+        if (response.statusCode() != 200) {
+            if (step != null) {
+                step.failures.increment();
+            }
+            throw new FailedStepException();
+        }
+        if (step != null) {
+            step.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+        }
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Step {
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder failures = new LongAdder();
+    }
+
+    /**
+     * The cookies and the CSRF token of one user, as a browser would keep them.
+     */
+    private static final class Session {
+        private final Map<String, String> cookies = new LinkedHashMap<>();
+        private String csrfHeaderName;
+        private String csrfToken;
+
+        void open(String page) {
+            csrfHeaderName = find(CSRF_HEADER, page);
+            csrfToken = find(CSRF_TOKEN, page);
+        }
+
+        String cookieHeader() {
+            final StringJoiner header = new StringJoiner("; ");
+            cookies.forEach((name, value) -> header.add(name + "=" + value));
+            return header.toString();
+        }
+
+        void updateCookies(HttpResponse<?> response) {
+            for (String setCookie : response.headers().allValues("Set-Cookie")) {
+                final String cookie = setCookie.split(";", 2)[0];
+                final int separator = cookie.indexOf('=');
+                if (separator > 0) {
+                    cookies.put(cookie.substring(0, separator).trim(), cookie.substring(separator + 1).trim());
+                }
+            }
+        }
+
+        private static String find(Pattern pattern, String input) {
+            final Matcher matcher = pattern.matcher(input);
+            if (!matcher.find()) {
+                throw new IllegalStateException("Pattern " + pattern + " not found in response");
+            }
+            return matcher.group(1);
+        }
+    }
+
+    private static final class FailedStepException extends IOException {
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark.loadtest;
+
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.example.testutil.TimestampAuthorityStandIn;
+import org.digidoc4j.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+/**
+ * Throwaway public key infrastructure for the load test. A test CA is created at startup, and it issues the OCSP
+ * responder certificate and the certificates of the simulated users. The OCSP responder and the time-stamping
+ * authority are the local stand-ins, so that the load test does not send any requests to external services.
+ */
+public final class LoadTestPki implements AutoCloseable {
+
+    private static final String CA_DN = "CN=Web eID Load Test CA, O=Web eID Load Test, C=EE";
+
+    private final KeyPair caKeyPair = TestPki.generateKeyPair();
+    private final X509Certificate caCertificate = TestPki.selfSignedCertificate(CA_DN, caKeyPair);
+    private final OcspResponderStandIn ocspResponder;
+    private final TimestampAuthorityStandIn timestampAuthority;
+
+    public LoadTestPki() throws IOException {
+        final KeyPair responderKeyPair = TestPki.generateKeyPair();
+        ocspResponder = new OcspResponderStandIn(responderKeyPair, TestPki.issueOcspResponderCertificate(
+                "CN=Web eID Load Test OCSP Responder, O=Web eID Load Test, C=EE", responderKeyPair, CA_DN, caKeyPair));
+        timestampAuthority = new TimestampAuthorityStandIn();
+    }
+
+    /**
+     * Writes the test CA certificate to the given directory, which the application loads its trusted CA certificates
+     * from in the {@code loadtest} profile.
+     */
+    public Path writeTrustedCertificates(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try {
+            Files.write(directory.resolve("web-eid-load-test-ca.cer"), caCertificate.getEncoded());
+        } catch (CertificateEncodingException e) {
+            throw new IOException(e);
+        }
+        return directory;
+    }
+
+    /**
+     * Creates the DigiDoc4j configuration for signing with the stand-ins. The test CA and the time-stamping authority
+     * are added to the trusted list certificates, and the LOTL is the local stand-in LOTL.
+     */
+    public Configuration signingConfiguration(String lotlLocation) {
+        final Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+        configuration.setPreferAiaOcsp(true);
+        configuration.setLotlLocation(lotlLocation);
+        configuration.setTspSource(timestampAuthority.getUri().toString());
+        configuration.getTSL().addTSLCertificate(caCertificate);
+        configuration.getTSL().addTSLCertificate(timestampAuthority.getAuthorityCertificate());
+        return configuration;
+    }
+
+    /**
+     * Creates a user with an authentication and a signing key and certificate, like an ID card.
+     */
+    public SimulatedWebEidClient newClient(String idCode) {
+        final String subjectDn = "CN=LOADTEST\\,USER\\," + idCode + ", SURNAME=LOADTEST, GIVENNAME=USER, " +
+                "SERIALNUMBER=PNOEE-" + idCode + ", C=EE";
+        final KeyPair authenticationKeyPair = TestPki.generateKeyPair();
+        final KeyPair signingKeyPair = TestPki.generateKeyPair();
+        return new SimulatedWebEidClient(
+                authenticationKeyPair,
+                TestPki.issueAuthenticationCertificate(subjectDn, authenticationKeyPair, CA_DN, caKeyPair, ocspResponder.getUri()),
+                signingKeyPair,
+                TestPki.issueSigningCertificate(subjectDn, signingKeyPair, CA_DN, caKeyPair, ocspResponder.getUri()));
+    }
+
+    public int getOcspRequestCount() {
+        return ocspResponder.getRequestCount();
+    }
+
+    public int getTimestampRequestCount() {
+        return timestampAuthority.getRequestCount();
+    }
+
+    @Override
+    public void close() {
+        ocspResponder.close();
+        timestampAuthority.close();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark.loadtest;
+
+import eu.webeid.example.security.dto.AuthTokenDTO;
+import eu.webeid.example.service.dto.CertificateDTO;
+import eu.webeid.example.service.dto.DigestDTO;
+import eu.webeid.example.service.dto.SignatureAlgorithmDTO;
+import eu.webeid.example.service.dto.SignatureDTO;
+import eu.webeid.security.authtoken.WebEidAuthToken;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Creates the authentication tokens and signatures that the Web eID browser extension and application return for
+ * an ID card, with keys held in memory instead of on a card.
+ */
+public final class SimulatedWebEidClient {
+
+    private static final String TOKEN_FORMAT = "web-eid:1.0";
+    private static final String APP_VERSION = "https://web-eid.eu/web-eid-app/releases/2.5.0+0";
+
+    private final KeyPair authenticationKeyPair;
+    private final X509Certificate authenticationCertificate;
+    private final KeyPair signingKeyPair;
+    private final X509Certificate signingCertificate;
+
+    SimulatedWebEidClient(KeyPair authenticationKeyPair, X509Certificate authenticationCertificate,
+                          KeyPair signingKeyPair, X509Certificate signingCertificate) {
+        this.authenticationKeyPair = authenticationKeyPair;
+        this.authenticationCertificate = authenticationCertificate;
+        this.signingKeyPair = signingKeyPair;
+        this.signingCertificate = signingCertificate;
+    }
+
+    /**
+     * Creates the authentication token for the challenge nonce. As in the Web eID application, the token signature
+     * is the ES384 signature of the concatenated SHA-384 hashes of the origin and the challenge nonce.
+     *
+     * @param origin         site origin
+     * @param challengeNonce challenge nonce from {@code /auth/challenge}
+     * @return login request
+     */
+    public AuthTokenDTO authenticate(URI origin, String challengeNonce) throws GeneralSecurityException {
+        final MessageDigest sha384 = MessageDigest.getInstance("SHA-384");
+        final Signature signature = Signature.getInstance("SHA384withECDSAinP1363Format");
+        signature.initSign(authenticationKeyPair.getPrivate());
+        signature.update(sha384.digest(origin.toASCIIString().getBytes(StandardCharsets.UTF_8)));
+        signature.update(sha384.digest(challengeNonce.getBytes(StandardCharsets.UTF_8)));
+
+        final WebEidAuthToken token = new WebEidAuthToken();
+        token.setAlgorithm("ES384");
+        token.setFormat(TOKEN_FORMAT);
+        token.setAppVersion(APP_VERSION);
+        token.setUnverifiedCertificate(encode(authenticationCertificate));
+        token.setSignature(Base64.getEncoder().encodeToString(signature.sign()));
+
+        final AuthTokenDTO authTokenDTO = new AuthTokenDTO();
+        authTokenDTO.setToken(token);
+        // Used only in stateless challenge mode, as in the login page.
+        authTokenDTO.setNonce(challengeNonce);
+        return authTokenDTO;
+    }
+
+    /**
+     * Returns the signing certificate and the supported signature algorithms, as the browser extension does.
+     *
+     * @return prepare request
+     */
+    public CertificateDTO getSigningCertificate() throws CertificateEncodingException {
+        final CertificateDTO certificateDTO = new CertificateDTO();
+        certificateDTO.setCertificate(encode(signingCertificate));
+        certificateDTO.setSupportedSignatureAlgorithms(List.of(
+                signatureAlgorithm("SHA-256"), signatureAlgorithm("SHA-384"), signatureAlgorithm("SHA-512")));
+        return certificateDTO;
+    }
+
+    /**
+     * Signs the hash of the data to sign. ECDSA signatures are returned as the concatenated r and s values, as the
+     * Web eID application returns them.
+     *
+     * @param digestDTO hash from {@code /sign/prepare}
+     * @return sign request
+     */
+    public SignatureDTO sign(DigestDTO digestDTO) throws GeneralSecurityException {
+        final Signature signature = Signature.getInstance("NONEwithECDSAinP1363Format");
+        signature.initSign(signingKeyPair.getPrivate());
+        signature.update(Base64.getDecoder().decode(digestDTO.getHash()));
+        final SignatureDTO signatureDTO = new SignatureDTO();
+        signatureDTO.setBase64Signature(Base64.getEncoder().encodeToString(signature.sign()));
+        return signatureDTO;
+    }
+
+    private static String encode(X509Certificate certificate) throws CertificateEncodingException {
+        return Base64.getEncoder().encodeToString(certificate.getEncoded());
+    }
+
+    private static SignatureAlgorithmDTO signatureAlgorithm(String hashFunction) {
+        final SignatureAlgorithmDTO signatureAlgorithmDTO = new SignatureAlgorithmDTO();
+        signatureAlgorithmDTO.setCryptoAlgorithm("ECC");
+        signatureAlgorithmDTO.setHashFunction(hashFunction);
+        signatureAlgorithmDTO.setPaddingScheme("NONE");
+        return signatureAlgorithmDTO;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.benchmark.loadtest;
+
+import eu.webeid.example.service.signing.SigningConfigurationProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Makes DigiDoc4j use the OCSP and time-stamping stand-ins of {@link LoadTestPki} in the {@code loadtest} profile.
+ * Authentication uses the OCSP stand-in through the certificate AIA extension and needs no configuration beyond
+ * {@code application-loadtest.yaml}.
+ */
+// Not annotated with @Configuration, so that component scanning does not pick it up in other tests.
+@Profile("loadtest")
+class StandInServicesConfiguration {
+
+    @Bean
+    @Primary
+    SigningConfigurationProvider standInSigningConfigurationProvider(LoadTestPki loadTestPki) throws IOException {
+        final String lotlLocation = new ClassPathResource("tsl/stand-in-lotl.xml").getURL().toString();
+        return new SigningConfigurationProvider(() -> loadTestPki.signingConfiguration(lotlLocation), false,
+                Duration.ofHours(6));
+    }
+}
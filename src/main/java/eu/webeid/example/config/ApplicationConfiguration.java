@@ -22,41 +22,264 @@
 
 package eu.webeid.example.config;
 
+import eu.webeid.example.http.SharedHttpClient;
+import eu.webeid.example.http.SharedHttpClientBinding;
+import eu.webeid.example.http.SharedHttpDataLoaderFactory;
+import eu.webeid.example.profiling.JfrEndpoint;
+import eu.webeid.example.profiling.JfrProfiler;
 import eu.webeid.example.security.AuthTokenDTOAuthenticationProvider;
 import eu.webeid.example.security.WebEidAjaxLoginProcessingFilter;
+import eu.webeid.example.service.container.ContainerFileStore;
+import eu.webeid.example.service.document.DocumentStore;
+import eu.webeid.example.service.job.SigningJobExecutor;
+import eu.webeid.example.service.session.HttpSessionSigningSessionStore;
+import eu.webeid.example.service.session.MappedFileSigningSessionStore;
+import eu.webeid.example.service.session.SigningSessionStore;
+import eu.webeid.example.service.signing.SigningConfigurationProvider;
+import eu.webeid.example.service.upload.UploadService;
+import eu.webeid.example.tracing.FileSpanExporter;
+import eu.webeid.example.tracing.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true)
+@EnableConfigurationProperties({SigningSessionProperties.class, UploadProperties.class, AsyncSigningProperties.class,
+        TslProperties.class, HttpClientProperties.class, ActuatorProperties.class, JfrRecordingProperties.class,
+        TraceExportProperties.class, DocumentStoreProperties.class, SignedContainerProperties.class})
 public class ApplicationConfiguration implements WebMvcConfigurer {
 
+    private static final String ACTUATOR_ROLE = "ACTUATOR";
+    private static final String UPLOAD_PATH = "/sign/upload";
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, AuthTokenDTOAuthenticationProvider authTokenDTOAuthenticationProvider, AuthenticationConfiguration authConfig) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthTokenDTOAuthenticationProvider authTokenDTOAuthenticationProvider, AuthenticationConfiguration authConfig, YAMLConfig yamlConfig,
+                                           ObjectProvider<OpenTelemetry> openTelemetry) throws Exception {
+        final WebEidAjaxLoginProcessingFilter loginFilter = yamlConfig.getAsyncLogin()
+                ? new WebEidAjaxLoginProcessingFilter("/auth/login", authConfig.getAuthenticationManager(),
+                        loginExecutor(yamlConfig.getAsyncLoginConcurrencyLimit()), yamlConfig.getAsyncLoginConcurrencyLimit(),
+                        yamlConfig.getAsyncLoginTimeout())
+                : new WebEidAjaxLoginProcessingFilter("/auth/login", authConfig.getAuthenticationManager());
+        loginFilter.setTracer(Tracing.tracer(openTelemetry));
         return http
                 .authenticationProvider(authTokenDTOAuthenticationProvider)
-                .addFilterBefore(new WebEidAjaxLoginProcessingFilter("/auth/login", authConfig.getAuthenticationManager()),
-                        UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(loginFilter, UsernamePasswordAuthenticationFilter.class)
                 .logout(logout -> logout.logoutSuccessHandler(new HttpStatusReturningLogoutSuccessHandler()))
                 .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin))
                 .build();
     }
 
+    /**
+     * Secures the Actuator endpoints with HTTP basic authentication, except for the health endpoint that the probes
+     * use. The endpoints are not accessible until {@code web-eid-auth-token.actuator.password} is configured.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http, ActuatorProperties properties) throws Exception {
+        final InMemoryUserDetailsManager users = new InMemoryUserDetailsManager();
+        if (properties.password() != null) {
+            // The password is stored with its encoding prefix, for example {bcrypt}.
+            users.createUser(User.withUsername(properties.username())
+                    .password(properties.password())
+                    .roles(ACTUATOR_ROLE)
+                    .build());
+        }
+        return http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeHttpRequests(requests -> requests
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole(ACTUATOR_ROLE))
+                .userDetailsService(users)
+                .httpBasic(basic -> {})
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(AbstractHttpConfigurer::disable)
+                .build();
+    }
+
+    @Bean
+    public DocumentStore documentStore(DocumentStoreProperties properties) {
+        return new DocumentStore(properties.memoryBudget().toBytes());
+    }
+
+    @Bean
+    public SigningSessionStore signingSessionStore(ObjectFactory<HttpSession> httpSessionFactory, SigningSessionProperties properties) throws IOException {
+        return switch (properties.store()) {
+            case SESSION -> new HttpSessionSigningSessionStore(httpSessionFactory);
+            case MAPPED_FILE -> new MappedFileSigningSessionStore(httpSessionFactory, signingSessionDirectory(properties),
+                    properties.timeToLive(), properties.storeBudget().toBytes());
+        };
+    }
+
+    @Bean
+    public UploadService uploadService(UploadProperties properties) throws IOException {
+        final String directory = properties.directory();
+        return new UploadService(directory != null ? Path.of(directory) : temporaryDirectory("webeid-uploads"),
+                properties.maxFileSize().toBytes(), properties.maxInFlightSize().toBytes(),
+                properties.inFlightWaitTimeout());
+    }
+
+    @Bean
+    public ContainerFileStore containerFileStore(SignedContainerProperties properties) throws IOException {
+        final String directory = properties.directory();
+        return new ContainerFileStore(directory != null ? Path.of(directory) : temporaryDirectory("webeid-signed-containers"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.async-signing", name = "enabled", havingValue = "true")
+    public SigningJobExecutor signingJobExecutor(AsyncSigningProperties properties) {
+        return new SigningJobExecutor(properties.threads(), properties.queueCapacity());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.http-client", name = "shared", havingValue = "true")
+    public SharedHttpClient sharedHttpClient(HttpClientProperties properties, MeterRegistry meterRegistry, ObjectProvider<OpenTelemetry> openTelemetry) {
+        return new SharedHttpClient(properties.connectTimeout(), properties.requestTimeout(),
+                properties.maxConnectionsPerHost(), meterRegistry, Tracing.openTelemetry(openTelemetry));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.http-client", name = "shared", havingValue = "true")
+    public SharedHttpClientBinding sharedHttpClientBinding(SharedHttpClient sharedHttpClient) {
+        return SharedHttpClientBinding.bind(sharedHttpClient);
+    }
+
+    /**
+     * Writes the sampled spans to a local file, Spring Boot adds every {@link SpanExporter} bean to its span processor.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.trace-export", name = "file")
+    public SpanExporter fileSpanExporter(TraceExportProperties properties) throws IOException {
+        return new FileSpanExporter(Path.of(properties.file()));
+    }
+
+    @Bean
+    public SigningConfigurationProvider signingConfigurationProvider(YAMLConfig yamlConfig, TslProperties tslProperties,
+                                                                     ObjectProvider<SharedHttpClient> sharedHttpClient) {
+        final SharedHttpClient httpClient = sharedHttpClient.getIfAvailable();
+        return new SigningConfigurationProvider(() -> signingConfiguration(yamlConfig, tslProperties, httpClient),
+                tslProperties.warmUp(), tslProperties.refreshInterval());
+    }
+
+    @Bean
+    public JfrEndpoint jfrEndpoint(JfrRecordingProperties properties) {
+        final String directory = properties.directory();
+        return new JfrEndpoint(new JfrProfiler(directory != null ? Path.of(directory) : temporaryDirectory("webeid-recordings"),
+                properties.maxDuration(), properties.maxSize().toBytes()));
+    }
+
+    /**
+     * Reports the trusted list warm-up state, the readiness probe includes it in {@code application.yaml}.
+     */
+    @Bean
+    public HealthIndicator trustedListHealthIndicator(SigningConfigurationProvider signingConfigurationProvider) {
+        return signingConfigurationProvider::health;
+    }
+
+    /**
+     * Resolves multipart requests like the resolver that Spring Boot configures by default, except for the file
+     * upload endpoint. {@code SigningController.upload()} streams the request body itself, so the servlet container
+     * must not parse or buffer it.
+     */
+    @Bean
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return !UPLOAD_PATH.equals(UrlPathHelper.defaultInstance.getPathWithinApplication(request))
+                        && super.isMultipart(request);
+            }
+        };
+    }
+
     @Override
     public void addViewControllers(ViewControllerRegistry registry) {
         registry.addViewController("/").setViewName("index");
         registry.addViewController("/welcome").setViewName("welcome");
     }
 
+    private static org.digidoc4j.Configuration signingConfiguration(YAMLConfig yamlConfig, TslProperties tslProperties,
+                                                                    SharedHttpClient httpClient) {
+        // Qualified, as the name clashes with Spring's @Configuration annotation.
+        final org.digidoc4j.Configuration configuration = org.digidoc4j.Configuration.of(yamlConfig.getUseDigiDoc4jProdConfiguration() ?
+                org.digidoc4j.Configuration.Mode.PROD : org.digidoc4j.Configuration.Mode.TEST);
+        // Use automatic AIA OCSP URL selection from certificate for signatures.
+        configuration.setPreferAiaOcsp(true);
+        if (tslProperties.lotlLocation() != null) {
+            configuration.setLotlLocation(tslProperties.lotlLocation());
+        }
+        if (tslProperties.cacheDir() != null) {
+            configuration.setTslCacheDirectory(tslProperties.cacheDir());
+        }
+        if (httpClient != null) {
+            configuration.setOcspDataLoaderFactory(new SharedHttpDataLoaderFactory(httpClient, "signing-ocsp", "application/ocsp-request"));
+            configuration.setTspDataLoaderFactory(new SharedHttpDataLoaderFactory(httpClient, "signing-tsa", "application/timestamp-query"));
+            configuration.setAiaDataLoaderFactory(new SharedHttpDataLoaderFactory(httpClient, "signing-aia", null));
+        }
+        return configuration;
+    }
+
+    private static Path signingSessionDirectory(SigningSessionProperties properties) {
+        final String directory = properties.directory();
+        return directory != null ? Path.of(directory) : temporaryDirectory("webeid-signing-sessions");
+    }
+
+    private static Path temporaryDirectory(String name) {
+        return Path.of(System.getProperty("java.io.tmpdir"), name);
+    }
+
+    /**
+     * Creates the executor for asynchronous login with one thread per login that the filter lets through. It is not
+     * registered as a bean, as an {@code Executor} bean would replace the application task executor that Spring Boot
+     * otherwise auto-configures.
+     * <p>
+     * The queue only holds logins submitted while a thread that has released its permit is still finishing its task.
+     * A full executor rejects the login, which the filter fails with 503, instead of blocking the container thread.
+     */
+    private static ThreadPoolTaskExecutor loginExecutor(int concurrencyLimit) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("webeid-login-");
+        executor.setCorePoolSize(concurrencyLimit);
+        executor.setMaxPoolSize(concurrencyLimit);
+        executor.setQueueCapacity(concurrencyLimit);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
 }
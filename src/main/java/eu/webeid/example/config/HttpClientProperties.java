@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the HTTP client that is shared by the outbound OCSP, time-stamping and AIA requests.
+ *
+ * @param shared                whether the requests are sent through the shared client instead of the default
+ *                              clients of the Web eID library and DigiDoc4j
+ * @param connectTimeout        time to open a connection
+ * @param requestTimeout        time to complete a request
+ * @param maxConnectionsPerHost number of concurrent requests to a host
+ */
+@ConfigurationProperties(prefix = "web-eid-auth-token.http-client")
+public record HttpClientProperties(boolean shared,
+                                   @DefaultValue("PT5S") Duration connectTimeout,
+                                   @DefaultValue("PT10S") Duration requestTimeout,
+                                   @DefaultValue("20") int maxConnectionsPerHost) {
+}
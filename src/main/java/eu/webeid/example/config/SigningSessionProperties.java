@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the signing session store.
+ *
+ * @param store       where the signing sessions are kept
+ * @param directory   directory of the {@code mapped-file} store, by default {@code webeid-signing-sessions} in the
+ *                    system temporary directory
+ * @param timeToLive  time after which a signing session that has not been accessed is deleted from the
+ *                    {@code mapped-file} store
+ * @param storeBudget total size of the files of the {@code mapped-file} store
+ */
+@ConfigurationProperties(prefix = "web-eid-auth-token.signing-session")
+public record SigningSessionProperties(@DefaultValue("session") StoreType store,
+                                       String directory,
+                                       @DefaultValue("PT15M") Duration timeToLive,
+                                       @DefaultValue("1GB") DataSize storeBudget) {
+
+    public enum StoreType {
+        SESSION,
+        /**
+         * Signing sessions are spilled to memory-mapped files and only a handle is kept in the HTTP session.
+         */
+        MAPPED_FILE
+    }
+}
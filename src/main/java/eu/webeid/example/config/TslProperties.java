@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the trusted lists that DigiDoc4j uses for signing.
+ *
+ * @param warmUp          whether the trusted lists are loaded in the background at startup instead of on first use
+ * @param refreshInterval interval of reloading the trusted lists after they have been loaded
+ * @param lotlLocation    location of the EU list of trusted lists, by default the location of the DigiDoc4j
+ *                        configuration
+ * @param cacheDir        directory of the downloaded trusted lists, by default the DigiDoc4j cache directory in the
+ *                        system temporary directory
+ */
+@ConfigurationProperties(prefix = "web-eid-auth-token.tsl")
+public record TslProperties(@DefaultValue("true") boolean warmUp,
+                            @DefaultValue("PT6H") Duration refreshInterval,
+                            String lotlLocation,
+                            String cacheDir) {
+}
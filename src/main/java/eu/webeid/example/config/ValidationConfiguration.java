@@ -22,35 +22,55 @@
 
 package eu.webeid.example.config;
 
+import eu.webeid.example.http.SharedHttpClient;
+import eu.webeid.example.ocsp.CachingOcspClient;
+import eu.webeid.example.ocsp.MeteredOcspClient;
+import eu.webeid.example.ocsp.OcspResponseCache;
+import eu.webeid.example.ocsp.SharedHttpOcspClient;
+import eu.webeid.example.ocsp.TracingOcspClient;
+import eu.webeid.example.security.CertificateSubjectCache;
+import eu.webeid.example.security.challenge.ConsumedNonceFilter;
+import eu.webeid.example.security.challenge.InMemoryChallengeNonceStore;
+import eu.webeid.example.security.challenge.NoncePool;
+import eu.webeid.example.security.challenge.PooledChallengeNonceGenerator;
+import eu.webeid.example.security.challenge.SealedChallengeNonceCodec;
+import eu.webeid.example.security.challenge.SealedChallengeNonceGenerator;
+import eu.webeid.example.security.challenge.SealedChallengeNonceVerifier;
+import eu.webeid.example.security.trust.ReloadableAuthTokenValidator;
+import eu.webeid.example.security.trust.TrustAnchorDirectoryWatcher;
+import eu.webeid.example.security.trust.TrustAnchorLoader;
+import eu.webeid.example.security.trust.TrustAnchorRegistry;
+import eu.webeid.example.security.validator.RecordingAuthTokenValidator;
+import eu.webeid.example.tracing.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import eu.webeid.security.challenge.ChallengeNonceGenerator;
 import eu.webeid.security.challenge.ChallengeNonceGeneratorBuilder;
 import eu.webeid.security.challenge.ChallengeNonceStore;
 import eu.webeid.security.exceptions.JceException;
 import eu.webeid.security.validator.AuthTokenValidator;
 import eu.webeid.security.validator.AuthTokenValidatorBuilder;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import eu.webeid.security.validator.ocsp.OcspClientImpl;
 
 import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Clock;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
+import java.util.Base64;
+import java.util.function.Supplier;
 
 @Configuration
 public class ValidationConfiguration {
@@ -58,84 +78,159 @@ public class ValidationConfiguration {
     private static final Logger LOG = LoggerFactory.getLogger(ValidationConfiguration.class);
 
     private static final long CHALLENGE_NONCE_TTL_MINUTES = 5;
+    private static final Duration OCSP_REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration TRUST_ANCHOR_RELOAD_SETTLE_DELAY = Duration.ofSeconds(1);
     private static final String CERTS_RESOURCE_PATH = "/certs/";
-    public static final String TRUSTED_CERTIFICATES_JKS = "trusted_certificates.jks";
+    private static final String DEV_PROFILE = "dev";
 
     @Value("${spring.profiles.active}")
     private String activeProfile;
 
     @Bean
-    public ChallengeNonceStore sessionBasedChallengeNonceStore(ObjectFactory<HttpSession> httpSessionFactory) {
-        return new SessionBackedChallengeNonceStore(httpSessionFactory);
+    public ChallengeNonceStore challengeNonceStore(ObjectFactory<HttpSession> httpSessionFactory) {
+        return switch (yamlConfig().getChallengeNonceStore()) {
+            // The store is not used in stateless mode, but the session-backed store does not hold any resources.
+            case SESSION, STATELESS -> new SessionBackedChallengeNonceStore(httpSessionFactory);
+            case IN_MEMORY -> new InMemoryChallengeNonceStore(Duration.ofMinutes(CHALLENGE_NONCE_TTL_MINUTES),
+                    yamlConfig().getChallengeNonceStoreMaxEntries());
+        };
     }
 
     @Bean
-    public ChallengeNonceGenerator generator(ChallengeNonceStore challengeNonceStore) {
-        return new ChallengeNonceGeneratorBuilder()
-                .withNonceTtl(Duration.ofMinutes(CHALLENGE_NONCE_TTL_MINUTES))
-                .withChallengeNonceStore(challengeNonceStore)
-                .build();
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.validation", name = "challenge-nonce-store", havingValue = "stateless")
+    public SealedChallengeNonceCodec sealedChallengeNonceCodec() {
+        final Duration keyRotationPeriod = yamlConfig().getChallengeNonceSealKeyRotationPeriod();
+        if (keyRotationPeriod.compareTo(Duration.ofMinutes(CHALLENGE_NONCE_TTL_MINUTES)) < 0) {
+            throw new IllegalStateException("Challenge nonce seal key rotation period must not be shorter than the nonce TTL");
+        }
+        return new SealedChallengeNonceCodec(challengeNonceSealSecret(), keyRotationPeriod, Clock.systemUTC());
     }
 
     @Bean
-    public X509Certificate[] loadTrustedCACertificatesFromCerFiles() {
-        List<X509Certificate> caCertificates = new ArrayList<>();
-
-        try {
-            CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
-
-            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-            Resource[] resources = resolver.getResources(CERTS_RESOURCE_PATH + activeProfile + "/*.cer");
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.validation", name = "challenge-nonce-store", havingValue = "stateless")
+    public SealedChallengeNonceVerifier sealedChallengeNonceVerifier(SealedChallengeNonceCodec sealedChallengeNonceCodec) {
+        final ConsumedNonceFilter consumedNonceFilter = new ConsumedNonceFilter(Duration.ofMinutes(CHALLENGE_NONCE_TTL_MINUTES),
+                yamlConfig().getChallengeNonceReplayFilterCapacity(), Clock.systemUTC());
+        return new SealedChallengeNonceVerifier(sealedChallengeNonceCodec, consumedNonceFilter, Clock.systemUTC());
+    }
 
-            for (Resource resource : resources) {
-                X509Certificate caCertificate = (X509Certificate) certFactory.generateCertificate(resource.getInputStream());
-                caCertificates.add(caCertificate);
-            }
+    @Bean
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.validation", name = "challenge-nonce-pool-size")
+    public NoncePool noncePool() {
+        return new NoncePool(yamlConfig().getChallengeNoncePoolSize(), yamlConfig().getChallengeNoncePoolRefillThreads());
+    }
 
-        } catch (CertificateException | IOException e) {
-            throw new RuntimeException("Error initializing trusted CA certificates.", e);
+    @Bean
+    public ChallengeNonceGenerator generator(ChallengeNonceStore challengeNonceStore,
+                                             ObjectProvider<SealedChallengeNonceCodec> sealedChallengeNonceCodec,
+                                             ObjectProvider<NoncePool> noncePool) {
+        final Duration nonceTtl = Duration.ofMinutes(CHALLENGE_NONCE_TTL_MINUTES);
+        final NoncePool pool = noncePool.getIfAvailable();
+        if (yamlConfig().getChallengeNonceStore() == YAMLConfig.ChallengeNonceStoreType.STATELESS) {
+            final SecureRandom secureRandom = new SecureRandom();
+            final Supplier<byte[]> randomBytes = pool != null ? pool::take : () -> {
+                final byte[] bytes = new byte[ChallengeNonceGenerator.NONCE_LENGTH];
+                secureRandom.nextBytes(bytes);
+                return bytes;
+            };
+            return new SealedChallengeNonceGenerator(sealedChallengeNonceCodec.getObject(), randomBytes, nonceTtl, Clock.systemUTC());
+        }
+        if (pool != null) {
+            return new PooledChallengeNonceGenerator(pool, challengeNonceStore, nonceTtl);
         }
+        return new ChallengeNonceGeneratorBuilder()
+                .withNonceTtl(nonceTtl)
+                .withChallengeNonceStore(challengeNonceStore)
+                .build();
+    }
 
-        return caCertificates.toArray(new X509Certificate[0]);
+    @Bean
+    public CertificateSubjectCache certificateSubjectCache() {
+        return new CertificateSubjectCache(yamlConfig().getCertificateSubjectCacheSize());
     }
 
     @Bean
-    public X509Certificate[] loadTrustedCACertificatesFromTrustStore() {
-        List<X509Certificate> caCertificates = new ArrayList<>();
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.validation", name = "ocsp-response-cache-size")
+    public OcspResponseCache ocspResponseCache() {
+        return new OcspResponseCache(yamlConfig().getOcspResponseCacheSize(), yamlConfig().getOcspResponseMaxStaleness(),
+                Clock.systemUTC());
+    }
 
-        try (InputStream is = ValidationConfiguration.class.getResourceAsStream(CERTS_RESOURCE_PATH + activeProfile + "/" + TRUSTED_CERTIFICATES_JKS)) {
-            if (is == null) {
-                LOG.info("Truststore file {} not found for {} profile", TRUSTED_CERTIFICATES_JKS, activeProfile);
-                return new X509Certificate[0];
-            }
-            KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-            keystore.load(is, yamlConfig().getTrustStorePassword().toCharArray());
-            Enumeration<String> aliases = keystore.aliases();
-            while (aliases.hasMoreElements()) {
-                String alias = aliases.nextElement();
-                X509Certificate certificate = (X509Certificate) keystore.getCertificate(alias);
-                caCertificates.add(certificate);
-            }
-        } catch (IOException | CertificateException | KeyStoreException | NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error initializing trusted CA certificates from trust store.", e);
+    @Bean
+    public TrustAnchorLoader trustAnchorLoader() {
+        final String directory = yamlConfig().getTrustedCertificatesDirectory();
+        String location = directory != null
+                ? Path.of(directory).toUri().toString()
+                : "classpath:" + CERTS_RESOURCE_PATH + activeProfile + "/";
+        if (!location.endsWith("/")) {
+            location += "/";
         }
-
-        return caCertificates.toArray(new X509Certificate[0]);
+        return new TrustAnchorLoader(location, yamlConfig().getTrustStorePassword());
     }
 
     @Bean
-    public AuthTokenValidator validator() {
+    public ReloadableAuthTokenValidator validator(ObjectProvider<OcspResponseCache> ocspResponseCache,
+                                                  ObjectProvider<SharedHttpClient> sharedHttpClient,
+                                                  MeterRegistry meterRegistry,
+                                                  ObjectProvider<OpenTelemetry> openTelemetry) {
+        final TrustAnchorRegistry trustAnchors = trustAnchorLoader().load();
+        final Tracer tracer = Tracing.tracer(openTelemetry);
+        return new ReloadableAuthTokenValidator(trustAnchors, anchors ->
+                buildValidator(anchors, ocspResponseCache.getIfAvailable(),
+                        sharedHttpClient.getIfAvailable(), meterRegistry, tracer));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "web-eid-auth-token.validation", name = "trusted-certificates-directory")
+    public TrustAnchorDirectoryWatcher trustAnchorDirectoryWatcher(ReloadableAuthTokenValidator validator) throws IOException {
+        return new TrustAnchorDirectoryWatcher(Path.of(yamlConfig().getTrustedCertificatesDirectory()), trustAnchorLoader()::load,
+                validator::reload, TRUST_ANCHOR_RELOAD_SETTLE_DELAY);
+    }
+
+    private AuthTokenValidator buildValidator(TrustAnchorRegistry trustAnchors,
+                                              OcspResponseCache ocspResponseCache,
+                                              SharedHttpClient sharedHttpClient,
+                                              MeterRegistry meterRegistry,
+                                              Tracer tracer) {
         try {
-            return new AuthTokenValidatorBuilder()
+            final AuthTokenValidatorBuilder builder = new AuthTokenValidatorBuilder()
                     .withSiteOrigin(URI.create(yamlConfig().getLocalOrigin()))
-                    .withTrustedCertificateAuthorities(loadTrustedCACertificatesFromCerFiles())
-                    .withTrustedCertificateAuthorities(loadTrustedCACertificatesFromTrustStore())
-                    .build();
+                    .withTrustedCertificateAuthorities(trustAnchors.toArray());
+            if (!yamlConfig().getOcspNonceDisabledUrls().isEmpty()) {
+                builder.withNonceDisabledOcspUrls(yamlConfig().getOcspNonceDisabledUrls().toArray(new URI[0]));
+            }
+            // Only the requests that reach the responder are timed and traced, cache hits are not.
+            final OcspClient ocspClient = new MeteredOcspClient(new TracingOcspClient(sharedHttpClient != null
+                    ? new SharedHttpOcspClient(sharedHttpClient)
+                    : OcspClientImpl.build(OCSP_REQUEST_TIMEOUT), tracer), meterRegistry);
+            if (ocspResponseCache != null) {
+                // Cached responses may be as old as the maximum staleness, the validator must accept them.
+                builder.withOcspClient(new CachingOcspClient(ocspClient, ocspResponseCache))
+                        .withMaxOcspResponseThisUpdateAge(yamlConfig().getOcspResponseMaxStaleness());
+            } else {
+                builder.withOcspClient(ocspClient);
+            }
+            return new RecordingAuthTokenValidator(builder.build());
         } catch (JceException e) {
             throw new RuntimeException("Error building the Web eID auth token validator.", e);
         }
     }
 
+    private byte[] challengeNonceSealSecret() {
+        final String secret = yamlConfig().getChallengeNonceSealSecret();
+        if (secret == null || secret.isBlank()) {
+            // Nonces sealed with a per-node secret fail on every other node, so a random secret is only used in development.
+            if (!DEV_PROFILE.equals(activeProfile)) {
+                throw new IllegalStateException("Challenge nonce seal secret must be configured when the challenge nonce store is stateless");
+            }
+            LOG.warn("Challenge nonce seal secret is not configured, using a random secret that is not shared with other nodes");
+            final byte[] randomSecret = new byte[32];
+            new SecureRandom().nextBytes(randomSecret);
+            return randomSecret;
+        }
+        return Base64.getDecoder().decode(secret);
+    }
+
     @Bean
     public YAMLConfig yamlConfig() {
         return new YAMLConfig();
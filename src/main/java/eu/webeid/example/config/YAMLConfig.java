@@ -27,6 +27,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
 @EnableConfigurationProperties
 @ConfigurationProperties(prefix = "web-eid-auth-token.validation")
@@ -41,9 +45,39 @@ public class YAMLConfig {
     @Value("truststore-password")
     private String trustStorePassword;
 
+    private String trustedCertificatesDirectory;
+
     @Value("#{new Boolean('${web-eid-auth-token.validation.use-digidoc4j-prod-configuration}'.trim())}")
     private Boolean useDigiDoc4jProdConfiguration;
 
+    private ChallengeNonceStoreType challengeNonceStore = ChallengeNonceStoreType.SESSION;
+
+    private int challengeNonceStoreMaxEntries = 100_000;
+
+    private String challengeNonceSealSecret;
+
+    private Duration challengeNonceSealKeyRotationPeriod = Duration.ofHours(1);
+
+    private int challengeNonceReplayFilterCapacity = 100_000;
+
+    private int challengeNoncePoolSize;
+
+    private int challengeNoncePoolRefillThreads = 2;
+
+    private int certificateSubjectCacheSize = 1024;
+
+    private int ocspResponseCacheSize;
+
+    private Duration ocspResponseMaxStaleness = Duration.ofMinutes(2);
+
+    private List<URI> ocspNonceDisabledUrls = List.of();
+
+    private boolean asyncLogin;
+
+    private int asyncLoginConcurrencyLimit = 1000;
+
+    private Duration asyncLoginTimeout = Duration.ofSeconds(30);
+
     public String getLocalOrigin() {
         return localOrigin;
     }
@@ -68,6 +102,14 @@ public class YAMLConfig {
         this.trustStorePassword = trustStorePassword;
     }
 
+    public String getTrustedCertificatesDirectory() {
+        return trustedCertificatesDirectory;
+    }
+
+    public void setTrustedCertificatesDirectory(String trustedCertificatesDirectory) {
+        this.trustedCertificatesDirectory = trustedCertificatesDirectory;
+    }
+
     public boolean getUseDigiDoc4jProdConfiguration() {
         return useDigiDoc4jProdConfiguration;
     }
@@ -75,4 +117,125 @@ public class YAMLConfig {
     public void setUseDigiDoc4jProdConfiguration(boolean useDigiDoc4jProdConfiguration) {
         this.useDigiDoc4jProdConfiguration = useDigiDoc4jProdConfiguration;
     }
+
+    public ChallengeNonceStoreType getChallengeNonceStore() {
+        return challengeNonceStore;
+    }
+
+    public void setChallengeNonceStore(ChallengeNonceStoreType challengeNonceStore) {
+        this.challengeNonceStore = challengeNonceStore;
+    }
+
+    public int getChallengeNonceStoreMaxEntries() {
+        return challengeNonceStoreMaxEntries;
+    }
+
+    public void setChallengeNonceStoreMaxEntries(int challengeNonceStoreMaxEntries) {
+        this.challengeNonceStoreMaxEntries = challengeNonceStoreMaxEntries;
+    }
+
+    public String getChallengeNonceSealSecret() {
+        return challengeNonceSealSecret;
+    }
+
+    public void setChallengeNonceSealSecret(String challengeNonceSealSecret) {
+        this.challengeNonceSealSecret = challengeNonceSealSecret;
+    }
+
+    public Duration getChallengeNonceSealKeyRotationPeriod() {
+        return challengeNonceSealKeyRotationPeriod;
+    }
+
+    public void setChallengeNonceSealKeyRotationPeriod(Duration challengeNonceSealKeyRotationPeriod) {
+        this.challengeNonceSealKeyRotationPeriod = challengeNonceSealKeyRotationPeriod;
+    }
+
+    public int getChallengeNonceReplayFilterCapacity() {
+        return challengeNonceReplayFilterCapacity;
+    }
+
+    public void setChallengeNonceReplayFilterCapacity(int challengeNonceReplayFilterCapacity) {
+        this.challengeNonceReplayFilterCapacity = challengeNonceReplayFilterCapacity;
+    }
+
+    public int getChallengeNoncePoolSize() {
+        return challengeNoncePoolSize;
+    }
+
+    public void setChallengeNoncePoolSize(int challengeNoncePoolSize) {
+        this.challengeNoncePoolSize = challengeNoncePoolSize;
+    }
+
+    public int getChallengeNoncePoolRefillThreads() {
+        return challengeNoncePoolRefillThreads;
+    }
+
+    public void setChallengeNoncePoolRefillThreads(int challengeNoncePoolRefillThreads) {
+        this.challengeNoncePoolRefillThreads = challengeNoncePoolRefillThreads;
+    }
+
+    public int getCertificateSubjectCacheSize() {
+        return certificateSubjectCacheSize;
+    }
+
+    public void setCertificateSubjectCacheSize(int certificateSubjectCacheSize) {
+        this.certificateSubjectCacheSize = certificateSubjectCacheSize;
+    }
+
+    public int getOcspResponseCacheSize() {
+        return ocspResponseCacheSize;
+    }
+
+    public void setOcspResponseCacheSize(int ocspResponseCacheSize) {
+        this.ocspResponseCacheSize = ocspResponseCacheSize;
+    }
+
+    public Duration getOcspResponseMaxStaleness() {
+        return ocspResponseMaxStaleness;
+    }
+
+    public void setOcspResponseMaxStaleness(Duration ocspResponseMaxStaleness) {
+        this.ocspResponseMaxStaleness = ocspResponseMaxStaleness;
+    }
+
+    public List<URI> getOcspNonceDisabledUrls() {
+        return ocspNonceDisabledUrls;
+    }
+
+    public void setOcspNonceDisabledUrls(List<URI> ocspNonceDisabledUrls) {
+        this.ocspNonceDisabledUrls = ocspNonceDisabledUrls;
+    }
+
+    public boolean getAsyncLogin() {
+        return asyncLogin;
+    }
+
+    public void setAsyncLogin(boolean asyncLogin) {
+        this.asyncLogin = asyncLogin;
+    }
+
+    public int getAsyncLoginConcurrencyLimit() {
+        return asyncLoginConcurrencyLimit;
+    }
+
+    public void setAsyncLoginConcurrencyLimit(int asyncLoginConcurrencyLimit) {
+        this.asyncLoginConcurrencyLimit = asyncLoginConcurrencyLimit;
+    }
+
+    public Duration getAsyncLoginTimeout() {
+        return asyncLoginTimeout;
+    }
+
+    public void setAsyncLoginTimeout(Duration asyncLoginTimeout) {
+        this.asyncLoginTimeout = asyncLoginTimeout;
+    }
+
+    public enum ChallengeNonceStoreType {
+        SESSION,
+        IN_MEMORY,
+        /**
+         * Challenge nonces are sealed with a server key and verified at login instead of being stored.
+         */
+        STATELESS
+    }
 }
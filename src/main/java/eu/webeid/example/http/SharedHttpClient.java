@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.http;
+
+import eu.webeid.example.metrics.TaggedTimers;
+import eu.webeid.example.tracing.Tracing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP client for the outbound OCSP, time-stamping and AIA requests of both authentication and signing.
+ * <p>
+ * All requests go through one {@link HttpClient}, which keeps idle HTTP/1.1 connections open and reuses them for
+ * subsequent requests to the same host, so the TCP handshake is not repeated for every OCSP or time-stamp request.
+ * The number of concurrent requests to a host, and thereby the number of connections to it, is limited. Requests
+ * are timed in the {@code webeid.http.client.requests} timer, tagged with the calling client, the host and the
+ * outcome. Each request is also traced as a {@code webeid.http.client} client span, whose trace context is sent
+ * to the responder in the W3C {@code traceparent} header.
+ */
+public class SharedHttpClient {
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final int maxConcurrentRequestsPerHost;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final TaggedTimers requestTimers;
+    private final LongAdder hostLimitRejections = new LongAdder();
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    public SharedHttpClient(Duration connectTimeout, Duration requestTimeout, int maxConcurrentRequestsPerHost,
+                            MeterRegistry meterRegistry) {
+        this(connectTimeout, requestTimeout, maxConcurrentRequestsPerHost, meterRegistry, OpenTelemetry.noop());
+    }
+
+    public SharedHttpClient(Duration connectTimeout, Duration requestTimeout, int maxConcurrentRequestsPerHost,
+                            MeterRegistry meterRegistry, OpenTelemetry openTelemetry) {
+        if (maxConcurrentRequestsPerHost <= 0) {
+            throw new IllegalArgumentException("Maximum concurrent requests per host must be positive");
+        }
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+        this.tracer = Tracing.tracer(openTelemetry);
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+        this.requestTimers = new TaggedTimers(meterRegistry, "webeid.http.client.requests",
+                "Outbound OCSP, time-stamping and AIA requests", "client", "host", "outcome");
+        FunctionCounter.builder("webeid.http.client.host.limit.rejections", hostLimitRejections, LongAdder::sum)
+                .description("Outbound requests that did not get a per-host slot within the request timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the request and returns the response with any status code.
+     *
+     * @param client  name of the calling client for metrics, for example {@code signing-ocsp}
+     * @param request request to send, the request timeout is set here
+     * @throws IOException when the request fails, times out or the host limit was not available within the timeout
+     */
+    public HttpResponse<byte[]> send(String client, HttpRequest.Builder request) throws IOException {
+        final Span span = tracer.spanBuilder("webeid.http.client")
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("webeid.client", client)
+                .startSpan();
+        propagator.inject(Context.current().with(span), request, HttpRequest.Builder::header);
+        final HttpRequest httpRequest = request.timeout(requestTimeout).build();
+        final String host = httpRequest.uri().getHost();
+        span.setAttribute("http.request.method", httpRequest.method());
+        span.setAttribute("server.address", host != null ? host : "unknown");
+        final Semaphore permits = hostPermits.computeIfAbsent(httpRequest.uri().getAuthority(),
+                authority -> new Semaphore(maxConcurrentRequestsPerHost, true));
+        final long start = System.nanoTime();
+        String outcome = "IO_ERROR";
+        try (Scope ignored = span.makeCurrent()) {
+            if (!permits.tryAcquire(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                hostLimitRejections.increment();
+                outcome = "HOST_LIMIT";
+                throw new IOException("Too many concurrent requests to " + httpRequest.uri().getAuthority());
+            }
+            try {
+                final HttpResponse<byte[]> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+                outcome = Outcome.forStatus(response.statusCode()).name();
+                span.setAttribute("http.response.status_code", response.statusCode());
+                if (response.statusCode() >= 400) {
+                    span.setStatus(StatusCode.ERROR);
+                }
+                return response;
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Tracing.recordFailure(span, e);
+            throw new InterruptedIOException("Interrupted while requesting " + httpRequest.uri());
+        } catch (IOException | RuntimeException e) {
+            Tracing.recordFailure(span, e);
+            throw e;
+        } finally {
+            span.end();
+            requestTimers.record(System.nanoTime() - start, client, host != null ? host : "unknown", outcome);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.http;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Binds the shared HTTP client of the application context for the data loaders and their factories that DigiDoc4j
+ * deserializes together with a container, as the client itself is not serialized.
+ * <p>
+ * The binding is created and closed with the application context, so deserialized loaders never use a client that
+ * was created outside of it or belongs to a closed context.
+ */
+public final class SharedHttpClientBinding implements AutoCloseable {
+
+    private static final AtomicReference<SharedHttpClient> BOUND_CLIENT = new AtomicReference<>();
+
+    private final SharedHttpClient httpClient;
+
+    private SharedHttpClientBinding(SharedHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public static SharedHttpClientBinding bind(SharedHttpClient httpClient) {
+        if (!BOUND_CLIENT.compareAndSet(null, httpClient)) {
+            throw new IllegalStateException("Another shared HTTP client is already bound");
+        }
+        return new SharedHttpClientBinding(httpClient);
+    }
+
+    static SharedHttpClient boundClient() {
+        final SharedHttpClient client = BOUND_CLIENT.get();
+        if (client == null) {
+            throw new IllegalStateException("No shared HTTP client is bound to a running application context");
+        }
+        return client;
+    }
+
+    @Override
+    public void close() {
+        BOUND_CLIENT.compareAndSet(httpClient, null);
+    }
+}
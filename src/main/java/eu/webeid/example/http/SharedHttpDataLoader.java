@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.http;
+
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/**
+ * DSS data loader for DigiDoc4j that sends requests through {@link SharedHttpClient}.
+ */
+public class SharedHttpDataLoader implements DataLoader {
+
+    private transient SharedHttpClient httpClient;
+    private final String clientName;
+    private String contentType;
+
+    public SharedHttpDataLoader(SharedHttpClient httpClient, String clientName, String contentType) {
+        this.httpClient = httpClient;
+        this.clientName = clientName;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public byte[] get(String url) {
+        return send(url, HttpRequest.newBuilder(URI.create(url)).GET());
+    }
+
+    @Override
+    public DataAndUrl get(List<String> urlStrings) {
+        DSSException lastException = null;
+        for (String url : urlStrings) {
+            try {
+                return new DataAndUrl(url, get(url));
+            } catch (DSSException e) {
+                lastException = e;
+            }
+        }
+        throw new DSSException("Unable to fetch data from any of the URLs " + urlStrings, lastException);
+    }
+
+    @Override
+    public byte[] post(String url, byte[] content) {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(content));
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        return send(url, request);
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    private SharedHttpClient httpClient() {
+        // The loader is serialized with the DigiDoc4j configuration, see SharedHttpDataLoaderFactory.
+        if (httpClient == null) {
+            httpClient = SharedHttpClientBinding.boundClient();
+        }
+        return httpClient;
+    }
+
+    private byte[] send(String url, HttpRequest.Builder request) {
+        final HttpResponse<byte[]> response;
+        try {
+            response = httpClient().send(clientName, request);
+        } catch (IOException e) {
+            throw new DSSException("Unable to fetch " + url, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new DSSException("Request to " + url + " failed with status " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.http;
+
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import org.digidoc4j.DataLoaderFactory;
+
+import java.io.Serializable;
+
+/**
+ * Creates {@link SharedHttpDataLoader} instances for the OCSP, time-stamp and AIA requests that DigiDoc4j makes.
+ * <p>
+ * DigiDoc4j serializes its configuration, including the data loader factories, together with the container, so the
+ * client reference is not serialized and is looked up from the {@link SharedHttpClientBinding} after deserialization.
+ */
+public class SharedHttpDataLoaderFactory implements DataLoaderFactory, Serializable {
+
+    private final String clientName;
+    private final String contentType;
+    private transient SharedHttpClient httpClient;
+
+    /**
+     * @param contentType content type of POST requests, or {@code null} for loaders that only make GET requests
+     */
+    public SharedHttpDataLoaderFactory(SharedHttpClient httpClient, String clientName, String contentType) {
+        this.httpClient = httpClient;
+        this.clientName = clientName;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public DataLoader create() {
+        if (httpClient == null) {
+            httpClient = SharedHttpClientBinding.boundClient();
+        }
+        return new SharedHttpDataLoader(httpClient, clientName, contentType);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Stage of authentication token validation:
+ * <ul>
+ *     <li>{@code chain}: validation of the token by the Web eID library, which checks the certificate validity,
+ *     purpose, policy and chain, the revocation status and the signature, the size is the size of the certificate,</li>
+ *     <li>{@code ocsp}: an OCSP request that is not answered from the OCSP response cache, the size is the size of
+ *     the response.</li>
+ * </ul>
+ * The library does not expose its individual checks, so its OCSP request is recorded as an {@code ocsp} event
+ * nested in the {@code chain} event of the same thread.
+ */
+@Name("eu.webeid.example.AuthTokenValidation")
+@Label("Auth Token Validation")
+@Description("Stage of Web eID authentication token validation")
+@Category({"Web eID", "Authentication"})
+public class AuthTokenValidationEvent extends WebEidEvent {
+
+    public static final String STAGE_CHAIN = "chain";
+    public static final String STAGE_OCSP = "ocsp";
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    private long size;
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("eu.webeid.example.ChallengeNonceStore")
+@Label("Challenge Nonce Store Access")
+@Description("Retrieval and removal of the challenge nonce at login, or verification of a sealed nonce in stateless mode")
+@Category({"Web eID", "Authentication"})
+public class ChallengeNonceStoreEvent extends WebEidEvent {
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Store")
+    private String store;
+
+    @Label("Nonce Size")
+    @DataAmount(DataAmount.BYTES)
+    private long nonceSize;
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setNonceSize(long nonceSize) {
+        this.nonceSize = nonceSize;
+    }
+}
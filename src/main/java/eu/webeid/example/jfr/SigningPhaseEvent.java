@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Phase of the signing flow, see {@code SigningService}. The size is the size of the signed file for
+ * {@code container-build}, of the data to sign for {@code data-to-sign}, of the signature value for
+ * {@code finalize} and of the container file for {@code serialization}.
+ */
+@Name("eu.webeid.example.SigningPhase")
+@Label("Signing Phase")
+@Description("Phase of the signing flow")
+@Category({"Web eID", "Signing"})
+public class SigningPhaseEvent extends WebEidEvent {
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    private long size;
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the JDK Flight Recorder events of the Web eID authentication and signing hot paths, which carry the
+ * outcome of the recorded operation.
+ * <p>
+ * The events are enabled by default and do not record stack traces, so that recordings can be kept running in
+ * production. Callers set the fields only after {@link #shouldCommit()}, which avoids computing them when the
+ * event is disabled or below its threshold.
+ */
+@StackTrace(false)
+public abstract class WebEidEvent extends Event {
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Failure Reason")
+    private String reason;
+
+    /**
+     * Sets the outcome to {@code SUCCESS} when {@code failure} is {@code null}, or to {@code FAILURE} with the
+     * simple name of the exception as the reason.
+     */
+    public void setOutcome(Throwable failure) {
+        this.outcome = failure == null ? "SUCCESS" : "FAILURE";
+        this.reason = failure == null ? null : failure.getClass().getSimpleName();
+    }
+
+    /**
+     * Sets the outcome to {@code FAILURE} with the given reason, for operations that report failures without
+     * exceptions.
+     */
+    public void setFailure(String reason) {
+        this.outcome = "FAILURE";
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.metrics;
+
+import eu.webeid.example.jfr.WebEidEvent;
+import eu.webeid.example.tracing.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the operations of the authentication and signing flows with their timer, JDK Flight Recorder event and
+ * OpenTelemetry span, so that the outcome of an operation is recorded the same way in all three.
+ * <p>
+ * The duration is recorded in {@link TaggedTimers} whose last two tag keys are {@code outcome} and {@code reason}.
+ * The outcome is {@code SUCCESS} or {@code FAILURE}, and the reason is the simple name of the exception that the
+ * operation threw, or {@code none}.
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs the operation and records its duration in the timers.
+     *
+     * @param tagValues values of the tags that precede {@code outcome} and {@code reason}
+     */
+    public static <T, E extends Exception> T call(Operation<T, E> operation, TaggedTimers timers,
+                                                  String... tagValues) throws E {
+        return call(operation, null, null, null, timers, tagValues);
+    }
+
+    /**
+     * Runs the operation within the span and records its duration in the timers and the event.
+     *
+     * @param event       event of the operation, or {@code null}
+     * @param eventFields sets the fields of the event from the result of the operation, which is {@code null} when
+     *                    the operation failed; called only when the event is committed
+     * @param span        started span that is current during the operation and ended after it, or {@code null}
+     * @param tagValues   values of the tags that precede {@code outcome} and {@code reason}
+     */
+    public static <T, V extends WebEidEvent, E extends Exception> T call(Operation<T, E> operation,
+                                                                         V event, BiConsumer<? super V, ? super T> eventFields,
+                                                                         Span span, TaggedTimers timers,
+                                                                         String... tagValues) throws E {
+        if (event != null) {
+            event.begin();
+        }
+        final long start = System.nanoTime();
+        String outcome = "FAILURE";
+        String reason = "none";
+        T result = null;
+        Exception failure = null;
+        try (Scope ignored = span != null ? span.makeCurrent() : Scope.noop()) {
+            result = operation.run();
+            outcome = "SUCCESS";
+            return result;
+        } catch (Exception e) {
+            reason = e.getClass().getSimpleName();
+            failure = e;
+            if (span != null) {
+                Tracing.recordFailure(span, e);
+            }
+            throw e;
+        } finally {
+            if (span != null) {
+                span.end();
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    eventFields.accept(event, result);
+                    event.setOutcome(failure);
+                    event.commit();
+                }
+            }
+            final String[] values = Arrays.copyOf(tagValues, tagValues.length + 2);
+            values[tagValues.length] = outcome;
+            values[tagValues.length + 1] = reason;
+            timers.record(System.nanoTime() - start, values);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers of one metric with a fixed set of tag keys. The timer of each combination of tag values is registered on
+ * first use and reused afterwards, so that recording does not build and look up the timer again.
+ */
+public final class TaggedTimers {
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final String description;
+    private final List<String> tagKeys;
+    private final ConcurrentMap<List<String>, Timer> timers = new ConcurrentHashMap<>();
+
+    public TaggedTimers(MeterRegistry registry, String name, String description, String... tagKeys) {
+        this.registry = registry;
+        this.name = name;
+        this.description = description;
+        this.tagKeys = List.of(tagKeys);
+    }
+
+    /**
+     * Records the duration in the timer with the given tag values, in the order of the tag keys.
+     */
+    public void record(long durationNanos, String... tagValues) {
+        if (tagValues.length != tagKeys.size()) {
+            throw new IllegalArgumentException("Expected values for tags " + tagKeys);
+        }
+        timers.computeIfAbsent(List.of(tagValues), this::register).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(List<String> tagValues) {
+        final Timer.Builder builder = Timer.builder(name).description(description);
+        for (int i = 0; i < tagKeys.size(); i++) {
+            builder.tag(tagKeys.get(i), tagValues.get(i));
+        }
+        return builder.register(registry);
+    }
+}
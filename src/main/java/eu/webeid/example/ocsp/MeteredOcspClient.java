@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.ocsp;
+
+import eu.webeid.example.jfr.AuthTokenValidationEvent;
+import eu.webeid.example.metrics.TaggedTimers;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * OCSP client for the authentication token validator that times the requests of the delegate in the
+ * {@code webeid.ocsp.requests} timer, tagged with the responder host, outcome and failure reason.
+ * <p>
+ * The outcome is {@code SUCCESS} only when the responder returns a successful OCSP response status, other
+ * statuses are reported with the status name as the reason. The requests are also recorded as
+ * {@link AuthTokenValidationEvent} JFR events with the {@code ocsp} stage.
+ */
+public class MeteredOcspClient implements OcspClient {
+
+    private final OcspClient delegate;
+    private final TaggedTimers requestTimers;
+
+    public MeteredOcspClient(OcspClient delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.requestTimers = new TaggedTimers(meterRegistry, "webeid.ocsp.requests",
+                "Authentication certificate OCSP requests", "host", "outcome", "reason");
+    }
+
+    @Override
+    public OCSPResp request(URI url, OCSPReq request) throws IOException {
+        final AuthTokenValidationEvent event = new AuthTokenValidationEvent();
+        event.begin();
+        final long start = System.nanoTime();
+        String outcome = "FAILURE";
+        String reason = "none";
+        OCSPResp response = null;
+        try {
+            response = delegate.request(url, request);
+            if (response.getStatus() == OCSPResp.SUCCESSFUL) {
+                outcome = "SUCCESS";
+            } else {
+                reason = statusName(response.getStatus());
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            reason = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setStage(AuthTokenValidationEvent.STAGE_OCSP);
+                event.setSize(response != null ? response.getEncoded().length : 0);
+                if (outcome.equals("SUCCESS")) {
+                    event.setOutcome(null);
+                } else {
+                    event.setFailure(reason);
+                }
+                event.commit();
+            }
+            requestTimers.record(System.nanoTime() - start, url.getHost() != null ? url.getHost() : "unknown", outcome, reason);
+        }
+    }
+
+    private static String statusName(int status) {
+        return switch (status) {
+            case OCSPResp.MALFORMED_REQUEST -> "MALFORMED_REQUEST";
+            case OCSPResp.INTERNAL_ERROR -> "INTERNAL_ERROR";
+            case OCSPResp.TRY_LATER -> "TRY_LATER";
+            case OCSPResp.SIG_REQUIRED -> "SIG_REQUIRED";
+            case OCSPResp.UNAUTHORIZED -> "UNAUTHORIZED";
+            default -> "UNKNOWN_STATUS";
+        };
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.ocsp;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.SingleResp;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of successful OCSP responses, keyed by responder URL and the certificate IDs in the request.
+ * <p>
+ * A response is reused until its {@code nextUpdate} time or until it is older than the maximum staleness counted
+ * from {@code thisUpdate}, whichever comes first. Requests that carry a nonce are never answered from the cache,
+ * because the response must echo the nonce of the request; configure the validator to disable nonces for the
+ * responders whose responses should be cached.
+ */
+public class OcspResponseCache implements MeterBinder {
+
+    private final Map<String, Entry> entries;
+    private final Duration maxStaleness;
+    private final Clock clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    public OcspResponseCache(int maxEntries, Duration maxStaleness, Clock clock) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.maxStaleness = maxStaleness;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached response to the request or fetches and caches a fresh one.
+     *
+     * @param responderUrl   OCSP responder URL
+     * @param encodedRequest DER-encoded OCSP request
+     * @param fetcher        fetches the DER-encoded response from the responder
+     * @return DER-encoded OCSP response
+     */
+    public <E extends Exception> byte[] getOrFetch(String responderUrl, byte[] encodedRequest, ResponseFetcher<E> fetcher) throws E {
+        final String key = cacheKey(responderUrl, encodedRequest);
+        if (key == null) {
+            bypasses.increment();
+            return fetcher.fetch();
+        }
+
+        final Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null && clock.instant().isBefore(cached.expiry)) {
+            hits.increment();
+            return cached.encodedResponse;
+        }
+
+        misses.increment();
+        final byte[] encodedResponse = fetcher.fetch();
+        final Instant expiry = cacheExpiry(encodedResponse);
+        if (expiry != null && clock.instant().isBefore(expiry)) {
+            synchronized (entries) {
+                entries.put(key, new Entry(encodedResponse, expiry));
+            }
+        }
+        return encodedResponse;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.ocsp.cache.size", this, OcspResponseCache::size)
+                .description("Number of cached OCSP responses")
+                .register(registry);
+        bindRequestCounter(registry, hits, "hit");
+        bindRequestCounter(registry, misses, "miss");
+        bindRequestCounter(registry, bypasses, "bypass");
+    }
+
+    private static void bindRequestCounter(MeterRegistry registry, LongAdder counter, String result) {
+        FunctionCounter.builder("webeid.ocsp.cache.requests", counter, LongAdder::sum)
+                .tag("result", result)
+                .description("OCSP requests by cache lookup result")
+                .register(registry);
+    }
+
+    private static String cacheKey(String responderUrl, byte[] encodedRequest) {
+        try {
+            final OCSPReq request = new OCSPReq(encodedRequest);
+            if (request.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce) != null || request.isSigned()) {
+                return null;
+            }
+            final StringBuilder key = new StringBuilder(responderUrl);
+            for (Req singleRequest : request.getRequestList()) {
+                key.append(' ').append(Base64.getEncoder().encodeToString(
+                        singleRequest.getCertID().toASN1Primitive().getEncoded()));
+            }
+            return key.toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Instant cacheExpiry(byte[] encodedResponse) {
+        try {
+            final OCSPResp response = new OCSPResp(encodedResponse);
+            if (response.getStatus() != OCSPResp.SUCCESSFUL || !(response.getResponseObject() instanceof BasicOCSPResp basicResponse)) {
+                return null;
+            }
+            Instant expiry = null;
+            for (SingleResp singleResponse : basicResponse.getResponses()) {
+                Instant singleExpiry = singleResponse.getThisUpdate().toInstant().plus(maxStaleness);
+                if (singleResponse.getNextUpdate() != null && singleResponse.getNextUpdate().toInstant().isBefore(singleExpiry)) {
+                    singleExpiry = singleResponse.getNextUpdate().toInstant();
+                }
+                if (expiry == null || singleExpiry.isBefore(expiry)) {
+                    expiry = singleExpiry;
+                }
+            }
+            return expiry;
+        } catch (IOException | OCSPException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseFetcher<E extends Exception> {
+        byte[] fetch() throws E;
+    }
+
+    private record Entry(byte[] encodedResponse, Instant expiry) {
+    }
+}
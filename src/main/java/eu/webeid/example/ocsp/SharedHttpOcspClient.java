@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.ocsp;
+
+import eu.webeid.example.http.SharedHttpClient;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * OCSP client for the authentication token validator that sends requests through {@link SharedHttpClient}.
+ */
+public class SharedHttpOcspClient implements OcspClient {
+
+    private static final String CLIENT_NAME = "auth-ocsp";
+    private static final String OCSP_REQUEST_TYPE = "application/ocsp-request";
+    private static final String OCSP_RESPONSE_TYPE = "application/ocsp-response";
+
+    private final SharedHttpClient httpClient;
+
+    public SharedHttpOcspClient(SharedHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public OCSPResp request(URI url, OCSPReq request) throws IOException {
+        final HttpResponse<byte[]> response = httpClient.send(CLIENT_NAME, HttpRequest.newBuilder(url)
+                .header("Content-Type", OCSP_REQUEST_TYPE)
+                .header("Accept", OCSP_RESPONSE_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request.getEncoded())));
+        if (response.statusCode() != 200) {
+            throw new IOException("OCSP request was not successful, response: " + response);
+        }
+        final String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (!contentType.startsWith(OCSP_RESPONSE_TYPE)) {
+            throw new IOException("OCSP response content type is not " + OCSP_RESPONSE_TYPE);
+        }
+        return new OCSPResp(response.body());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.ocsp;
+
+import eu.webeid.example.tracing.Tracing;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * OCSP client for the authentication token validator that traces the requests of the delegate as
+ * {@code webeid.ocsp} client spans. The span is current while the delegate runs, so the shared HTTP client
+ * propagates its trace context to the responder.
+ */
+public class TracingOcspClient implements OcspClient {
+
+    private final OcspClient delegate;
+    private final Tracer tracer;
+
+    public TracingOcspClient(OcspClient delegate, Tracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public OCSPResp request(URI url, OCSPReq request) throws IOException {
+        final Span span = tracer.spanBuilder("webeid.ocsp")
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("server.address", url.getHost() != null ? url.getHost() : "unknown")
+                .startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            final OCSPResp response = delegate.request(url, request);
+            span.setAttribute("webeid.ocsp.response_status", response.getStatus());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            Tracing.recordFailure(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
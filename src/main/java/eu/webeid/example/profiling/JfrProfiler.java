@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes time-boxed JDK Flight Recorder recordings on demand.
+ * <p>
+ * Only one recording runs at a time, further requests are rejected with {@link ProfilingInProgressException}
+ * rather than queued. The recording duration is capped and the recording is limited to the maximum size, beyond
+ * which JFR drops its oldest data, so that a request cannot fill the disk. While the recording runs, the CPU and
+ * allocation samples are also consumed through the JFR event streaming API and attributed to the innermost frame
+ * of the application code, the resulting summary is available from {@link #getSummary()} during and after the
+ * recording.
+ */
+public class JfrProfiler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JfrProfiler.class);
+
+    static final String APPLICATION_PACKAGE = "eu.webeid.example.";
+    private static final List<String> SETTINGS = List.of("default", "profile");
+    private static final int TOP_SITE_COUNT = 10;
+
+    private final Path directory;
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private volatile SiteSampler sampler;
+
+    public JfrProfiler(Path directory, Duration maxDuration, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxDuration = maxDuration;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Records for the given duration and returns the recording file, which the caller must delete.
+     *
+     * @param duration recording duration, capped at the maximum duration
+     * @param settings name of the JFR settings, {@code default} or {@code profile}
+     * @return recording file
+     * @throws ProfilingInProgressException when another recording is running
+     * @throws IllegalArgumentException     when the settings are not supported
+     */
+    public Path record(Duration duration, String settings) throws IOException, InterruptedException {
+        if (!SETTINGS.contains(settings)) {
+            throw new IllegalArgumentException("Unsupported JFR settings '" + settings + "', supported settings are " + SETTINGS);
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Recording duration must be positive");
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("JDK Flight Recorder is not available");
+        }
+        if (!recording.compareAndSet(false, true)) {
+            throw new ProfilingInProgressException("A recording is already in progress");
+        }
+        try {
+            final Duration recordingDuration = duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+            final Configuration configuration = configuration(settings);
+            Files.createDirectories(directory);
+            final Path file = Files.createTempFile(directory, "webeid-", ".jfr");
+            final SiteSampler currentSampler = new SiteSampler(settings, recordingDuration);
+            sampler = currentSampler;
+            LOG.info("Starting JFR recording with '{}' settings for {}", settings, recordingDuration);
+            try (Recording jfrRecording = new Recording(configuration);
+                 RecordingStream stream = new RecordingStream(configuration)) {
+                jfrRecording.setName("webeid-on-demand");
+                jfrRecording.setToDisk(true);
+                jfrRecording.setMaxSize(maxSizeBytes);
+                stream.onEvent("jdk.ExecutionSample", currentSampler::onExecutionSample);
+                stream.onEvent("jdk.ObjectAllocationSample", currentSampler::onAllocationSample);
+                stream.startAsync();
+                jfrRecording.start();
+                try {
+                    Thread.sleep(recordingDuration.toMillis());
+                } finally {
+                    jfrRecording.stop();
+                    jfrRecording.dump(file);
+                    currentSampler.finish();
+                }
+            } catch (IOException | RuntimeException | InterruptedException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            LOG.info("Finished JFR recording of {} bytes", Files.size(file));
+            return file;
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    /**
+     * Returns the summary of the running or the last recording.
+     */
+    public Summary getSummary() {
+        final SiteSampler currentSampler = sampler;
+        return currentSampler != null ? currentSampler.summary() : null;
+    }
+
+    private static Configuration configuration(String settings) throws IOException {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (ParseException e) {
+            throw new IOException("JFR settings '" + settings + "' cannot be parsed", e);
+        }
+    }
+
+    /**
+     * Aggregates the samples of one recording by application site.
+     */
+    private static final class SiteSampler {
+
+        private final String settings;
+        private final Duration duration;
+        private final Instant started = Instant.now();
+        private final Map<String, LongAdder> cpuSamples = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> allocatedBytes = new ConcurrentHashMap<>();
+        private volatile boolean running = true;
+
+        SiteSampler(String settings, Duration duration) {
+            this.settings = settings;
+            this.duration = duration;
+        }
+
+        void onExecutionSample(RecordedEvent event) {
+            final String site = applicationSite(event.getStackTrace());
+            if (site != null) {
+                cpuSamples.computeIfAbsent(site, key -> new LongAdder()).increment();
+            }
+        }
+
+        void onAllocationSample(RecordedEvent event) {
+            final String site = applicationSite(event.getStackTrace());
+            if (site != null) {
+                // The weight is the number of bytes that the sample stands for.
+                allocatedBytes.computeIfAbsent(site, key -> new LongAdder()).add(event.getLong("weight"));
+            }
+        }
+
+        void finish() {
+            running = false;
+        }
+
+        Summary summary() {
+            return new Summary(running, settings, started, duration, top(cpuSamples), top(allocatedBytes));
+        }
+
+        private static List<Site> top(Map<String, LongAdder> sites) {
+            return sites.entrySet().stream()
+                    .map(entry -> new Site(entry.getKey(), entry.getValue().sum()))
+                    .sorted(Comparator.comparingLong(Site::value).reversed())
+                    .limit(TOP_SITE_COUNT)
+                    .toList();
+        }
+
+        private static String applicationSite(RecordedStackTrace stackTrace) {
+            if (stackTrace == null) {
+                return null;
+            }
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                final String type = frame.getMethod().getType().getName();
+                if (type.startsWith(APPLICATION_PACKAGE)) {
+                    return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Top application sites of a recording: CPU sites by the number of execution samples and allocation sites by
+     * the estimated number of allocated bytes.
+     */
+    public record Summary(boolean running, String settings, Instant started, Duration duration,
+                          List<Site> topCpuSites, List<Site> topAllocationSites) {
+    }
+
+    public record Site(String site, long value) {
+    }
+}
@@ -22,13 +22,24 @@
 
 package eu.webeid.example.security;
 
+import eu.webeid.example.jfr.ChallengeNonceStoreEvent;
+import eu.webeid.example.metrics.Instrumentation;
+import eu.webeid.example.metrics.TaggedTimers;
+import eu.webeid.example.security.challenge.SealedChallengeNonceVerifier;
 import eu.webeid.example.security.dto.AuthTokenDTO;
+import eu.webeid.example.tracing.Tracing;
 import eu.webeid.security.authtoken.WebEidAuthToken;
 import eu.webeid.security.challenge.ChallengeNonceStore;
 import eu.webeid.security.exceptions.AuthTokenException;
 import eu.webeid.security.validator.AuthTokenValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.core.Authentication;
@@ -45,6 +56,10 @@ import java.util.List;
 
 /**
  * Parses JWT from token string inside AuthTokenDTO and attempts authentication.
+ * <p>
+ * Authentications are timed in the {@code webeid.authentication} timer, tagged with the outcome and, for failures,
+ * with the name of the {@link AuthTokenException} subclass that describes the reason. Token validation is traced as
+ * a {@code webeid.token.validation} span.
  */
 @Component
 public class AuthTokenDTOAuthenticationProvider implements AuthenticationProvider {
@@ -55,10 +70,24 @@ public class AuthTokenDTOAuthenticationProvider implements AuthenticationProvide
 
     private final AuthTokenValidator tokenValidator;
     private final ChallengeNonceStore challengeNonceStore;
+    private final SealedChallengeNonceVerifier sealedChallengeNonceVerifier;
+    private final CertificateSubjectCache certificateSubjectCache;
+    private final TaggedTimers authenticationTimers;
+    private final Tracer tracer;
 
-    public AuthTokenDTOAuthenticationProvider(AuthTokenValidator tokenValidator, ChallengeNonceStore challengeNonceStore) {
+    public AuthTokenDTOAuthenticationProvider(AuthTokenValidator tokenValidator, ChallengeNonceStore challengeNonceStore,
+                                              ObjectProvider<SealedChallengeNonceVerifier> sealedChallengeNonceVerifier,
+                                              CertificateSubjectCache certificateSubjectCache,
+                                              MeterRegistry meterRegistry,
+                                              ObjectProvider<OpenTelemetry> openTelemetry) {
         this.tokenValidator = tokenValidator;
         this.challengeNonceStore = challengeNonceStore;
+        // Available only in stateless challenge mode.
+        this.sealedChallengeNonceVerifier = sealedChallengeNonceVerifier.getIfAvailable();
+        this.certificateSubjectCache = certificateSubjectCache;
+        this.authenticationTimers = new TaggedTimers(meterRegistry, "webeid.authentication",
+                "Web eID authentication token validation and authentication", "outcome", "reason");
+        this.tracer = Tracing.tracer(openTelemetry);
     }
 
     @Override
@@ -66,18 +95,65 @@ public class AuthTokenDTOAuthenticationProvider implements AuthenticationProvide
         LOG.info("authenticate(): {}", auth);
 
         final PreAuthenticatedAuthenticationToken authentication = (PreAuthenticatedAuthenticationToken) auth;
-        final WebEidAuthToken authToken = ((AuthTokenDTO) authentication.getCredentials()).getToken();
+        final AuthTokenDTO authTokenDTO = (AuthTokenDTO) authentication.getCredentials();
+        final WebEidAuthToken authToken = authTokenDTO.getToken();
 
         final List<GrantedAuthority> authorities = Collections.singletonList(USER_ROLE);
 
         try {
-            final String nonce = challengeNonceStore.getAndRemove().getBase64EncodedNonce();
-            final X509Certificate userCertificate = tokenValidator.validate(authToken, nonce);
-            return WebEidAuthentication.fromCertificate(userCertificate, authorities);
+            return Instrumentation.call(() -> {
+                final String nonce = consumeChallengeNonce(authTokenDTO);
+                final X509Certificate userCertificate = validate(authToken, nonce);
+                return WebEidAuthentication.fromSubject(certificateSubjectCache.get(userCertificate), authorities);
+            }, authenticationTimers);
         } catch (AuthTokenException e) {
             throw new AuthenticationServiceException("Web eID token validation failed", e);
         } catch (CertificateEncodingException e) {
             throw new AuthenticationServiceException("Web eID token has incorrect certificate subject fields", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Not reached, the operation throws only the exceptions above.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private X509Certificate validate(WebEidAuthToken authToken, String nonce) throws AuthTokenException {
+        final Span span = tracer.spanBuilder("webeid.token.validation").startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return tokenValidator.validate(authToken, nonce);
+        } catch (AuthTokenException | RuntimeException e) {
+            Tracing.recordFailure(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private String consumeChallengeNonce(AuthTokenDTO authTokenDTO) throws AuthTokenException {
+        final ChallengeNonceStoreEvent event = new ChallengeNonceStoreEvent();
+        event.begin();
+        String nonce = null;
+        Exception failure = null;
+        try {
+            nonce = sealedChallengeNonceVerifier != null
+                    ? sealedChallengeNonceVerifier.verifyAndConsume(authTokenDTO.getNonce())
+                    : challengeNonceStore.getAndRemove().getBase64EncodedNonce();
+            return nonce;
+        } catch (AuthTokenException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setOperation(sealedChallengeNonceVerifier != null ? "verifyAndConsume" : "getAndRemove");
+                event.setStore(sealedChallengeNonceVerifier != null
+                        ? sealedChallengeNonceVerifier.getClass().getSimpleName()
+                        : challengeNonceStore.getClass().getSimpleName());
+                event.setNonceSize(nonce != null ? nonce.length() : 0);
+                event.setOutcome(failure);
+                event.commit();
+            }
         }
     }
 
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import eu.webeid.example.security.dto.AuthTokenDTO;
+import eu.webeid.security.authtoken.WebEidAuthToken;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Reads {@link AuthTokenDTO} from the login request body with a streaming JSON parser.
+ * <p>
+ * The body is parsed directly from the UTF-8 byte stream without a character reader or an intermediate JSON tree.
+ * The body size, nesting depth and the length of every field are limited, the token fields are checked for the
+ * expected Base64 and algorithm values, and a request that violates the limits is rejected as soon as the
+ * violation is read, before any cryptographic operation runs. Unknown fields are skipped, as in the data binding
+ * of {@link WebEidAuthToken}.
+ */
+public class AuthTokenDTOReader {
+
+    public static final int MAX_BODY_BYTES = 16 * 1024;
+
+    static final int MAX_CERTIFICATE_LENGTH = 8 * 1024;
+    static final int MAX_SIGNATURE_LENGTH = 1024;
+    static final int MAX_FIELD_LENGTH = 256;
+    private static final int MAX_NESTING_DEPTH = 4;
+    private static final Set<String> SUPPORTED_ALGORITHMS = Set.of(
+            "ES256", "ES384", "ES512", "PS256", "PS384", "PS512", "RS256", "RS384", "RS512");
+
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .streamReadConstraints(StreamReadConstraints.builder()
+                    .maxNestingDepth(MAX_NESTING_DEPTH)
+                    .maxStringLength(MAX_CERTIFICATE_LENGTH)
+                    .maxNumberLength(32)
+                    .build())
+            .build();
+
+    /**
+     * @param body          request body
+     * @param contentLength value of the {@code Content-Length} header, or -1 if it is not known
+     * @throws AuthenticationServiceException if the body is too large or the auth token is malformed
+     */
+    public AuthTokenDTO read(InputStream body, long contentLength) throws IOException {
+        if (contentLength > MAX_BODY_BYTES) {
+            throw new AuthenticationServiceException("Auth token request body is too large: " + contentLength + " bytes");
+        }
+        try (JsonParser parser = jsonFactory.createParser(new LimitedInputStream(body, MAX_BODY_BYTES))) {
+            final AuthTokenDTO authTokenDTO = readAuthTokenDTO(parser);
+            if (parser.nextToken() != null) {
+                throw malformed("unexpected content after the auth token");
+            }
+            return authTokenDTO;
+        } catch (StreamConstraintsException e) {
+            throw new AuthenticationServiceException("Auth token exceeds field limits", e);
+        } catch (BodyTooLargeException e) {
+            throw new AuthenticationServiceException("Auth token request body is larger than " + MAX_BODY_BYTES + " bytes", e);
+        } catch (JsonProcessingException e) {
+            throw new AuthenticationServiceException("Auth token is not valid JSON", e);
+        }
+    }
+
+    private AuthTokenDTO readAuthTokenDTO(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        final AuthTokenDTO authTokenDTO = new AuthTokenDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            switch (fieldName) {
+                case "auth-token" -> authTokenDTO.setToken(value == JsonToken.VALUE_NULL ? null : readAuthToken(parser));
+                case "nonce" -> authTokenDTO.setNonce(readString(parser, fieldName, MAX_FIELD_LENGTH));
+                default -> parser.skipChildren();
+            }
+        }
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+        if (authTokenDTO.getToken() == null) {
+            throw malformed("auth-token is missing");
+        }
+        return authTokenDTO;
+    }
+
+    private WebEidAuthToken readAuthToken(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        final WebEidAuthToken token = new WebEidAuthToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "unverifiedCertificate" -> token.setUnverifiedCertificate(readBase64(parser, fieldName, MAX_CERTIFICATE_LENGTH));
+                case "signature" -> token.setSignature(readBase64(parser, fieldName, MAX_SIGNATURE_LENGTH));
+                case "algorithm" -> token.setAlgorithm(readAlgorithm(parser));
+                case "format" -> token.setFormat(readString(parser, fieldName, MAX_FIELD_LENGTH));
+                case "appVersion" -> token.setAppVersion(readString(parser, fieldName, MAX_FIELD_LENGTH));
+                default -> parser.skipChildren();
+            }
+        }
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+        if (token.getUnverifiedCertificate() == null || token.getSignature() == null
+                || token.getAlgorithm() == null || token.getFormat() == null) {
+            throw malformed("unverifiedCertificate, signature, algorithm and format are required");
+        }
+        return token;
+    }
+
+    private static String readString(JsonParser parser, String fieldName, int maxLength) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser.currentToken(), JsonToken.VALUE_STRING);
+        if (parser.getTextLength() > maxLength) {
+            throw malformed(fieldName + " is longer than " + maxLength + " characters");
+        }
+        return parser.getText();
+    }
+
+    private static String readBase64(JsonParser parser, String fieldName, int maxLength) throws IOException {
+        final String value = readString(parser, fieldName, maxLength);
+        if (value != null && !isBase64(value)) {
+            throw malformed(fieldName + " is not valid Base64");
+        }
+        return value;
+    }
+
+    private static String readAlgorithm(JsonParser parser) throws IOException {
+        final String algorithm = readString(parser, "algorithm", MAX_FIELD_LENGTH);
+        if (algorithm != null && !SUPPORTED_ALGORITHMS.contains(algorithm)) {
+            throw malformed("algorithm " + algorithm + " is not supported");
+        }
+        return algorithm;
+    }
+
+    private static boolean isBase64(String value) {
+        final int length = value.length();
+        if (length == 0 || length % 4 != 0) {
+            return false;
+        }
+        int padding = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == '=') {
+                padding++;
+            } else if (padding > 0 || !((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/')) {
+                return false;
+            }
+        }
+        return padding <= 2;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw malformed("expected " + expected + " but found " + actual);
+        }
+    }
+
+    private static AuthenticationServiceException malformed(String reason) {
+        return new AuthenticationServiceException("Malformed auth token: " + reason);
+    }
+
+    private static final class BodyTooLargeException extends IOException {
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                consume(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                consume(n);
+            }
+            return n;
+        }
+
+        private void consume(int n) throws BodyTooLargeException {
+            remaining -= n;
+            if (remaining < 0) {
+                throw new BodyTooLargeException();
+            }
+        }
+    }
+}
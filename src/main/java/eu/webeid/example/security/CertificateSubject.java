@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Optional;
+
+/**
+ * Subject fields of a user certificate, parsed from the subject DN in one pass.
+ * <p>
+ * The field values are the same as returned by {@link eu.webeid.security.certificate.CertificateData}, which parses
+ * the DN again for every field. Use {@link CertificateSubjectCache} to share parsed subjects between the
+ * authentication and signing steps that see the same certificate.
+ */
+public final class CertificateSubject implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String commonName;
+    private final String givenName;
+    private final String surname;
+    private final String idCode;
+    private final String country;
+
+    private CertificateSubject(String commonName, String givenName, String surname, String idCode, String country) {
+        this.commonName = commonName;
+        this.givenName = givenName;
+        this.surname = surname;
+        this.idCode = idCode;
+        this.country = country;
+    }
+
+    /**
+     * Parses the subject of the certificate.
+     */
+    public static CertificateSubject parse(X509Certificate certificate) throws CertificateEncodingException {
+        final X500Name subject;
+        try {
+            subject = X500Name.getInstance(certificate.getSubjectX500Principal().getEncoded());
+        } catch (IllegalArgumentException e) {
+            throw new CertificateEncodingException("Certificate subject cannot be parsed", e);
+        }
+        String commonName = null;
+        String givenName = null;
+        String surname = null;
+        String idCode = null;
+        String country = null;
+        for (RDN rdn : subject.getRDNs()) {
+            final AttributeTypeAndValue attribute = rdn.getFirst();
+            if (attribute == null) {
+                continue;
+            }
+            final ASN1ObjectIdentifier type = attribute.getType();
+            // Like CertificateData, use the first occurrence of each field.
+            if (commonName == null && BCStyle.CN.equals(type)) {
+                commonName = IETFUtils.valueToString(attribute.getValue());
+            } else if (givenName == null && BCStyle.GIVENNAME.equals(type)) {
+                givenName = IETFUtils.valueToString(attribute.getValue());
+            } else if (surname == null && BCStyle.SURNAME.equals(type)) {
+                surname = IETFUtils.valueToString(attribute.getValue());
+            } else if (idCode == null && BCStyle.SERIALNUMBER.equals(type)) {
+                idCode = IETFUtils.valueToString(attribute.getValue());
+            } else if (country == null && BCStyle.C.equals(type)) {
+                country = IETFUtils.valueToString(attribute.getValue());
+            }
+        }
+        return new CertificateSubject(commonName, givenName, surname, idCode, country);
+    }
+
+    public Optional<String> getCommonName() {
+        return Optional.ofNullable(commonName);
+    }
+
+    public Optional<String> getGivenName() {
+        return Optional.ofNullable(givenName);
+    }
+
+    public Optional<String> getSurname() {
+        return Optional.ofNullable(surname);
+    }
+
+    public Optional<String> getIdCode() {
+        return Optional.ofNullable(idCode);
+    }
+
+    public Optional<String> getCountry() {
+        return Optional.ofNullable(country);
+    }
+}
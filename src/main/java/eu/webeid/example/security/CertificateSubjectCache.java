@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security;
+
+import eu.webeid.example.jfr.CertificateSubjectParseEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-striped LRU cache of parsed certificate subjects, so that the authentication and signing steps that
+ * see the same certificate share one {@link CertificateSubject}.
+ * <p>
+ * Subjects are keyed by the DER encoding of the subject DN, which is all that the parsed fields depend on. Unlike
+ * the issuer and serial number, the key cannot be claimed by a forged certificate with another subject, which
+ * matters as signing certificates are parsed before they are validated.
+ */
+public class CertificateSubjectCache implements MeterBinder {
+
+    private static final int STRIPE_COUNT = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CertificateSubjectCache(int maxEntries) {
+        if (maxEntries < STRIPE_COUNT) {
+            throw new IllegalArgumentException("Maximum entries must be at least " + STRIPE_COUNT);
+        }
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(maxEntries / STRIPE_COUNT);
+        }
+    }
+
+    /**
+     * Returns the subject of the certificate, parsing it unless a certificate with the same subject has been seen
+     * recently.
+     */
+    public CertificateSubject get(X509Certificate certificate) throws CertificateEncodingException {
+        final CertificateSubjectParseEvent event = new CertificateSubjectParseEvent();
+        event.begin();
+        final ByteBuffer key = ByteBuffer.wrap(certificate.getSubjectX500Principal().getEncoded());
+        boolean cacheHit = false;
+        Exception failure = null;
+        try {
+            final Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                final CertificateSubject cached = stripe.get(key);
+                if (cached != null) {
+                    cacheHit = true;
+                    hits.increment();
+                    return cached;
+                }
+            }
+            misses.increment();
+            final CertificateSubject subject = CertificateSubject.parse(certificate);
+            synchronized (stripe) {
+                stripe.put(key, subject);
+            }
+            return subject;
+        } catch (CertificateEncodingException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setSubjectSize(key.capacity());
+                event.setCached(cacheHit);
+                event.setOutcome(failure);
+                event.commit();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.certificate.subject.cache.size", this, CertificateSubjectCache::size)
+                .description("Number of cached certificate subjects")
+                .register(registry);
+        FunctionCounter.builder("webeid.certificate.subject.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Certificate subject cache lookups")
+                .register(registry);
+        FunctionCounter.builder("webeid.certificate.subject.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Certificate subject cache lookups")
+                .register(registry);
+    }
+
+    private Stripe stripeFor(ByteBuffer key) {
+        final int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+    }
+
+    private static final class Stripe extends LinkedHashMap<ByteBuffer, CertificateSubject> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CertificateSubject> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -22,13 +22,23 @@
 
 package eu.webeid.example.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
 import eu.webeid.example.security.ajax.AjaxAuthenticationFailureHandler;
 import eu.webeid.example.security.ajax.AjaxAuthenticationSuccessHandler;
 import eu.webeid.example.security.dto.AuthTokenDTO;
+import eu.webeid.example.tracing.Tracing;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
@@ -44,17 +54,55 @@ import org.springframework.security.web.authentication.preauth.PreAuthenticatedA
 import org.springframework.security.web.authentication.session.SessionFixationProtectionStrategy;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Processes Web eID login requests.
+ * <p>
+ * When a login executor is given, the filter runs in asynchronous mode: the request is put into asynchronous mode
+ * with the Servlet async API, the auth token is validated on the executor so that the container thread is released
+ * during the OCSP request, and the request is then dispatched back to the container. On the asynchronous dispatch,
+ * the validation result is passed through {@link AbstractAuthenticationProcessingFilter#doFilter} as in synchronous
+ * mode, so that session fixation protection and the success and failure handlers run on a container thread.
+ * <p>
+ * At most the given number of logins are validated at the same time. Further logins, and logins that do not complete
+ * within the asynchronous timeout, fail with {@link LoginUnavailableException} through the failure handler without
+ * waiting, so that container threads are never parked on the executor.
+ * <p>
+ * Authentication is traced as a {@code webeid.login} span, in asynchronous mode on the executor thread as a child
+ * of the span of the original request.
+ */
 public class WebEidAjaxLoginProcessingFilter extends AbstractAuthenticationProcessingFilter {
     private static final Logger LOG = LoggerFactory.getLogger(WebEidAjaxLoginProcessingFilter.class);
-    private final ObjectReader OBJECT_READER = new ObjectMapper().readerFor(AuthTokenDTO.class);
+    private static final String ASYNC_RESULT_ATTRIBUTE = WebEidAjaxLoginProcessingFilter.class.getName() + ".ASYNC_RESULT";
+    private final AuthTokenDTOReader AUTH_TOKEN_READER = new AuthTokenDTOReader();
     private final SecurityContextRepository securityContextRepository;
+    private final Executor loginExecutor;
+    private final Semaphore loginPermits;
+    private final Duration asyncTimeout;
+    private Tracer tracer = Tracing.tracer(OpenTelemetry.noop());
 
     public WebEidAjaxLoginProcessingFilter(
             String defaultFilterProcessesUrl,
             AuthenticationManager authenticationManager
+    ) {
+        this(defaultFilterProcessesUrl, authenticationManager, null, 0, null);
+    }
+
+    public WebEidAjaxLoginProcessingFilter(
+            String defaultFilterProcessesUrl,
+            AuthenticationManager authenticationManager,
+            Executor loginExecutor,
+            int concurrencyLimit,
+            Duration asyncTimeout
     ) {
         super(defaultFilterProcessesUrl);
         this.setAuthenticationManager(authenticationManager);
@@ -62,11 +110,51 @@ public class WebEidAjaxLoginProcessingFilter extends AbstractAuthenticationProce
         this.setAuthenticationFailureHandler(new AjaxAuthenticationFailureHandler());
         setSessionAuthenticationStrategy(new SessionFixationProtectionStrategy());
         this.securityContextRepository = new HttpSessionSecurityContextRepository();
+        this.loginExecutor = loginExecutor;
+        this.loginPermits = new Semaphore(concurrencyLimit);
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (loginExecutor != null
+                && request.getDispatcherType() == DispatcherType.REQUEST
+                && request.isAsyncSupported()
+                && requiresAuthentication((HttpServletRequest) request, (HttpServletResponse) response)) {
+            startAsyncAuthentication((HttpServletRequest) request, (HttpServletResponse) response);
+            return;
+        }
+        super.doFilter(request, response, chain);
     }
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException, IOException {
+        final Object asyncResult = request.getAttribute(ASYNC_RESULT_ATTRIBUTE);
+        if (asyncResult != null) {
+            request.removeAttribute(ASYNC_RESULT_ATTRIBUTE);
+            return asyncAuthenticationResult(asyncResult);
+        }
+        return authenticate(request);
+    }
+
+    private Authentication authenticate(HttpServletRequest request) throws AuthenticationException, IOException {
+        final Span span = tracer.spanBuilder("webeid.login").startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return authenticateInSpan(request);
+        } catch (AuthenticationException | IOException | RuntimeException e) {
+            Tracing.recordFailure(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private Authentication authenticateInSpan(HttpServletRequest request) throws AuthenticationException, IOException {
         if (!HttpMethod.POST.name().equals(request.getMethod())) {
             LOG.warn("HttpMethod not supported: {}", request.getMethod());
             throw new AuthenticationServiceException("HttpMethod not supported: " + request.getMethod());
@@ -78,13 +166,119 @@ public class WebEidAjaxLoginProcessingFilter extends AbstractAuthenticationProce
         }
 
         LOG.info("attemptAuthentication(): Reading request body");
-        final AuthTokenDTO authTokenDTO = OBJECT_READER.readValue(request.getReader());
+        final AuthTokenDTO authTokenDTO = AUTH_TOKEN_READER.read(request.getInputStream(), request.getContentLengthLong());
         LOG.info("attemptAuthentication(): Creating token");
         final PreAuthenticatedAuthenticationToken token = new PreAuthenticatedAuthenticationToken(null, authTokenDTO);
         LOG.info("attemptAuthentication(): Calling authentication manager");
         return getAuthenticationManager().authenticate(token);
     }
 
+    private void startAsyncAuthentication(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        if (!loginPermits.tryAcquire()) {
+            unsuccessfulAuthentication(request, response, new LoginUnavailableException("Too many logins in progress"));
+            return;
+        }
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(asyncTimeout.toMillis());
+        // Set by whichever of the validation and the timeout finishes the request first.
+        final AtomicBoolean finished = new AtomicBoolean();
+        asyncContext.addListener(new LoginAsyncListener(request, response, finished));
+        try {
+            // The trace context of the request is carried over to the executor thread.
+            loginExecutor.execute(Context.current().wrap(() -> {
+                try {
+                    validateAndDispatch(request, response, asyncContext, finished);
+                } finally {
+                    loginPermits.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            loginPermits.release();
+            if (finished.compareAndSet(false, true)) {
+                unsuccessfulAuthentication(request, response, new LoginUnavailableException("Login executor rejected the request"));
+                asyncContext.complete();
+            }
+        }
+    }
+
+    private void validateAndDispatch(HttpServletRequest request, HttpServletResponse response, AsyncContext asyncContext, AtomicBoolean finished) {
+        Object result;
+        // The challenge nonce store accesses the session through the request context.
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        try {
+            result = authenticate(request);
+        } catch (AuthenticationException | IOException | RuntimeException e) {
+            result = e;
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        if (!finished.compareAndSet(false, true)) {
+            // The timeout has already produced the response and the request may have been recycled.
+            LOG.warn("Login validation completed after the asynchronous request had timed out");
+            return;
+        }
+        request.setAttribute(ASYNC_RESULT_ATTRIBUTE, result);
+        asyncContext.dispatch();
+    }
+
+    private static Authentication asyncAuthenticationResult(Object asyncResult) throws IOException {
+        if (asyncResult instanceof Authentication authentication) {
+            return authentication;
+        }
+        if (asyncResult instanceof IOException e) {
+            throw e;
+        }
+        // AuthenticationException is a RuntimeException.
+        throw (RuntimeException) asyncResult;
+    }
+
+    /**
+     * Fails the login through the failure handler when the container times out or aborts the asynchronous request
+     * before the validation has completed.
+     */
+    private final class LoginAsyncListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final AtomicBoolean finished;
+
+        private LoginAsyncListener(HttpServletRequest request, HttpServletResponse response, AtomicBoolean finished) {
+            this.request = request;
+            this.response = response;
+            this.finished = finished;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            fail(event, "Login validation timed out");
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            fail(event, "Login request failed: " + event.getThrowable());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void fail(AsyncEvent event, String message) throws IOException {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                unsuccessfulAuthentication(request, response, new LoginUnavailableException(message));
+            } catch (ServletException e) {
+                throw new IOException(e);
+            } finally {
+                event.getAsyncContext().complete();
+            }
+        }
+    }
+
     @Override
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Authentication authResult) throws IOException, ServletException {
         super.successfulAuthentication(request, response, chain, authResult);
@@ -22,7 +22,6 @@
 
 package eu.webeid.example.security;
 
-import eu.webeid.security.certificate.CertificateData;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
@@ -31,37 +30,43 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 public class WebEidAuthentication extends PreAuthenticatedAuthenticationToken implements Authentication {
 
     private final String idCode;
+    private final CertificateSubject subject;
 
     public static Authentication fromCertificate(X509Certificate userCertificate, List<GrantedAuthority> authorities) throws CertificateEncodingException {
-        final String principalName = getPrincipalNameFromCertificate(userCertificate);
-        final String idCode = CertificateData.getSubjectIdCode(userCertificate)
+        return fromSubject(CertificateSubject.parse(userCertificate), authorities);
+    }
+
+    public static Authentication fromSubject(CertificateSubject subject, List<GrantedAuthority> authorities) throws CertificateEncodingException {
+        final String principalName = getPrincipalName(subject);
+        final String idCode = subject.getIdCode()
                 .orElseThrow(() -> new CertificateEncodingException("Certificate does not contain subject ID code"));
-        return new WebEidAuthentication(principalName, idCode, authorities);
+        return new WebEidAuthentication(principalName, idCode, subject, authorities);
     }
 
     public String getIdCode() {
         return idCode;
     }
 
-    private WebEidAuthentication(String principalName, String idCode, List<GrantedAuthority> authorities) {
+    public CertificateSubject getSubject() {
+        return subject;
+    }
+
+    private WebEidAuthentication(String principalName, String idCode, CertificateSubject subject, List<GrantedAuthority> authorities) {
         super(principalName, idCode, authorities);
         this.idCode = idCode;
+        this.subject = subject;
     }
 
-    private static String getPrincipalNameFromCertificate(X509Certificate userCertificate) throws CertificateEncodingException {
-        final Optional<String> givenName = CertificateData.getSubjectGivenName(userCertificate);
-        final Optional<String> surname = CertificateData.getSubjectSurname(userCertificate);
-
-        if (givenName.isPresent() && surname.isPresent()) {
-            return givenName.get() + ' ' + surname.get();
+    private static String getPrincipalName(CertificateSubject subject) throws CertificateEncodingException {
+        if (subject.getGivenName().isPresent() && subject.getSurname().isPresent()) {
+            return subject.getGivenName().get() + ' ' + subject.getSurname().get();
         } else {
             // Organization certificates do not have given name and surname fields.
-            return CertificateData.getSubjectCN(userCertificate)
+            return subject.getCommonName()
                     .orElseThrow(() -> new CertificateEncodingException("Certificate does not contain subject CN"));
         }
     }
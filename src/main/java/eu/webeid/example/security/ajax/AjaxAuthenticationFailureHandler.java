@@ -22,6 +22,7 @@
 
 package eu.webeid.example.security.ajax;
 
+import eu.webeid.example.security.LoginUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.AuthenticationException;
@@ -41,15 +42,19 @@ public class AjaxAuthenticationFailureHandler extends SimpleUrlAuthenticationFai
     public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
                                         AuthenticationException exception) throws IOException {
         final String message = AUTHENTICATION_FAILED + exception.getMessage();
+        // The client may retry a login that failed because the node was overloaded.
+        final int status = exception instanceof LoginUnavailableException
+                ? HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                : HttpServletResponse.SC_UNAUTHORIZED;
         LOG.warn("onAuthenticationFailure(): exception {}, returning {} {}",
                 exception,
-                HttpServletResponse.SC_UNAUTHORIZED,
+                status,
                 message);
         final HttpSession session = request.getSession(false);
         if (session != null) {
             LOG.info("Invalidating session");
             session.invalidate();
         }
-        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+        response.sendError(status, message);
     }
 }
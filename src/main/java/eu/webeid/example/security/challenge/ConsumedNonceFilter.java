@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers consumed challenge nonces until they expire, using one Bloom filter per nonce expiry time bucket.
+ * <p>
+ * Buckets are as wide as the nonce lifetime and are dropped as soon as all nonces in them have expired, so memory
+ * use stays constant regardless of the login rate. A false positive makes a fresh nonce look consumed, which fails
+ * that login attempt and the user has to retry; the false positive probability is chosen to make this negligible.
+ * <p>
+ * Note that the filter is local to the current node.
+ */
+public final class ConsumedNonceFilter {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 1e-6;
+
+    private final long bucketWidthSeconds;
+    private final int expectedNoncesPerBucket;
+    private final Clock clock;
+    private final ConcurrentMap<Long, BloomFilter> buckets = new ConcurrentHashMap<>();
+
+    public ConsumedNonceFilter(Duration nonceTtl, int expectedNoncesPerBucket, Clock clock) {
+        this.bucketWidthSeconds = Math.max(1, nonceTtl.toSeconds());
+        this.expectedNoncesPerBucket = expectedNoncesPerBucket;
+        this.clock = clock;
+    }
+
+    /**
+     * Marks the nonce as consumed.
+     *
+     * @param fingerprint at least 16 uniformly distributed bytes that identify the nonce
+     * @param expiry      nonce expiry time
+     * @return {@code true} if the nonce was not consumed before, {@code false} if it was (or is a false positive)
+     */
+    public boolean markConsumed(byte[] fingerprint, Instant expiry) {
+        final long bucket = expiry.getEpochSecond() / bucketWidthSeconds;
+        dropExpiredBuckets();
+        return buckets.computeIfAbsent(bucket, b -> new BloomFilter(expectedNoncesPerBucket, FALSE_POSITIVE_PROBABILITY))
+                .add(fingerprint);
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    private void dropExpiredBuckets() {
+        final long currentBucket = clock.instant().getEpochSecond() / bucketWidthSeconds;
+        buckets.keySet().removeIf(bucket -> bucket < currentBucket);
+    }
+
+    private static final class BloomFilter {
+        private final long[] bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double falsePositiveProbability) {
+            final double ln2 = Math.log(2);
+            final long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (ln2 * ln2));
+            this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+            this.bits = new long[(bitCount + 63) / 64];
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        }
+
+        synchronized boolean add(byte[] fingerprint) {
+            // The fingerprint is already uniformly distributed, so use double hashing on its first two longs.
+            final ByteBuffer buffer = ByteBuffer.wrap(fingerprint);
+            final long hash1 = buffer.getLong();
+            final long hash2 = buffer.getLong() | 1;
+            boolean added = false;
+            for (int i = 0; i < hashCount; i++) {
+                final int bit = (int) Math.floorMod(hash1 + i * hash2, (long) bitCount);
+                final long mask = 1L << bit;
+                if ((bits[bit >>> 6] & mask) == 0) {
+                    bits[bit >>> 6] |= mask;
+                    added = true;
+                }
+            }
+            return added;
+        }
+    }
+}
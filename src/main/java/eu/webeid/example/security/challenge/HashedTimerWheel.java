@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal hashed timer wheel for coarse-grained expiry tasks.
+ * <p>
+ * Tasks are hashed into buckets by their deadline tick and a single daemon thread visits one bucket per tick,
+ * running the tasks whose deadline has passed. Scheduling is lock-free and O(1), which makes the wheel suitable
+ * for evicting large numbers of short-lived entries where the exact moment of eviction is not important.
+ */
+final class HashedTimerWheel implements AutoCloseable {
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final Queue<Timeout>[] buckets;
+    private final ScheduledExecutorService ticker;
+    private volatile long lastProcessedTick;
+
+    @SuppressWarnings("unchecked")
+    HashedTimerWheel(Duration tickDuration, int wheelSize, String threadName, Clock clock) {
+        if (tickDuration.toMillis() <= 0) {
+            throw new IllegalArgumentException("Tick duration must be at least one millisecond");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("Wheel size must be positive");
+        }
+        this.clock = clock;
+        this.tickMillis = tickDuration.toMillis();
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastProcessedTick = currentTick();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules the task to run at the first tick after the given deadline.
+     *
+     * @param deadlineEpochMillis deadline in milliseconds since the epoch
+     * @param task                task to run, must be fast and must not throw
+     */
+    void schedule(long deadlineEpochMillis, Runnable task) {
+        final long deadlineTick = Math.max(deadlineEpochMillis / tickMillis, lastProcessedTick + 1);
+        buckets[(int) (deadlineTick % buckets.length)].add(new Timeout(deadlineEpochMillis, task));
+    }
+
+    int pendingTimeouts() {
+        int pending = 0;
+        for (Queue<Timeout> bucket : buckets) {
+            pending += bucket.size();
+        }
+        return pending;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        final long now = clock.millis();
+        final long tick = now / tickMillis;
+        // After a long pause, visiting every bucket once is enough to catch up.
+        final long firstTick = Math.max(lastProcessedTick + 1, tick - buckets.length + 1);
+        for (long t = firstTick; t <= tick; t++) {
+            expire(buckets[(int) (t % buckets.length)], now);
+        }
+        lastProcessedTick = tick;
+    }
+
+    private static void expire(Queue<Timeout> bucket, long now) {
+        final Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            final Timeout timeout = iterator.next();
+            // Timeouts that are more than one revolution away stay in the bucket for the next round.
+            if (timeout.deadlineEpochMillis <= now) {
+                iterator.remove();
+                timeout.task.run();
+            }
+        }
+    }
+
+    private long currentTick() {
+        return clock.millis() / tickMillis;
+    }
+
+    private record Timeout(long deadlineEpochMillis, Runnable task) {
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceStore;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Challenge nonce store that keeps nonces in a bounded, lock-striped in-memory map instead of the HTTP session.
+ * <p>
+ * Each nonce is keyed by a short random opaque key that is handed to the browser in the {@value #CHALLENGE_KEY_COOKIE}
+ * cookie. Non-browser clients may send the key back in the {@value #CHALLENGE_KEY_HEADER} header instead. Expired
+ * nonces are evicted by a hashed timer wheel; when a stripe is full, its oldest nonce is evicted to make room.
+ * <p>
+ * Note that the nonces are stored in the memory of the current node, so logins must reach the node that issued the
+ * challenge.
+ */
+public class InMemoryChallengeNonceStore implements ChallengeNonceStore, AutoCloseable {
+
+    public static final String CHALLENGE_KEY_COOKIE = "__Host-WEBEID-CHALLENGE";
+    public static final String CHALLENGE_KEY_HEADER = "X-Challenge-Key";
+
+    private static final int KEY_LENGTH = 16;
+    private static final int STRIPE_COUNT = 64;
+    private static final Duration TICK_DURATION = Duration.ofSeconds(1);
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    private final Duration nonceTtl;
+    private final HashedTimerWheel expiryWheel;
+
+    public InMemoryChallengeNonceStore(Duration nonceTtl, int maxEntries) {
+        this(nonceTtl, maxEntries, TICK_DURATION, Clock.systemUTC());
+    }
+
+    InMemoryChallengeNonceStore(Duration nonceTtl, int maxEntries, Duration tickDuration, Clock clock) {
+        if (maxEntries < STRIPE_COUNT) {
+            throw new IllegalArgumentException("Maximum number of entries must be at least " + STRIPE_COUNT);
+        }
+        this.nonceTtl = nonceTtl;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(maxEntries / STRIPE_COUNT);
+        }
+        // One revolution of the wheel covers the nonce lifetime, so every timeout fires on its first visit.
+        final int wheelSize = (int) (nonceTtl.toMillis() / tickDuration.toMillis()) + 1;
+        this.expiryWheel = new HashedTimerWheel(tickDuration, wheelSize, "challenge-nonce-expiry", clock);
+    }
+
+    @Override
+    public void put(ChallengeNonce challengeNonce) {
+        final ServletRequestAttributes attributes = currentRequestAttributes();
+        final String previousKey = readKey(attributes.getRequest());
+        if (previousKey != null) {
+            remove(previousKey);
+        }
+
+        final String key = generateKey();
+        final Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, challengeNonce);
+        }
+        expiryWheel.schedule(challengeNonce.getExpirationTime().toInstant().toEpochMilli(),
+                () -> evict(key, challengeNonce));
+
+        writeKey(attributes, key, nonceTtl);
+    }
+
+    @Override
+    public ChallengeNonce getAndRemoveImpl() {
+        final ServletRequestAttributes attributes = currentRequestAttributes();
+        final String key = readKey(attributes.getRequest());
+        if (key == null) {
+            return null;
+        }
+        writeKey(attributes, "", Duration.ZERO);
+        return remove(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void close() {
+        expiryWheel.close();
+    }
+
+    private ChallengeNonce remove(String key) {
+        final Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    private void evict(String key, ChallengeNonce challengeNonce) {
+        final Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            // The key may already have been consumed, only remove the entry that this timeout was scheduled for.
+            stripe.remove(key, challengeNonce);
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        final int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+    }
+
+    private String generateKey() {
+        final byte[] keyBytes = new byte[KEY_LENGTH];
+        secureRandom.nextBytes(keyBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(keyBytes);
+    }
+
+    private static String readKey(HttpServletRequest request) {
+        final String header = request.getHeader(CHALLENGE_KEY_HEADER);
+        if (header != null && !header.isBlank()) {
+            return header;
+        }
+        final Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (CHALLENGE_KEY_COOKIE.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void writeKey(ServletRequestAttributes attributes, String key, Duration maxAge) {
+        final HttpServletResponse response = attributes.getResponse();
+        if (response == null) {
+            throw new IllegalStateException("Current HTTP response is not available");
+        }
+        final Cookie cookie = new Cookie(CHALLENGE_KEY_COOKIE, key);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        // Browsers drop __Host- cookies without Secure, even when a proxy terminates TLS and the request looks insecure.
+        cookie.setSecure(true);
+        // The key binds the nonce to the browser like the session cookie, so it is not sent with cross-site requests.
+        cookie.setAttribute("SameSite", "Strict");
+        cookie.setMaxAge((int) maxAge.toSeconds());
+        response.addCookie(cookie);
+    }
+
+    private static ServletRequestAttributes currentRequestAttributes() {
+        return (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, ChallengeNonce> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ChallengeNonce> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static eu.webeid.security.challenge.ChallengeNonceGenerator.NONCE_LENGTH;
+
+/**
+ * Bounded ring buffer of pre-generated random nonce bytes that is kept full by background threads.
+ * <p>
+ * Each refill thread uses its own DRBG instance, so request threads neither contend on a shared
+ * {@link SecureRandom} nor wait for entropy. When the pool runs dry, nonces are generated on the calling
+ * thread and the miss is counted, so callers never block on the pool.
+ */
+public class NoncePool implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NoncePool.class);
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final BlockingQueue<byte[]> pool;
+    private final List<Thread> refillThreads = new ArrayList<>();
+    private final SecureRandom fallbackRandom = new SecureRandom();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public NoncePool(int capacity, int refillThreadCount) {
+        if (capacity <= 0 || refillThreadCount <= 0) {
+            throw new IllegalArgumentException("Nonce pool capacity and refill thread count must be positive");
+        }
+        this.pool = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < refillThreadCount; i++) {
+            final Thread thread = new Thread(this::refill, "nonce-pool-refill-" + i);
+            thread.setDaemon(true);
+            refillThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns {@value eu.webeid.security.challenge.ChallengeNonceGenerator#NONCE_LENGTH} random bytes,
+     * taken from the pool if available.
+     */
+    public byte[] take() {
+        final byte[] nonce = pool.poll();
+        if (nonce != null) {
+            hits.increment();
+            return nonce;
+        }
+        misses.increment();
+        final byte[] fallbackNonce = new byte[NONCE_LENGTH];
+        fallbackRandom.nextBytes(fallbackNonce);
+        return fallbackNonce;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+
+    public int capacity() {
+        return pool.size() + pool.remainingCapacity();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.challenge.nonce.pool.size", pool, BlockingQueue::size)
+                .description("Number of pre-generated nonces in the pool")
+                .register(registry);
+        Gauge.builder("webeid.challenge.nonce.pool.capacity", this, NoncePool::capacity)
+                .description("Nonce pool capacity")
+                .register(registry);
+        FunctionCounter.builder("webeid.challenge.nonce.pool.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Nonces requested from the pool")
+                .register(registry);
+        FunctionCounter.builder("webeid.challenge.nonce.pool.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Nonces requested from the pool")
+                .register(registry);
+    }
+
+    /**
+     * Stops the refill threads and waits for them to exit, so no nonces are generated after the pool is closed.
+     */
+    @Override
+    public void close() {
+        refillThreads.forEach(Thread::interrupt);
+        try {
+            for (Thread thread : refillThreads) {
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean isRefilling() {
+        return refillThreads.stream().anyMatch(Thread::isAlive);
+    }
+
+    private void refill() {
+        final SecureRandom random = newDrbg();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final byte[] nonce = new byte[NONCE_LENGTH];
+                random.nextBytes(nonce);
+                // Blocks while the pool is full.
+                pool.put(nonce);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            LOG.warn("DRBG is not available, using the default SecureRandom for refilling the nonce pool");
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceGenerator;
+import eu.webeid.security.challenge.ChallengeNonceStore;
+import eu.webeid.security.util.DateAndTime;
+
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Challenge nonce generator that takes the random nonce bytes from a {@link NoncePool} instead of
+ * generating them on the request thread.
+ * <p>
+ * Behaves like the generator built by {@link eu.webeid.security.challenge.ChallengeNonceGeneratorBuilder}
+ * otherwise; that generator can only be given a {@link java.security.SecureRandom}, not the nonce bytes.
+ */
+public class PooledChallengeNonceGenerator implements ChallengeNonceGenerator {
+
+    private final NoncePool noncePool;
+    private final ChallengeNonceStore challengeNonceStore;
+    private final Duration nonceTtl;
+
+    public PooledChallengeNonceGenerator(NoncePool noncePool, ChallengeNonceStore challengeNonceStore, Duration nonceTtl) {
+        this.noncePool = noncePool;
+        this.challengeNonceStore = challengeNonceStore;
+        this.nonceTtl = nonceTtl;
+    }
+
+    @Override
+    public ChallengeNonce generateAndStoreNonce() {
+        final String base64EncodedNonce = Base64.getEncoder().encodeToString(noncePool.take());
+        final ChallengeNonce challengeNonce = new ChallengeNonce(base64EncodedNonce, DateAndTime.utcNow().plus(nonceTtl));
+        challengeNonceStore.put(challengeNonce);
+        return challengeNonce;
+    }
+}
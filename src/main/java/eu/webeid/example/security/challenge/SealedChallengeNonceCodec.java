@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.exceptions.ChallengeNonceNotFoundException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static eu.webeid.security.challenge.ChallengeNonceGenerator.NONCE_LENGTH;
+
+/**
+ * Seals challenge nonces so that they carry their own expiry time and can be verified without server-side state.
+ * <p>
+ * A sealed nonce is the Base64 encoding of
+ * {@code version (1) || key epoch (4) || expiry epoch seconds (8) || random bytes (32) || HMAC-SHA256 (16)}.
+ * The HMAC key is derived from the shared master secret for each key epoch, so the effective key rotates
+ * every rotation period without configuration changes. Nonces sealed in the current or the previous epoch are
+ * accepted, hence the rotation period must not be shorter than the nonce lifetime.
+ */
+public final class SealedChallengeNonceCodec {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 1 + Integer.BYTES + Long.BYTES;
+    private static final int MAC_LENGTH = 16;
+    private static final int SEALED_LENGTH = HEADER_LENGTH + NONCE_LENGTH + MAC_LENGTH;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final byte[] KEY_DERIVATION_LABEL = "web-eid-challenge-nonce".getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKeySpec masterKey;
+    private final long rotationPeriodSeconds;
+    private final Clock clock;
+    private final ConcurrentMap<Integer, SecretKeySpec> epochKeys = new ConcurrentHashMap<>();
+
+    public SealedChallengeNonceCodec(byte[] masterSecret, Duration keyRotationPeriod, Clock clock) {
+        if (masterSecret.length < 32) {
+            throw new IllegalArgumentException("Challenge nonce seal secret must be at least 32 bytes long");
+        }
+        if (keyRotationPeriod.toSeconds() <= 0) {
+            throw new IllegalArgumentException("Key rotation period must be at least one second");
+        }
+        this.masterKey = new SecretKeySpec(masterSecret, HMAC_ALGORITHM);
+        this.rotationPeriodSeconds = keyRotationPeriod.toSeconds();
+        this.clock = clock;
+    }
+
+    /**
+     * Seals the given random bytes together with the expiry time.
+     *
+     * @param randomBytes {@value eu.webeid.security.challenge.ChallengeNonceGenerator#NONCE_LENGTH} random bytes
+     * @param expiry      nonce expiry time
+     * @return Base64-encoded sealed nonce
+     */
+    public String seal(byte[] randomBytes, Instant expiry) {
+        if (randomBytes.length != NONCE_LENGTH) {
+            throw new IllegalArgumentException("Challenge nonce must be " + NONCE_LENGTH + " bytes long");
+        }
+        final int epoch = currentEpoch();
+        final ByteBuffer sealed = ByteBuffer.allocate(SEALED_LENGTH)
+                .put(VERSION)
+                .putInt(epoch)
+                .putLong(expiry.getEpochSecond())
+                .put(randomBytes);
+        final byte[] sealedBytes = sealed.array();
+        System.arraycopy(mac(sealedBytes, epoch), 0, sealedBytes, SEALED_LENGTH - MAC_LENGTH, MAC_LENGTH);
+        return Base64.getEncoder().encodeToString(sealedBytes);
+    }
+
+    /**
+     * Verifies the seal of the given nonce.
+     *
+     * @param sealedNonce Base64-encoded sealed nonce
+     * @return the expiry time and the MAC of the nonce; the MAC uniquely identifies the nonce
+     * @throws ChallengeNonceNotFoundException when the nonce is missing, malformed or the seal is not valid
+     */
+    public OpenedNonce open(String sealedNonce) throws ChallengeNonceNotFoundException {
+        if (sealedNonce == null) {
+            throw new ChallengeNonceNotFoundException();
+        }
+        final byte[] sealedBytes;
+        try {
+            sealedBytes = Base64.getDecoder().decode(sealedNonce);
+        } catch (IllegalArgumentException e) {
+            throw new ChallengeNonceNotFoundException();
+        }
+        if (sealedBytes.length != SEALED_LENGTH || sealedBytes[0] != VERSION) {
+            throw new ChallengeNonceNotFoundException();
+        }
+
+        final ByteBuffer sealed = ByteBuffer.wrap(sealedBytes, 1, HEADER_LENGTH - 1);
+        final int epoch = sealed.getInt();
+        final long expiryEpochSecond = sealed.getLong();
+        final int currentEpoch = currentEpoch();
+        if (epoch != currentEpoch && epoch != currentEpoch - 1) {
+            throw new ChallengeNonceNotFoundException();
+        }
+
+        final byte[] expectedMac = Arrays.copyOf(mac(sealedBytes, epoch), MAC_LENGTH);
+        final byte[] actualMac = Arrays.copyOfRange(sealedBytes, SEALED_LENGTH - MAC_LENGTH, SEALED_LENGTH);
+        if (!MessageDigest.isEqual(expectedMac, actualMac)) {
+            throw new ChallengeNonceNotFoundException();
+        }
+        return new OpenedNonce(Instant.ofEpochSecond(expiryEpochSecond), actualMac);
+    }
+
+    private byte[] mac(byte[] sealedBytes, int epoch) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(epochKey(epoch));
+            mac.update(sealedBytes, 0, SEALED_LENGTH - MAC_LENGTH);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to compute challenge nonce seal", e);
+        }
+    }
+
+    private SecretKeySpec epochKey(int epoch) {
+        final SecretKeySpec key = epochKeys.computeIfAbsent(epoch, this::deriveEpochKey);
+        epochKeys.keySet().removeIf(cachedEpoch -> cachedEpoch < epoch - 1);
+        return key;
+    }
+
+    private SecretKeySpec deriveEpochKey(int epoch) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(masterKey);
+            mac.update(KEY_DERIVATION_LABEL);
+            mac.update(ByteBuffer.allocate(Integer.BYTES).putInt(epoch).array());
+            return new SecretKeySpec(mac.doFinal(), HMAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to derive challenge nonce seal key", e);
+        }
+    }
+
+    private int currentEpoch() {
+        return (int) (clock.instant().getEpochSecond() / rotationPeriodSeconds);
+    }
+
+    public record OpenedNonce(Instant expiry, byte[] mac) {
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceGenerator;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Generates challenge nonces that are sealed with {@link SealedChallengeNonceCodec} instead of being stored.
+ */
+public class SealedChallengeNonceGenerator implements ChallengeNonceGenerator {
+
+    private final SealedChallengeNonceCodec codec;
+    private final Supplier<byte[]> randomBytes;
+    private final Duration nonceTtl;
+    private final Clock clock;
+
+    /**
+     * @param randomBytes supplies {@value #NONCE_LENGTH} fresh random bytes for each nonce
+     */
+    public SealedChallengeNonceGenerator(SealedChallengeNonceCodec codec, Supplier<byte[]> randomBytes, Duration nonceTtl, Clock clock) {
+        this.codec = codec;
+        this.randomBytes = randomBytes;
+        this.nonceTtl = nonceTtl;
+        this.clock = clock;
+    }
+
+    @Override
+    public ChallengeNonce generateAndStoreNonce() {
+        // The seal has a resolution of one second, truncate so that both expiry times agree.
+        final ZonedDateTime expirationTime = ZonedDateTime.now(clock.withZone(ZoneOffset.UTC))
+                .plus(nonceTtl)
+                .withNano(0);
+        return new ChallengeNonce(codec.seal(randomBytes.get(), expirationTime.toInstant()), expirationTime);
+    }
+}
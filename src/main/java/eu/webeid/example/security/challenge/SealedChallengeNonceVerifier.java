@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.exceptions.AuthTokenException;
+import eu.webeid.security.exceptions.ChallengeNonceExpiredException;
+import eu.webeid.security.exceptions.ChallengeNonceNotFoundException;
+
+import java.time.Clock;
+
+/**
+ * Verifies sealed challenge nonces in place of {@link eu.webeid.security.challenge.ChallengeNonceStore#getAndRemove()}
+ * and makes sure that each nonce is accepted only once.
+ */
+public class SealedChallengeNonceVerifier {
+
+    private final SealedChallengeNonceCodec codec;
+    private final ConsumedNonceFilter consumedNonceFilter;
+    private final Clock clock;
+
+    public SealedChallengeNonceVerifier(SealedChallengeNonceCodec codec, ConsumedNonceFilter consumedNonceFilter, Clock clock) {
+        this.codec = codec;
+        this.consumedNonceFilter = consumedNonceFilter;
+        this.clock = clock;
+    }
+
+    /**
+     * Verifies the seal and expiry of the nonce that the client returned with the authentication token
+     * and marks the nonce as consumed.
+     *
+     * @param sealedNonce Base64-encoded sealed nonce
+     * @return the nonce, to be passed on to the authentication token validator
+     * @throws ChallengeNonceNotFoundException when the nonce is missing, forged or has already been used
+     * @throws ChallengeNonceExpiredException  when the nonce has expired
+     */
+    public String verifyAndConsume(String sealedNonce) throws AuthTokenException {
+        final SealedChallengeNonceCodec.OpenedNonce nonce = codec.open(sealedNonce);
+        if (!clock.instant().isBefore(nonce.expiry())) {
+            throw new ChallengeNonceExpiredException();
+        }
+        if (!consumedNonceFilter.markConsumed(nonce.mac(), nonce.expiry())) {
+            throw new ChallengeNonceNotFoundException();
+        }
+        return sealedNonce;
+    }
+}
@@ -29,6 +29,9 @@ public class AuthTokenDTO {
     @JsonProperty("auth-token")
     private WebEidAuthToken token;
 
+    @JsonProperty("nonce")
+    private String nonce;
+
     public WebEidAuthToken getToken() {
         return token;
     }
@@ -36,4 +39,15 @@ public class AuthTokenDTO {
     public void setToken(WebEidAuthToken token) {
         this.token = token;
     }
+
+    /**
+     * Returns the challenge nonce that the client echoes back with the token, used only in stateless challenge mode.
+     */
+    public String getNonce() {
+        return nonce;
+    }
+
+    public void setNonce(String nonce) {
+        this.nonce = nonce;
+    }
 }
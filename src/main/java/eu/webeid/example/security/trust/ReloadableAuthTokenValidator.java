@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.trust;
+
+import eu.webeid.security.authtoken.WebEidAuthToken;
+import eu.webeid.security.exceptions.AuthTokenException;
+import eu.webeid.security.validator.AuthTokenValidator;
+
+import java.security.cert.X509Certificate;
+import java.util.function.Function;
+
+/**
+ * Auth token validator that can be rebuilt for a new set of trust anchors while the application is running.
+ * <p>
+ * The validator is replaced atomically. Each call uses the validator that was current when the call started,
+ * so logins that are in progress during a reload complete with the previous trust anchors.
+ */
+public class ReloadableAuthTokenValidator implements AuthTokenValidator {
+
+    private final Function<TrustAnchorRegistry, AuthTokenValidator> validatorFactory;
+    private volatile Snapshot current;
+
+    public ReloadableAuthTokenValidator(TrustAnchorRegistry trustAnchors,
+                                        Function<TrustAnchorRegistry, AuthTokenValidator> validatorFactory) {
+        this.validatorFactory = validatorFactory;
+        this.current = new Snapshot(trustAnchors, validatorFactory.apply(trustAnchors));
+    }
+
+    @Override
+    public WebEidAuthToken parse(String authToken) throws AuthTokenException {
+        return current.validator().parse(authToken);
+    }
+
+    @Override
+    public X509Certificate validate(WebEidAuthToken authToken, String currentChallengeNonce) throws AuthTokenException {
+        return current.validator().validate(authToken, currentChallengeNonce);
+    }
+
+    /**
+     * Builds a validator for the given trust anchors and starts using it. If building fails, the previous
+     * validator remains in use.
+     */
+    public synchronized void reload(TrustAnchorRegistry trustAnchors) {
+        current = new Snapshot(trustAnchors, validatorFactory.apply(trustAnchors));
+    }
+
+    public TrustAnchorRegistry getTrustAnchors() {
+        return current.trustAnchors();
+    }
+
+    private record Snapshot(TrustAnchorRegistry trustAnchors, AuthTokenValidator validator) {
+    }
+}
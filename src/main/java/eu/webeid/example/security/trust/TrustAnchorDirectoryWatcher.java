@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.trust;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Watches the trusted CA certificate directory and reloads the trust anchors when files in it change.
+ * <p>
+ * Changes are collected until the directory has been quiet for the settle delay, so that copying several files
+ * results in a single reload. If loading fails, for example because a file is only partially written, the error is
+ * logged and the current trust anchors remain in use until the next change.
+ */
+public class TrustAnchorDirectoryWatcher implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrustAnchorDirectoryWatcher.class);
+
+    private final Path directory;
+    private final Supplier<TrustAnchorRegistry> loader;
+    private final Consumer<TrustAnchorRegistry> listener;
+    private final Duration settleDelay;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public TrustAnchorDirectoryWatcher(Path directory, Supplier<TrustAnchorRegistry> loader,
+                                       Consumer<TrustAnchorRegistry> listener, Duration settleDelay) throws IOException {
+        this.directory = directory;
+        this.loader = loader;
+        this.listener = listener;
+        this.settleDelay = settleDelay;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "trust-anchor-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                consume(watchService.take());
+                WatchKey key;
+                while ((key = watchService.poll(settleDelay.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    consume(key);
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed on shutdown.
+        }
+    }
+
+    private static void consume(WatchKey key) {
+        key.pollEvents();
+        key.reset();
+    }
+
+    private void reload() {
+        try {
+            final TrustAnchorRegistry trustAnchors = loader.get();
+            listener.accept(trustAnchors);
+            LOG.info("Reloaded {} trusted CA certificates from {}", trustAnchors.size(), directory);
+        } catch (RuntimeException e) {
+            LOG.error("Reloading trusted CA certificates from {} failed, keeping the current ones", directory, e);
+        }
+    }
+}
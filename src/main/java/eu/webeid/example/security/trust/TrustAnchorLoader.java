@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.trust;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads trusted CA certificates from {@code .cer} files and the {@value #TRUSTED_CERTIFICATES_JKS} trust store in
+ * a resource location, for example {@code classpath:/certs/dev/} or {@code file:/etc/web-eid/certs/}.
+ * <p>
+ * The {@code .cer} files are read and parsed in parallel while the trust store is decoded.
+ */
+public class TrustAnchorLoader implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrustAnchorLoader.class);
+
+    public static final String TRUSTED_CERTIFICATES_JKS = "trusted_certificates.jks";
+
+    private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (CertificateException e) {
+            throw new IllegalStateException("X.509 certificate factory is not available", e);
+        }
+    });
+
+    private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    private final String location;
+    private final String trustStorePassword;
+
+    private volatile long lastLoadNanos;
+    private volatile int lastLoadCount;
+
+    /**
+     * @param location           resource location of the certificate directory, must end with a slash
+     * @param trustStorePassword password of the trust store, may be {@code null} if there is no trust store
+     */
+    public TrustAnchorLoader(String location, String trustStorePassword) {
+        this.location = location;
+        this.trustStorePassword = trustStorePassword;
+    }
+
+    public TrustAnchorRegistry load() {
+        final long start = System.nanoTime();
+        final List<X509Certificate> caCertificates;
+        try {
+            final List<Resource> cerResources = new ArrayList<>(Arrays.asList(resolver.getResources(location + "*.cer")));
+            cerResources.sort(Comparator.comparing(Resource::getDescription));
+            final Resource trustStoreResource = resolver.getResource(location + TRUSTED_CERTIFICATES_JKS);
+            final CompletableFuture<List<X509Certificate>> trustStoreCertificates =
+                    CompletableFuture.supplyAsync(() -> loadTrustStore(trustStoreResource));
+            caCertificates = new ArrayList<>(cerResources.parallelStream().map(TrustAnchorLoader::parse).toList());
+            caCertificates.addAll(trustStoreCertificates.join());
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            throw new RuntimeException("Error initializing trusted CA certificates.", e);
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+
+        final TrustAnchorRegistry registry = TrustAnchorRegistry.of(caCertificates);
+        lastLoadNanos = System.nanoTime() - start;
+        lastLoadCount = registry.size();
+        LOG.info("Loaded {} trusted CA certificates from {} in {} ms", registry.size(), location,
+                TimeUnit.NANOSECONDS.toMillis(lastLoadNanos));
+        return registry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("webeid.trust.anchors.load.duration", this, TimeUnit.NANOSECONDS, loader -> loader.lastLoadNanos)
+                .description("Duration of the latest trusted CA certificate load")
+                .register(registry);
+        Gauge.builder("webeid.trust.anchors", this, loader -> loader.lastLoadCount)
+                .description("Number of trusted CA certificates")
+                .register(registry);
+    }
+
+    private List<X509Certificate> loadTrustStore(Resource trustStoreResource) {
+        List<X509Certificate> caCertificates = new ArrayList<>();
+
+        if (!trustStoreResource.exists()) {
+            LOG.info("Truststore file {} not found in {}", TRUSTED_CERTIFICATES_JKS, location);
+            return caCertificates;
+        }
+        try (InputStream is = trustStoreResource.getInputStream()) {
+            KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keystore.load(is, trustStorePassword.toCharArray());
+            Enumeration<String> aliases = keystore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                X509Certificate certificate = (X509Certificate) keystore.getCertificate(alias);
+                caCertificates.add(certificate);
+            }
+        } catch (IOException | CertificateException | KeyStoreException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error initializing trusted CA certificates from trust store.", e);
+        }
+
+        return caCertificates;
+    }
+
+    private static X509Certificate parse(Resource resource) {
+        try (InputStream is = resource.getInputStream()) {
+            return (X509Certificate) CERTIFICATE_FACTORY.get().generateCertificate(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CertificateException e) {
+            throw new IllegalArgumentException("Trusted CA certificate " + resource.getDescription() + " cannot be parsed", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.trust;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of trusted CA certificates, indexed by subject DN and subject key identifier.
+ * <p>
+ * Certificates that occur in several sources, for example both as a {@code .cer} file and in the trust store,
+ * are included once.
+ */
+public final class TrustAnchorRegistry {
+
+    private final List<X509Certificate> certificates;
+    private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+    private final Map<String, X509Certificate> bySubjectKeyIdentifier = new HashMap<>();
+
+    private TrustAnchorRegistry(Collection<X509Certificate> certificates) {
+        final Map<String, X509Certificate> byFingerprint = new LinkedHashMap<>();
+        for (X509Certificate certificate : certificates) {
+            byFingerprint.putIfAbsent(fingerprint(certificate), certificate);
+        }
+        this.certificates = List.copyOf(byFingerprint.values());
+        for (X509Certificate certificate : this.certificates) {
+            bySubject.computeIfAbsent(certificate.getSubjectX500Principal(), subject -> new ArrayList<>(1)).add(certificate);
+            final byte[] subjectKeyIdentifier = subjectKeyIdentifier(certificate);
+            if (subjectKeyIdentifier != null) {
+                bySubjectKeyIdentifier.putIfAbsent(HexFormat.of().formatHex(subjectKeyIdentifier), certificate);
+            }
+        }
+    }
+
+    public static TrustAnchorRegistry of(Collection<X509Certificate> certificates) {
+        return new TrustAnchorRegistry(certificates);
+    }
+
+    public List<X509Certificate> getCertificates() {
+        return certificates;
+    }
+
+    public X509Certificate[] toArray() {
+        return certificates.toArray(new X509Certificate[0]);
+    }
+
+    public int size() {
+        return certificates.size();
+    }
+
+    public List<X509Certificate> findBySubject(X500Principal subject) {
+        return bySubject.getOrDefault(subject, List.of());
+    }
+
+    public X509Certificate findBySubjectKeyIdentifier(byte[] subjectKeyIdentifier) {
+        return bySubjectKeyIdentifier.get(HexFormat.of().formatHex(subjectKeyIdentifier));
+    }
+
+    /**
+     * Returns the trusted CA certificates that may have issued the given certificate: the certificate that matches
+     * the authority key identifier of the certificate if there is one, otherwise the certificates whose subject
+     * matches the issuer of the certificate.
+     */
+    public List<X509Certificate> findIssuers(X509Certificate certificate) {
+        final byte[] authorityKeyIdentifier = authorityKeyIdentifier(certificate);
+        if (authorityKeyIdentifier != null) {
+            final X509Certificate issuer = findBySubjectKeyIdentifier(authorityKeyIdentifier);
+            if (issuer != null && issuer.getSubjectX500Principal().equals(certificate.getIssuerX500Principal())) {
+                return List.of(issuer);
+            }
+        }
+        return findBySubject(certificate.getIssuerX500Principal());
+    }
+
+    private static byte[] subjectKeyIdentifier(X509Certificate certificate) {
+        final byte[] extensionValue = certificate.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (extensionValue == null) {
+            return null;
+        }
+        try {
+            return ASN1OctetString.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extensionValue)).getOctets();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] authorityKeyIdentifier(X509Certificate certificate) {
+        final byte[] extensionValue = certificate.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (extensionValue == null) {
+            return null;
+        }
+        try {
+            return AuthorityKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extensionValue)).getKeyIdentifier();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String fingerprint(X509Certificate certificate) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("Trusted CA certificate cannot be encoded", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
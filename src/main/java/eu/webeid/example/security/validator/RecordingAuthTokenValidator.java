@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.validator;
+
+import eu.webeid.example.jfr.AuthTokenValidationEvent;
+import eu.webeid.security.authtoken.WebEidAuthToken;
+import eu.webeid.security.exceptions.AuthTokenException;
+import eu.webeid.security.validator.AuthTokenValidator;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Authentication token validator that records the validation by the Web eID library as
+ * {@link AuthTokenValidationEvent} JFR events with the {@code chain} stage.
+ */
+public class RecordingAuthTokenValidator implements AuthTokenValidator {
+
+    private final AuthTokenValidator delegate;
+
+    public RecordingAuthTokenValidator(AuthTokenValidator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public WebEidAuthToken parse(String authToken) throws AuthTokenException {
+        return delegate.parse(authToken);
+    }
+
+    @Override
+    public X509Certificate validate(WebEidAuthToken authToken, String currentChallengeNonce) throws AuthTokenException {
+        final AuthTokenValidationEvent event = new AuthTokenValidationEvent();
+        event.begin();
+        Exception failure = null;
+        try {
+            return delegate.validate(authToken, currentChallengeNonce);
+        } catch (AuthTokenException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setStage(AuthTokenValidationEvent.STAGE_CHAIN);
+                // The certificate is Base64-encoded in the token.
+                final String certificate = authToken.getUnverifiedCertificate();
+                event.setSize(certificate != null ? certificate.length() * 3L / 4 : 0);
+                event.setOutcome(failure);
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Working directories of this application instance.
+ * <p>
+ * Several instances may be configured with the same directory, for example when they run on one host or share a
+ * volume. Each instance therefore works in a subdirectory of its own and deletes only that subdirectory when it
+ * shuts down, never the files of the other instances.
+ */
+public final class InstanceDirectories {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceDirectories.class);
+
+    private static final String PREFIX = "instance-";
+
+    private InstanceDirectories() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Creates a new subdirectory of the given directory for this instance.
+     */
+    public static Path create(Path directory) throws IOException {
+        return Files.createTempDirectory(Files.createDirectories(directory), PREFIX);
+    }
+
+    /**
+     * Deletes the subdirectory of this instance with the files in it.
+     */
+    public static void delete(Path instanceDirectory) {
+        final List<Path> paths;
+        try (Stream<Path> walk = Files.walk(instanceDirectory)) {
+            // Files before their directories.
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        } catch (IOException e) {
+            LOG.warn("Failed to list instance directory {}", instanceDirectory, e);
+            return;
+        }
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOG.warn("Failed to delete {}", path, e);
+            }
+        }
+    }
+}
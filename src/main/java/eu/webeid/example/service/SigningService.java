@@ -22,17 +22,36 @@
 
 package eu.webeid.example.service;
 
-import eu.webeid.example.config.YAMLConfig;
+import eu.webeid.example.jfr.SigningPhaseEvent;
+import eu.webeid.example.metrics.Instrumentation;
+import eu.webeid.example.metrics.TaggedTimers;
+import eu.webeid.example.security.CertificateSubjectCache;
 import eu.webeid.example.security.WebEidAuthentication;
+import eu.webeid.example.service.container.ContainerFileStore;
+import eu.webeid.example.service.container.SignedContainerFile;
+import eu.webeid.example.service.document.DocumentReference;
+import eu.webeid.example.service.document.DocumentStore;
 import eu.webeid.example.service.dto.CertificateDTO;
 import eu.webeid.example.service.dto.DigestDTO;
 import eu.webeid.example.service.dto.FileDTO;
 import eu.webeid.example.service.dto.SignatureDTO;
-import eu.webeid.security.certificate.CertificateData;
+import eu.webeid.example.service.dto.SigningJobDTO;
+import eu.webeid.example.service.job.SigningJob;
+import eu.webeid.example.service.job.SigningJobExecutor;
+import eu.webeid.example.service.job.SigningJobNotFoundException;
+import eu.webeid.example.service.session.SessionResourceRegistry;
+import eu.webeid.example.service.session.SigningSession;
+import eu.webeid.example.service.session.SigningSessionStore;
+import eu.webeid.example.service.signing.SigningConfigurationProvider;
+import eu.webeid.example.service.upload.UploadedFile;
+import eu.webeid.example.tracing.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import jakarta.servlet.http.HttpSession;
 import jakarta.xml.bind.DatatypeConverter;
 import org.apache.commons.io.FilenameUtils;
-import org.digidoc4j.Configuration;
 import org.digidoc4j.Container;
 import org.digidoc4j.ContainerBuilder;
 import org.digidoc4j.DataFile;
@@ -45,43 +64,84 @@ import org.digidoc4j.utils.TokenAlgorithmSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectFactory;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.util.WebUtils;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
-import java.util.Objects;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
 
 import static eu.webeid.example.security.AuthTokenDTOAuthenticationProvider.ROLE_USER;
 
+/**
+ * Signing flow of the current session. The phases of the flow are timed in the {@code webeid.signing} timer,
+ * tagged with the phase, outcome and failure reason, recorded as {@link SigningPhaseEvent} JFR events and traced
+ * as {@code webeid.signing.<phase>} spans.
+ */
 @Service
 @Secured(ROLE_USER)
 public class SigningService {
 
-    private static final String SESSION_ATTR_FILE = "file-to-sign";
-    private static final String SESSION_ATTR_CONTAINER = "container-to-sign";
-    private static final String SESSION_ATTR_DATA = "data-to-sign";
+    private static final String SESSION_ATTR_DOCUMENT = "document-to-sign";
+    private static final String SESSION_ATTR_UPLOADED_FILE = "uploaded-file-to-sign";
+    private static final String SESSION_ATTR_SIGNED_CONTAINER_FILE = "signed-container-file";
+    private static final String SESSION_ATTR_SIGNING_JOB = "signing-job";
     private static final Logger LOG = LoggerFactory.getLogger(SigningService.class);
-    private final Configuration signingConfiguration;
 
     private final ObjectFactory<HttpSession> httpSessionFactory;
-
-    public SigningService(ObjectFactory<HttpSession> httpSessionFactory, YAMLConfig yamlConfig) {
+    private final SigningConfigurationProvider signingConfigurationProvider;
+    private final DocumentStore documentStore;
+    private final SigningSessionStore signingSessionStore;
+    private final ContainerFileStore containerFileStore;
+    private final SigningJobExecutor signingJobExecutor;
+    private final CertificateSubjectCache certificateSubjectCache;
+    // Resources of the sessions are kept here and only their IDs are kept in the sessions, as they are not serializable.
+    private final SessionResourceRegistry<DocumentReference> documents =
+            new SessionResourceRegistry<>(SESSION_ATTR_DOCUMENT, DocumentReference::release);
+    private final SessionResourceRegistry<UploadedFile> uploadedFiles =
+            new SessionResourceRegistry<>(SESSION_ATTR_UPLOADED_FILE, UploadedFile::delete);
+    private final SessionResourceRegistry<SignedContainerFile> signedContainerFiles =
+            new SessionResourceRegistry<>(SESSION_ATTR_SIGNED_CONTAINER_FILE, SignedContainerFile::delete);
+    private final SessionResourceRegistry<SigningJob> signingJobs =
+            new SessionResourceRegistry<>(SESSION_ATTR_SIGNING_JOB, SigningJob::release);
+    private final TaggedTimers signingTimers;
+    private final Tracer tracer;
+    private volatile String exampleDocumentId;
+
+    public SigningService(ObjectFactory<HttpSession> httpSessionFactory, SigningConfigurationProvider signingConfigurationProvider,
+                          DocumentStore documentStore, SigningSessionStore signingSessionStore,
+                          ContainerFileStore containerFileStore, ObjectProvider<SigningJobExecutor> signingJobExecutor,
+                          CertificateSubjectCache certificateSubjectCache, MeterRegistry meterRegistry,
+                          ObjectProvider<OpenTelemetry> openTelemetry) {
         this.httpSessionFactory = httpSessionFactory;
-        signingConfiguration = Configuration.of(yamlConfig.getUseDigiDoc4jProdConfiguration() ?
-                Configuration.Mode.PROD : Configuration.Mode.TEST);
-        // Use automatic AIA OCSP URL selection from certificate for signatures.
-        signingConfiguration.setPreferAiaOcsp(true);
+        // The configuration is replaced when the trusted lists are refreshed, so it is looked up for every container.
+        this.signingConfigurationProvider = signingConfigurationProvider;
+        this.documentStore = documentStore;
+        this.signingSessionStore = signingSessionStore;
+        this.containerFileStore = containerFileStore;
+        // Available only when asynchronous signing is enabled.
+        this.signingJobExecutor = signingJobExecutor.getIfAvailable();
+        this.certificateSubjectCache = certificateSubjectCache;
+        this.signingTimers = new TaggedTimers(meterRegistry, "webeid.signing", "Signing flow phases",
+                "phase", "outcome", "reason");
+        this.tracer = Tracing.tracer(openTelemetry);
     }
 
     private HttpSession currentSession() {
         return httpSessionFactory.getObject();
     }
 
+    private SigningSession currentSigningSession() {
+        return signingSessionStore.get().orElseThrow(() -> new IllegalStateException("No signing in progress"));
+    }
+
     /**
      * Prepares given container {@link Container} for the signature process.
      *
@@ -91,19 +151,30 @@ public class SigningService {
      */
     public DigestDTO prepareContainer(CertificateDTO certificateDTO, WebEidAuthentication authentication) throws CertificateException, NoSuchAlgorithmException, IOException {
         final X509Certificate certificate = certificateDTO.toX509Certificate();
-        final String signingIdCode = CertificateData.getSubjectIdCode(certificate)
+        final String signingIdCode = certificateSubjectCache.get(certificate).getIdCode()
                 .orElseThrow(() -> new RuntimeException("Certificate does not contain subject ID code"));
         if (!signingIdCode.equals(authentication.getIdCode())) {
             throw new IllegalArgumentException("Authenticated subject ID code differs from " +
                     "signing certificate subject ID code");
         }
 
-        final FileDTO fileDTO = FileDTO.getExampleForSigningFromResources();
-        final Container containerToSign = getContainerToSign(fileDTO);
-        final String containerName = generateContainerName(fileDTO.getName());
-
-        currentSession().setAttribute(SESSION_ATTR_CONTAINER, containerToSign);
-        currentSession().setAttribute(SESSION_ATTR_FILE, fileDTO);
+        final UploadedFile uploadedFile = uploadedFiles.get(currentSession()).orElse(null);
+        final String fileName;
+        final String documentId;
+        final Container containerToSign;
+        if (uploadedFile != null) {
+            fileName = uploadedFile.getName();
+            documentId = documentId(uploadedFile);
+            containerToSign = getContainerToSign(fileName, uploadedFile.toDataFile());
+        } else {
+            final DocumentReference document = getExampleDocumentForSigning();
+            fileName = document.getName();
+            documentId = document.getDocumentId();
+            containerToSign = getContainerToSign(fileName, document.toDataFile());
+            // Replacing the document releases the reference to the previously signed document.
+            documents.put(currentSession(), document);
+        }
+        final String containerName = generateContainerName(fileName);
 
         LOG.info("Preparing container for signing for file '{}'", containerName);
 
@@ -115,14 +186,16 @@ public class SigningService {
                     "' is not supported. Supported algorithms are: " + String.join(", ", certificateDTO.getSupportedHashFunctionNames()));
         }
 
-        final DataToSign dataToSign = SignatureBuilder
+        final DataToSign dataToSign = timePhase("data-to-sign", data -> data.getDataToSign().length, () -> SignatureBuilder
                 .aSignature(containerToSign)
                 .withSignatureProfile(SignatureProfile.LT) // AIA OCSP is supported for signatures with LT or LTA profile.
                 .withSigningCertificate(certificate)
                 .withSignatureDigestAlgorithm(signatureDigestAlgorithm)
-                .buildDataToSign();
+                .buildDataToSign());
 
-        currentSession().setAttribute(SESSION_ATTR_DATA, dataToSign);
+        signingSessionStore.put(SigningSession.of(fileName, documentId, dataToSign));
+        signedContainerFiles.remove(currentSession());
+        signingJobs.remove(currentSession());
 
         LOG.info("Successfully prepared container for signing for file '{}'", containerName);
 
@@ -138,72 +211,181 @@ public class SigningService {
 
     /**
      * Signs a {@link Container} using given {@link SignatureDTO}.
-     * Container to sign is taken from the current session.
+     * Container to sign is rebuilt from the file of the signing session.
      *
      * @param signatureDTO signature DTO
      * @return fileDTO
      */
-    public FileDTO signContainer(SignatureDTO signatureDTO) {
-        FileDTO fileDTO = (FileDTO) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_FILE));
-        Container containerToSign = (Container) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_CONTAINER));
-        DataToSign dataToSign = (DataToSign) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_DATA));
+    public FileDTO signContainer(SignatureDTO signatureDTO) throws IOException {
+        SigningSession signingSession = currentSigningSession();
+        Container containerToSign = rebuildContainerToSign(signingSession);
+        DataToSign dataToSign = signingSession.toDataToSign(containerToSign);
 
         byte[] signatureBytes = DatatypeConverter.parseBase64Binary(signatureDTO.getBase64Signature());
-        Signature signature = dataToSign.finalize(signatureBytes);
+        Signature signature = timePhase("finalize", s -> signatureBytes.length, () -> dataToSign.finalize(signatureBytes));
         containerToSign.addSignature(signature);
-        currentSession().setAttribute(SESSION_ATTR_CONTAINER, containerToSign);
 
-        return new FileDTO(generateContainerName(fileDTO.getName()));
-    }
+        // The container does not change after signing, so it is serialized once here and every download is served
+        // from the file. Replacing the file deletes the file of the previous container.
+        final String containerName = generateContainerName(signingSession.fileName());
+        signedContainerFiles.put(currentSession(), writeContainer(containerToSign, containerName));
+        signingSessionStore.remove();
 
-    public String getContainerName() {
-        FileDTO fileDTO = (FileDTO) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_FILE));
-        return generateContainerName(fileDTO.getName());
+        return new FileDTO(containerName);
     }
 
-    public ByteArrayResource getSignedContainerAsResource() throws IOException {
-        Container signedContainer = (Container) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_CONTAINER));
-        try (final InputStream stream = signedContainer.saveAsStream()) {
-            return new ByteArrayResource(stream.readAllBytes());
-        }
+    public boolean isAsyncSigning() {
+        return signingJobExecutor != null;
     }
 
-    private Container getContainerToSign(FileDTO fileDTO) {
-        LOG.info("Creating container for file '{}'", fileDTO.getName());
+    /**
+     * Starts finalizing the signature in the background and returns immediately. The signed container becomes
+     * available for download when {@link #getSigningJob(String)} reports that the job has completed.
+     *
+     * @param signatureDTO signature DTO
+     * @return signing job status
+     */
+    public SigningJobDTO startSigningJob(SignatureDTO signatureDTO) {
+        final SigningSession signingSession = currentSigningSession();
+        // The container is rebuilt on the request thread, as the file to sign is looked up from the HTTP session.
+        final Container containerToSign = rebuildContainerToSign(signingSession);
+        final DataToSign dataToSign = signingSession.toDataToSign(containerToSign);
+        final byte[] signatureBytes = DatatypeConverter.parseBase64Binary(signatureDTO.getBase64Signature());
+        final String containerName = generateContainerName(signingSession.fileName());
+
+        // The job spans belong to the trace of the request that started the job.
+        final SigningJob job = signingJobExecutor.submit(containerName, Context.current().wrap(() -> {
+            containerToSign.addSignature(timePhase("finalize", s -> signatureBytes.length, () -> dataToSign.finalize(signatureBytes)));
+            return new SigningJob.Result(writeContainer(containerToSign, containerName));
+        }));
+        // Replacing the job releases the previous job.
+        signingJobs.put(currentSession(), job);
+        LOG.info("Started signing job {} for file '{}'", job.getId(), containerName);
+        return SigningJobDTO.of(job);
+    }
 
-        final DataFile dataFile = new DataFile(fileDTO.getContentBytes(), fileDTO.getName(), fileDTO.getContentType());
-        return ContainerBuilder
-                .aContainer(Container.DocumentType.ASICE)
-                .withDataFile(dataFile)
-                .withConfiguration(signingConfiguration)
-                .build();
+    /**
+     * Returns the status of the signing job of the current session. When the job has completed, its signed
+     * container file becomes the download of the session and the signing session ends.
+     *
+     * @param jobId signing job ID
+     * @return signing job status
+     */
+    public SigningJobDTO getSigningJob(String jobId) {
+        final SigningJob job = signingJobs.get(currentSession())
+                .filter(candidate -> candidate.getId().equals(jobId))
+                .orElseThrow(() -> new SigningJobNotFoundException("Signing job not found"));
+        takeSigningJobResult(job);
+        return SigningJobDTO.of(job);
     }
 
-    private String generateContainerName(String fileName) {
-        return FilenameUtils.removeExtension(fileName) + ".asice";
+    private void takeSigningJobResult(SigningJob job) {
+        job.takeResult().ifPresent(result -> {
+            signedContainerFiles.put(currentSession(), result.containerFile());
+            signingSessionStore.remove();
+        });
     }
 
-    /*  Here is an example method that demonstrates how to handle file uploads.
-     *  See also SigningController.upload().
+    /**
+     * Returns the signed container of the current session as a file, which is written when the container is signed.
      *
-     * Creates a {@link Container} using given name and files.
+     * @return signed container file
+     */
+    public SignedContainerFile getSignedContainerFile() {
+        final HttpSession session = currentSession();
+        synchronized (WebUtils.getSessionMutex(session)) {
+            final SigningJob job = signingJobs.get(session).orElse(null);
+            if (job != null) {
+                if (job.getStatus() == SigningJob.Status.PENDING) {
+                    throw new IllegalStateException("Signature is being finalized");
+                }
+                takeSigningJobResult(job);
+            }
+            return signedContainerFiles.get(session)
+                    .filter(SignedContainerFile::exists)
+                    .orElseThrow(() -> new IllegalStateException("No signed container"));
+        }
+    }
+
+    /**
+     * Makes the uploaded file the file to sign in the current session instead of the example file. The previously
+     * uploaded file is deleted.
      *
-     * @param fileDTO container file
-     * @return new {@link Container} instance
-    public FileDTO createContainer(FileDTO fileDTO) {
+     * @param uploadedFile uploaded file
+     * @return fileDTO
+     */
+    public FileDTO setFileToSign(UploadedFile uploadedFile) {
+        LOG.info("Received file '{}' of {} bytes for signing", uploadedFile.getName(), uploadedFile.getSize());
+        uploadedFiles.put(currentSession(), uploadedFile);
+        signedContainerFiles.remove(currentSession());
+        signingJobs.remove(currentSession());
+        signingSessionStore.remove();
+        return new FileDTO(uploadedFile.getName());
+    }
 
-        Container containerToSign = getContainerToSign(fileDTO);
+    /**
+     * Returns a reference to the example document in the document store, reading it from resources only when the
+     * store does not have it.
+     */
+    private DocumentReference getExampleDocumentForSigning() throws IOException {
+        final String documentId = exampleDocumentId;
+        if (documentId != null) {
+            final Optional<DocumentReference> document = documentStore.acquire(documentId,
+                    FileDTO.EXAMPLE_FILENAME, MimeTypeUtils.TEXT_PLAIN_VALUE);
+            if (document.isPresent()) {
+                return document.get();
+            }
+        }
+        final FileDTO fileDTO = FileDTO.getExampleForSigningFromResources();
+        final DocumentReference document = documentStore.store(fileDTO.getName(), fileDTO.getContentType(), fileDTO.getContentBytes());
+        exampleDocumentId = document.getDocumentId();
+        return document;
+    }
 
-        currentSession().setAttribute(SESSION_ATTR_CONTAINER, containerToSign);
-        currentSession().setAttribute(SESSION_ATTR_FILE, fileDTO);
+    /**
+     * Rebuilds the container of the signing session from the file to sign of the current session, which is the
+     * uploaded file or the example document.
+     */
+    private Container rebuildContainerToSign(SigningSession signingSession) {
+        final UploadedFile uploadedFile = uploadedFiles.get(currentSession()).orElse(null);
+        if (uploadedFile != null && documentId(uploadedFile).equals(signingSession.documentId())) {
+            return getContainerToSign(uploadedFile.getName(), uploadedFile.toDataFile());
+        }
+        final DocumentReference document = documents.get(currentSession())
+                .filter(reference -> reference.getDocumentId().equals(signingSession.documentId()))
+                .orElseThrow(() -> new IllegalStateException("File to sign is no longer available"));
+        return getContainerToSign(document.getName(), document.toDataFile());
+    }
 
-        FileDTO newFileDTO = new FileDTO(fileDTO.getName());
-        return newFileDTO;
+    private static String documentId(UploadedFile uploadedFile) {
+        // Documents in the document store are identified by the same digest.
+        return HexFormat.of().formatHex(uploadedFile.getDigest(DigestAlgorithm.SHA256.getDssDigestAlgorithm()));
+    }
+
+    private Container getContainerToSign(String fileName, DataFile dataFile) {
+        LOG.info("Creating container for file '{}'", fileName);
+
+        return timePhase("container-build", container -> dataFile.getFileSize(), () -> ContainerBuilder
+                .aContainer(Container.DocumentType.ASICE)
+                .withDataFile(dataFile)
+                .withConfiguration(signingConfigurationProvider.get())
+                .build());
+    }
+
+    private SignedContainerFile writeContainer(Container container, String containerName) throws IOException {
+        return timePhase("serialization", SignedContainerFile::getSize, () -> containerFileStore.write(container, containerName));
+    }
+
+    private <T, E extends Exception> T timePhase(String phase, ToLongFunction<T> size,
+                                                  Instrumentation.Operation<T, E> step) throws E {
+        return Instrumentation.call(step, new SigningPhaseEvent(), (event, result) -> {
+            event.setPhase(phase);
+            event.setSize(result != null ? size.applyAsLong(result) : 0);
+        }, tracer.spanBuilder("webeid.signing." + phase).startSpan(), signingTimers, phase);
+    }
+
+    private String generateContainerName(String fileName) {
+        return FilenameUtils.removeExtension(fileName) + ".asice";
     }
-    */
-    /* When using uploaded files, retrieve file information and container from the session in prepareContainer().
 
-    FileDTO fileDTO = (FileDTO) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_FILE));
-    Container containerToSign = (Container) Objects.requireNonNull(currentSession().getAttribute(SESSION_ATTR_CONTAINER));
-     */
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.container;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.webeid.example.service.InstanceDirectories;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.digidoc4j.Container;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serializes containers to files in a directory, so that downloads can be served from the file with zero-copy
+ * transfers and byte ranges instead of serializing the container into memory for every request. The SHA-256 digest
+ * of the file is computed while it is written and serves as the strong entity tag of the download.
+ * <p>
+ * The files are written to a subdirectory of this instance, see {@link InstanceDirectories}, which is deleted when
+ * the store is closed.
+ */
+public class ContainerFileStore implements MeterBinder, AutoCloseable {
+
+    private static final String FILE_PREFIX = "container-";
+    private static final String FILE_SUFFIX = ".asice";
+
+    private final Path directory;
+    private final LongAdder serializations = new LongAdder();
+
+    public ContainerFileStore(Path directory) throws IOException {
+        this.directory = InstanceDirectories.create(directory);
+    }
+
+    /**
+     * Writes the container to a new file.
+     *
+     * @param container container to write
+     * @param name      file name for the client
+     * @return container file, which the caller must delete when it is no longer needed
+     */
+    public SignedContainerFile write(Container container, String name) throws IOException {
+        final MessageDigest sha256 = DigestAlgorithm.SHA256.getMessageDigest();
+        final Path file = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new DigestOutputStream(Files.newOutputStream(file), sha256))) {
+                container.save(out);
+            }
+            serializations.increment();
+            // HTTP dates have a resolution of one second.
+            return new SignedContainerFile(file, name, Files.size(file), Instant.now().truncatedTo(ChronoUnit.SECONDS),
+                    sha256.digest());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of containers that have been serialized since startup.
+     */
+    public long serializationCount() {
+        return serializations.sum();
+    }
+
+    @Override
+    public void close() {
+        InstanceDirectories.delete(directory);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("webeid.signed.containers.serializations", serializations, LongAdder::sum)
+                .description("Signed containers serialized to a file for download")
+                .register(registry);
+    }
+}
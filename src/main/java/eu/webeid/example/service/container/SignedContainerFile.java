@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.container;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Serialized ASiC-E container in a file, ready to be sent to the client.
+ * <p>
+ * The owner of the container file must delete the file when it is no longer needed.
+ */
+public final class SignedContainerFile {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SignedContainerFile.class);
+
+    private final Path path;
+    private final String name;
+    private final long size;
+    private final Instant lastModified;
+    private final byte[] sha256Digest;
+
+    SignedContainerFile(Path path, String name, long size, Instant lastModified, byte[] sha256Digest) {
+        this.path = path;
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.sha256Digest = sha256Digest;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public byte[] getSha256Digest() {
+        return sha256Digest.clone();
+    }
+
+    /**
+     * Returns the strong entity tag of the file, which is the quoted hex-encoded SHA-256 digest of the content.
+     */
+    public String getETag() {
+        return "\"" + HexFormat.of().formatHex(sha256Digest) + "\"";
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete signed container file {}", path, e);
+        }
+    }
+}
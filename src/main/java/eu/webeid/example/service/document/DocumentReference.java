@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.document;
+
+import eu.europa.esig.dss.enumerations.MimeType;
+import org.digidoc4j.DataFile;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Counted reference to a document in the {@link DocumentStore} under a file name and content type.
+ * <p>
+ * The document is not evicted while it has references, so every reference must be released when it is no longer
+ * needed.
+ */
+public final class DocumentReference {
+
+    private final DocumentStore store;
+    private final StoredDocument document;
+    private final String name;
+    private final String contentType;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    DocumentReference(DocumentStore store, StoredDocument document, String name, String contentType) {
+        this.store = store;
+        this.document = document;
+        this.name = name;
+        this.contentType = contentType;
+    }
+
+    public String getDocumentId() {
+        return document.getId();
+    }
+
+    public StoredDocument getDocument() {
+        return document;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Creates a new data file over the stored content. The content is not copied and the digests of the data file
+     * are taken from the store.
+     */
+    public DataFile toDataFile() {
+        return new DataFile(new StoredDocumentDssDocument(document, name, MimeType.fromMimeTypeString(contentType)));
+    }
+
+    /**
+     * Releases the reference. Releasing a reference more than once has no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            store.release(document);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.document;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed in-memory store of documents to sign, keyed by the SHA-256 digest of the content.
+ * <p>
+ * Each distinct content is kept once, however many signing sessions refer to it. Documents are reference counted
+ * through {@link DocumentReference}. Documents without references are kept in least recently used order while the
+ * total size of the stored documents fits in the memory budget. Referenced documents are never evicted, so the
+ * budget may be exceeded while they are in use.
+ */
+public class DocumentStore implements MeterBinder {
+
+    private final long memoryBudgetBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder evictions = new LongAdder();
+    private long storedBytes;
+
+    public DocumentStore(long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Stores the content unless the same content is already stored and returns a new reference to it.
+     * The content array must not be modified afterwards.
+     */
+    public DocumentReference store(String name, String contentType, byte[] content) {
+        final byte[] sha256Digest = DigestAlgorithm.SHA256.getMessageDigest().digest(content);
+        final String id = HexFormat.of().formatHex(sha256Digest);
+        final StoredDocument document;
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                entry = new Entry(new StoredDocument(id, content, sha256Digest));
+                entries.put(id, entry);
+                storedBytes += content.length;
+            }
+            entry.references++;
+            document = entry.document;
+            evictUnreferenced();
+        }
+        return new DocumentReference(this, document, name, contentType);
+    }
+
+    /**
+     * Returns a new reference to the document with the given ID if it is still stored.
+     */
+    public synchronized Optional<DocumentReference> acquire(String id, String name, String contentType) {
+        final Entry entry = entries.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        entry.references++;
+        return Optional.of(new DocumentReference(this, entry.document, name, contentType));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long storedBytes() {
+        return storedBytes;
+    }
+
+    public synchronized int references(String id) {
+        final Entry entry = entries.get(id);
+        return entry != null ? entry.references : 0;
+    }
+
+    synchronized void release(StoredDocument document) {
+        final Entry entry = entries.get(document.getId());
+        if (entry != null && entry.document == document && entry.references > 0) {
+            entry.references--;
+            evictUnreferenced();
+        }
+    }
+
+    private void evictUnreferenced() {
+        // Iterates from the least recently used entry.
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (storedBytes > memoryBudgetBytes && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                storedBytes -= entry.document.getSize();
+                evictions.increment();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.documents.stored", this, DocumentStore::size)
+                .description("Number of distinct documents in the document store")
+                .register(registry);
+        Gauge.builder("webeid.documents.stored.bytes", this, DocumentStore::storedBytes)
+                .description("Total size of the documents in the document store")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("webeid.documents.evictions", evictions, LongAdder::sum)
+                .description("Documents evicted from the document store to stay within the memory budget")
+                .register(registry);
+    }
+
+    private static final class Entry {
+        private final StoredDocument document;
+        private int references;
+
+        private Entry(StoredDocument document) {
+            this.document = document;
+        }
+    }
+}
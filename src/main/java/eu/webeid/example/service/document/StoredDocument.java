@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.document;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable document content in the {@link DocumentStore}, identified by the hex-encoded SHA-256 digest of the
+ * content. Digests of the content are computed once per digest algorithm and shared by all containers that
+ * include the document.
+ */
+public final class StoredDocument {
+
+    private final String id;
+    private final byte[] content;
+    private final Map<DigestAlgorithm, byte[]> digests = new ConcurrentHashMap<>();
+
+    StoredDocument(String id, byte[] content, byte[] sha256Digest) {
+        this.id = id;
+        this.content = content;
+        digests.put(DigestAlgorithm.SHA256, sha256Digest);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getSize() {
+        return content.length;
+    }
+
+    public InputStream openStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Returns the digest of the content, computing it on first use of the algorithm.
+     */
+    public byte[] getDigest(DigestAlgorithm digestAlgorithm) {
+        return digests.computeIfAbsent(digestAlgorithm, algorithm -> algorithm.getMessageDigest().digest(content))
+                .clone();
+    }
+
+    /**
+     * Returns the content without copying it; the caller must not modify the array.
+     */
+    byte[] content() {
+        return content;
+    }
+}
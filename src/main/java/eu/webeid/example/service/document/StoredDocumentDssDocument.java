@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.document;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.enumerations.MimeType;
+import eu.europa.esig.dss.model.InMemoryDocument;
+
+/**
+ * DSS document over the shared bytes of a {@link StoredDocument}, which takes the digests of the content from the
+ * store instead of computing them again for every container.
+ */
+class StoredDocumentDssDocument extends InMemoryDocument {
+
+    private final transient StoredDocument document;
+
+    StoredDocumentDssDocument(StoredDocument document, String name, MimeType mimeType) {
+        super(document.content(), name, mimeType);
+        this.document = document;
+    }
+
+    @Override
+    public byte[] getDigestValue(DigestAlgorithm digestAlgorithm) {
+        return document != null ? document.getDigest(digestAlgorithm) : super.getDigestValue(digestAlgorithm);
+    }
+}
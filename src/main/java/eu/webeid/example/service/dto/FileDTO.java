@@ -24,17 +24,15 @@ package eu.webeid.example.service.dto;
 
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.util.MimeTypeUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Objects;
 
 public class FileDTO implements Serializable {
-    private static final String EXAMPLE_FILENAME = "example-for-signing.txt";
+    public static final String EXAMPLE_FILENAME = "example-for-signing.txt";
 
     private final String name;
     private String contentType;
@@ -50,14 +48,6 @@ public class FileDTO implements Serializable {
         this.contentBytes = contentBytes;
     }
 
-    public static FileDTO fromMultipartFile(MultipartFile file) throws IOException {
-        return new FileDTO(
-                Objects.requireNonNull(file.getOriginalFilename()),
-                Objects.requireNonNull(file.getContentType()),
-                Objects.requireNonNull(file.getBytes())
-        );
-    }
-
     public static FileDTO getExampleForSigningFromResources() throws IOException {
         final URI resourceUri = new ClassPathResource("/static/files/" + EXAMPLE_FILENAME).getURI();
         return new FileDTO(
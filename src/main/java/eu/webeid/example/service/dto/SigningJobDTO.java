@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.dto;
+
+import eu.webeid.example.service.job.SigningJob;
+
+public class SigningJobDTO {
+    private final String jobId;
+    private final SigningJob.Status status;
+    private final String name;
+
+    public SigningJobDTO(String jobId, SigningJob.Status status, String name) {
+        this.jobId = jobId;
+        this.status = status;
+        this.name = name;
+    }
+
+    public static SigningJobDTO of(SigningJob job) {
+        // The container name is returned when the container is ready for download, like in FileDTO.
+        return new SigningJobDTO(job.getId(), job.getStatus(),
+                job.getStatus() == SigningJob.Status.COMPLETED ? job.getContainerName() : null);
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public SigningJob.Status getStatus() {
+        return status;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.job;
+
+import eu.webeid.example.service.container.SignedContainerFile;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Signature finalization that runs in the background, see {@link SigningJobExecutor}.
+ * <p>
+ * The owner of the job must {@link #release()} it when it is no longer needed. When the job is released before its
+ * container file has been taken over, for example because the session ended, the container file that the job
+ * produced is deleted.
+ */
+public final class SigningJob {
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * Serialized signed container.
+     */
+    public record Result(SignedContainerFile containerFile) {
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String containerName;
+    private final CompletableFuture<Result> result;
+    private boolean resultTaken;
+    private boolean released;
+
+    SigningJob(String containerName, CompletableFuture<Result> result) {
+        this.containerName = containerName;
+        this.result = result;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getContainerName() {
+        return containerName;
+    }
+
+    public Status getStatus() {
+        if (!result.isDone()) {
+            return Status.PENDING;
+        }
+        return result.isCompletedExceptionally() ? Status.FAILED : Status.COMPLETED;
+    }
+
+    /**
+     * Returns the result of a completed job once. Subsequent calls return an empty optional, as the caller takes
+     * over the container file.
+     */
+    public synchronized Optional<Result> takeResult() {
+        if (resultTaken || released || getStatus() != Status.COMPLETED) {
+            return Optional.empty();
+        }
+        resultTaken = true;
+        return Optional.of(result.join());
+    }
+
+    /**
+     * Cancels the job and deletes the container file unless it has been taken over. A job that is already running
+     * deletes its file when it completes.
+     */
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        result.cancel(false);
+        if (!resultTaken && getStatus() == Status.COMPLETED) {
+            deleteFile(result.join());
+        }
+    }
+
+    static void deleteFile(Result completed) {
+        if (completed.containerFile() != null) {
+            completed.containerFile().delete();
+        }
+    }
+}
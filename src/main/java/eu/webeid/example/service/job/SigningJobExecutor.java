@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.job;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs signature finalization off the request threads.
+ * <p>
+ * Finalizing an LT-level signature fetches and validates an OCSP response and a time-stamp, which can take seconds
+ * when the services are slow. The jobs run on a fixed number of threads and wait in a bounded queue. When the
+ * queue is full, new jobs are rejected with {@link SigningCapacityExceededException}, so that a slow OCSP responder
+ * does not let the backlog grow without limit.
+ */
+public class SigningJobExecutor implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SigningJobExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public SigningJobExecutor(int threadCount, int queueCapacity) {
+        if (threadCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Signing job thread count and queue capacity must be positive");
+        }
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the task for execution.
+     *
+     * @param containerName name of the container that the task signs
+     * @param task          task that finalizes the signature and serializes the container
+     * @return job that tracks the task
+     * @throws SigningCapacityExceededException when the queue is full
+     */
+    public SigningJob submit(String containerName, Callable<SigningJob.Result> task) {
+        final CompletableFuture<SigningJob.Result> result = new CompletableFuture<>();
+        final SigningJob job = new SigningJob(containerName, result);
+        try {
+            executor.execute(() -> run(job, task, result));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new SigningCapacityExceededException("Too many signatures are being finalized, try again later");
+        }
+        return job;
+    }
+
+    public int queuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.signing.jobs.queued", this, SigningJobExecutor::queuedCount)
+                .description("Signing jobs waiting for a thread")
+                .register(registry);
+        Gauge.builder("webeid.signing.jobs.active", this, SigningJobExecutor::activeCount)
+                .description("Signing jobs that are being finalized")
+                .register(registry);
+        FunctionCounter.builder("webeid.signing.jobs.rejected", rejected, LongAdder::sum)
+                .description("Signing jobs rejected because the queue was full")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static void run(SigningJob job, Callable<SigningJob.Result> task, CompletableFuture<SigningJob.Result> result) {
+        // The job was released before it started.
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            final SigningJob.Result completed = task.call();
+            if (!result.complete(completed)) {
+                // The job was released while it was running.
+                SigningJob.deleteFile(completed);
+            }
+        } catch (Exception e) {
+            LOG.warn("Signing job {} for '{}' failed", job.getId(), job.getContainerName(), e);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "signing-job-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
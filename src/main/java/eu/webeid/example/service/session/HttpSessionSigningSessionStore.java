@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.session;
+
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.util.Optional;
+
+/**
+ * Signing session store that keeps the signing session as an attribute of the HTTP session.
+ */
+public class HttpSessionSigningSessionStore implements SigningSessionStore {
+
+    private static final String SESSION_ATTR_SIGNING_SESSION = "signing-session";
+
+    private final ObjectFactory<HttpSession> httpSessionFactory;
+
+    public HttpSessionSigningSessionStore(ObjectFactory<HttpSession> httpSessionFactory) {
+        this.httpSessionFactory = httpSessionFactory;
+    }
+
+    @Override
+    public void put(SigningSession signingSession) {
+        currentSession().setAttribute(SESSION_ATTR_SIGNING_SESSION, signingSession);
+    }
+
+    @Override
+    public Optional<SigningSession> get() {
+        return Optional.ofNullable((SigningSession) currentSession().getAttribute(SESSION_ATTR_SIGNING_SESSION));
+    }
+
+    @Override
+    public void remove() {
+        currentSession().removeAttribute(SESSION_ATTR_SIGNING_SESSION);
+    }
+
+    private HttpSession currentSession() {
+        return httpSessionFactory.getObject();
+    }
+}
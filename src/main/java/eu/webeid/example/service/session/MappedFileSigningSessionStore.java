@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.session;
+
+import eu.webeid.example.service.InstanceDirectories;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpSession;
+import org.digidoc4j.SignatureParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Signing session store that spills signing sessions to files in a directory and keeps only a small
+ * {@link SigningSessionHandle} in the HTTP session.
+ * <p>
+ * Only the fields of a signing session are written, which are the file name, the document ID, the data to sign and
+ * the signature parameters, so a file takes a few kilobytes whatever the size of the document. The container is
+ * rebuilt from the document when the signature is finalized. The files are read back through a memory-mapped
+ * buffer. Sessions that have not been accessed within the time-to-live are deleted by a background task. Storing a
+ * session that would make the files exceed the byte budget of the node fails with
+ * {@link SigningSessionStoreFullException}.
+ * <p>
+ * The directory must not be writable by other users, as the signature parameters are deserialized when read. The
+ * files are written to a subdirectory of this instance, see {@link InstanceDirectories}, which is deleted when the
+ * store is closed.
+ */
+public class MappedFileSigningSessionStore implements SigningSessionStore, MeterBinder, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileSigningSessionStore.class);
+
+    private static final String SESSION_ATTR_HANDLE = "signing-session-handle";
+    private static final String FILE_SUFFIX = ".signing-session";
+    private static final String TEMP_FILE_PREFIX = "signing-session-";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int ID_LENGTH = 16;
+    private static final Duration MAX_CLEANUP_INTERVAL = Duration.ofMinutes(1);
+
+    private final ObjectFactory<HttpSession> httpSessionFactory;
+    private final Path directory;
+    private final Duration timeToLive;
+    private final long budgetBytes;
+    private final Clock clock;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final ScheduledExecutorService cleaner;
+
+    public MappedFileSigningSessionStore(ObjectFactory<HttpSession> httpSessionFactory, Path directory,
+                                         Duration timeToLive, long budgetBytes) throws IOException {
+        this(httpSessionFactory, directory, timeToLive, budgetBytes, Clock.systemUTC());
+    }
+
+    MappedFileSigningSessionStore(ObjectFactory<HttpSession> httpSessionFactory, Path directory,
+                                  Duration timeToLive, long budgetBytes, Clock clock) throws IOException {
+        this.httpSessionFactory = httpSessionFactory;
+        this.directory = InstanceDirectories.create(directory);
+        this.timeToLive = timeToLive;
+        this.budgetBytes = budgetBytes;
+        this.clock = clock;
+
+        final long cleanupIntervalMillis = Math.max(1, Math.min(timeToLive.toMillis(), MAX_CLEANUP_INTERVAL.toMillis()));
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "signing-session-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::deleteExpired, cleanupIntervalMillis, cleanupIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void put(SigningSession signingSession) {
+        final HttpSession httpSession = currentSession();
+        final SigningSessionHandle handle = (SigningSessionHandle) httpSession.getAttribute(SESSION_ATTR_HANDLE);
+        final String id = handle != null ? handle.getId() : newId();
+        write(id, signingSession);
+        if (handle == null) {
+            httpSession.setAttribute(SESSION_ATTR_HANDLE, new SigningSessionHandle(id, this));
+        }
+    }
+
+    @Override
+    public Optional<SigningSession> get() {
+        final SigningSessionHandle handle = (SigningSessionHandle) currentSession().getAttribute(SESSION_ATTR_HANDLE);
+        if (handle == null || entries.computeIfPresent(handle.getId(), (id, entry) -> entry.touch(clock.instant())) == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(read(handle.getId()));
+        } catch (NoSuchFileException e) {
+            // Expired after the entry was touched.
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading signing session failed", e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        // Removing the handle deletes the file, see SigningSessionHandle.valueUnbound().
+        currentSession().removeAttribute(SESSION_ATTR_HANDLE);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long storedBytes() {
+        return storedBytes.get();
+    }
+
+    /**
+     * Deletes the spilled signing sessions that have not been accessed within the time-to-live.
+     */
+    void deleteExpired() {
+        final Instant expiredBefore = clock.instant().minus(timeToLive);
+        entries.forEach((id, entry) -> {
+            if (entry.lastAccess().isBefore(expiredBefore) && entries.remove(id, entry)) {
+                storedBytes.addAndGet(-entry.size());
+                deleteFile(id);
+            }
+        });
+    }
+
+    void delete(String id) {
+        final Entry entry = entries.remove(id);
+        if (entry != null) {
+            storedBytes.addAndGet(-entry.size());
+        }
+        deleteFile(id);
+    }
+
+    @Override
+    public void close() {
+        cleaner.shutdownNow();
+        entries.keySet().forEach(this::delete);
+        InstanceDirectories.delete(directory);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.signing.sessions.stored", this, MappedFileSigningSessionStore::size)
+                .description("Number of signing sessions spilled to files")
+                .register(registry);
+        Gauge.builder("webeid.signing.sessions.stored.bytes", this, MappedFileSigningSessionStore::storedBytes)
+                .description("Total size of the spilled signing session files")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("webeid.signing.sessions.rejected", rejected, LongAdder::sum)
+                .description("Signing sessions rejected because the byte budget was exceeded")
+                .register(registry);
+    }
+
+    private void write(String id, SigningSession signingSession) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(directory, TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeUTF(signingSession.fileName());
+                out.writeUTF(signingSession.documentId());
+                out.writeInt(signingSession.dataToSign().length);
+                out.write(signingSession.dataToSign());
+                out.writeObject(signingSession.signatureParameters());
+            }
+            final long size = Files.size(tempFile);
+            final Path source = tempFile;
+            entries.compute(id, (key, previous) -> {
+                final long delta = size - (previous != null ? previous.size() : 0);
+                reserve(delta);
+                try {
+                    Files.move(source, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    storedBytes.addAndGet(-delta);
+                    throw new UncheckedIOException("Writing signing session failed", e);
+                }
+                return new Entry(size, clock.instant());
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing signing session failed", e);
+        } finally {
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    private void reserve(long delta) {
+        if (storedBytes.addAndGet(delta) > budgetBytes && delta > 0) {
+            storedBytes.addAndGet(-delta);
+            rejected.increment();
+            throw new SigningSessionStoreFullException("Signing session store is full, try again later");
+        }
+    }
+
+    private SigningSession read(String id) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(id), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+                final String fileName = in.readUTF();
+                final String documentId = in.readUTF();
+                final byte[] dataToSign = new byte[in.readInt()];
+                in.readFully(dataToSign);
+                return new SigningSession(fileName, documentId, (SignatureParameters) in.readObject(), dataToSign);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Signing session file contains an unknown class", e);
+            }
+        }
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + FILE_SUFFIX);
+    }
+
+    private String newId() {
+        final byte[] id = new byte[ID_LENGTH];
+        secureRandom.nextBytes(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+    }
+
+    private void deleteFile(String id) {
+        deleteQuietly(file(id));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete signing session file {}", file, e);
+        }
+    }
+
+    private record Entry(long size, Instant lastAccess) {
+        Entry touch(Instant now) {
+            return new Entry(size, now);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.session;
+
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Server-side registry of resources that belong to an HTTP session, such as document references and temporary files,
+ * which cannot be serialized with the session. The resources are kept in the registry keyed by a random ID and only
+ * a small {@link SessionResourceHandle} with the ID is kept in the HTTP session under the attribute name of the
+ * registry. A resource is released when its handle is replaced or removed or when the HTTP session ends.
+ *
+ * @param <T> type of the resources
+ */
+public final class SessionResourceRegistry<T> {
+
+    private final String attributeName;
+    private final Consumer<? super T> releaser;
+    private final Map<String, T> resources = new ConcurrentHashMap<>();
+
+    /**
+     * @param attributeName name of the HTTP session attribute that holds the handle
+     * @param releaser      releases a resource when it is removed from the registry
+     */
+    public SessionResourceRegistry(String attributeName, Consumer<? super T> releaser) {
+        this.attributeName = attributeName;
+        this.releaser = releaser;
+    }
+
+    /**
+     * Registers the resource for the HTTP session. The previous resource of the session is released.
+     */
+    public void put(HttpSession session, T resource) {
+        final String id = UUID.randomUUID().toString();
+        resources.put(id, resource);
+        // Replacing the handle releases the previous resource, see SessionResourceHandle.valueUnbound().
+        session.setAttribute(attributeName, new SessionResourceHandle(id, this));
+    }
+
+    /**
+     * Returns the resource of the HTTP session. The resource is not found when the session was deserialized on
+     * another node or after a restart, as the resources are kept in memory.
+     */
+    public Optional<T> get(HttpSession session) {
+        final SessionResourceHandle handle = (SessionResourceHandle) session.getAttribute(attributeName);
+        return handle != null ? Optional.ofNullable(resources.get(handle.getId())) : Optional.empty();
+    }
+
+    /**
+     * Removes and releases the resource of the HTTP session.
+     */
+    public void remove(HttpSession session) {
+        session.removeAttribute(attributeName);
+    }
+
+    public int size() {
+        return resources.size();
+    }
+
+    void release(String id) {
+        final T resource = resources.remove(id);
+        if (resource != null) {
+            releaser.accept(resource);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.session;
+
+import org.digidoc4j.Container;
+import org.digidoc4j.DataToSign;
+import org.digidoc4j.SignatureFinalizerBuilder;
+import org.digidoc4j.SignatureParameters;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * State of a pending signature between the prepare and sign requests.
+ * <p>
+ * The container and the document are not part of the state. The container is rebuilt from the document when the
+ * signature is finalized, so the state stays small whatever the size of the document.
+ *
+ * @param fileName            name of the signed file
+ * @param documentId          hex-encoded SHA-256 digest of the signed file, which is its ID in the document store
+ * @param signatureParameters parameters of the pending signature, including the signing certificate and time
+ * @param dataToSign          data to sign of the pending signature
+ */
+public record SigningSession(String fileName, String documentId, SignatureParameters signatureParameters,
+                             byte[] dataToSign) implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    public static SigningSession of(String fileName, String documentId, DataToSign dataToSign) {
+        return new SigningSession(fileName, documentId, dataToSign.getSignatureParameters(), dataToSign.getDataToSign());
+    }
+
+    /**
+     * Restores the data to sign over the container that was rebuilt from the signed file.
+     */
+    public DataToSign toDataToSign(Container container) {
+        return new DataToSign(dataToSign, SignatureFinalizerBuilder.aFinalizer(container, signatureParameters));
+    }
+}
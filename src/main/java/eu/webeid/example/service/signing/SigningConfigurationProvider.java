@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.signing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.digidoc4j.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Provides the DigiDoc4j configuration for signing with the trusted lists already loaded.
+ * <p>
+ * DigiDoc4j loads the trusted lists (LOTL and the national TSLs) lazily on the first signature, which delays the
+ * first signature after startup by several seconds. When warm-up is enabled, the trusted lists are loaded in the
+ * background at startup and then refreshed periodically. Each refresh loads the lists into a new configuration and
+ * swaps it in only when loading succeeded, so signatures never wait for a refresh and a failed refresh keeps the
+ * previous lists. Until the first load has completed, {@link #health()} reports {@code OUT_OF_SERVICE}, which keeps
+ * the node out of the load balancer through the readiness probe.
+ * <p>
+ * DigiDoc4j keeps the downloaded lists in its file cache, so a restarted node reads them from disk while they are
+ * fresh.
+ */
+public class SigningConfigurationProvider implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SigningConfigurationProvider.class);
+
+    private final Supplier<Configuration> configurationFactory;
+    private final Clock clock;
+    private final ScheduledExecutorService refresher;
+    private final LongAdder refreshFailures = new LongAdder();
+    private volatile Configuration configuration;
+    private volatile Instant lastRefresh;
+    private volatile int trustedCertificateCount;
+
+    /**
+     * @param configurationFactory creates a new configuration with the trusted lists not yet loaded
+     * @param warmUp               whether to load the trusted lists in the background instead of on first use
+     * @param refreshInterval      interval between background refreshes
+     */
+    public SigningConfigurationProvider(Supplier<Configuration> configurationFactory, boolean warmUp, Duration refreshInterval) {
+        this(configurationFactory, warmUp, refreshInterval, Clock.systemUTC());
+    }
+
+    SigningConfigurationProvider(Supplier<Configuration> configurationFactory, boolean warmUp, Duration refreshInterval, Clock clock) {
+        if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("Trusted list refresh interval must be positive");
+        }
+        this.configurationFactory = configurationFactory;
+        this.clock = clock;
+        // Until the warm-up completes, the trusted lists are loaded on first use as before.
+        this.configuration = configurationFactory.get();
+        if (warmUp) {
+            refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "trusted-list-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            refresher = null;
+        }
+    }
+
+    public Configuration get() {
+        return configuration;
+    }
+
+    /**
+     * Loads the trusted lists into a new configuration and makes it the current configuration.
+     *
+     * @return whether the trusted lists were loaded
+     */
+    public boolean refresh() {
+        final long start = System.nanoTime();
+        try {
+            final Configuration next = configurationFactory.get();
+            next.getTSL().refresh();
+            final int certificateCount = next.getTSL().getCertificates().size();
+            configuration = next;
+            trustedCertificateCount = certificateCount;
+            lastRefresh = clock.instant();
+            LOG.info("Loaded {} trusted list certificates in {} ms", certificateCount,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            LOG.warn("Failed to load trusted lists, keeping the previous ones", e);
+            return false;
+        }
+    }
+
+    public boolean isWarmedUp() {
+        return lastRefresh != null;
+    }
+
+    /**
+     * Returns {@code UP} when the trusted lists have been loaded or warm-up is disabled, {@code OUT_OF_SERVICE}
+     * otherwise.
+     */
+    public Health health() {
+        if (refresher == null) {
+            return Health.up().withDetail("warmUp", false).build();
+        }
+        final Instant refreshed = lastRefresh;
+        if (refreshed == null) {
+            return Health.outOfService().withDetail("refreshFailures", refreshFailures.sum()).build();
+        }
+        return Health.up()
+                .withDetail("lastRefresh", refreshed.toString())
+                .withDetail("certificates", trustedCertificateCount)
+                .withDetail("refreshFailures", refreshFailures.sum())
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.tsl.certificates", this, provider -> provider.trustedCertificateCount)
+                .description("Certificates in the loaded trusted lists")
+                .register(registry);
+        FunctionCounter.builder("webeid.tsl.refresh.failures", refreshFailures, LongAdder::sum)
+                .description("Failed trusted list loads")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
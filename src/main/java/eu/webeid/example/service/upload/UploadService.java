@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.upload;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.webeid.example.service.InstanceDirectories;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receives file uploads by streaming the {@code multipart/form-data} request body straight to a temporary file,
+ * computing the SHA-256, SHA-384 and SHA-512 digests of the file content while it is written. The body is parsed
+ * with the streaming API of Apache Commons FileUpload, which does not buffer the parts in memory or on disk.
+ * <p>
+ * Each upload may be at most the maximum upload size. The bytes of all uploads that are being received at the same
+ * time are limited by the maximum in-flight size: an upload reserves its request content length (or the maximum
+ * upload size if the length is not known) before it reads the body, and waits for other uploads to complete when
+ * the reservation does not fit. Waiting stops reading from the connection, which pushes back on the clients.
+ * <p>
+ * The temporary files are written to a subdirectory of this instance, see {@link InstanceDirectories}, which is
+ * deleted when the service is closed.
+ */
+public class UploadService implements MeterBinder, AutoCloseable {
+
+    private static final String FILE_PART_NAME = "file";
+    private static final String DEFAULT_FILE_NAME = "upload";
+    private static final String TEMP_FILE_PREFIX = "upload-";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Allowance for the boundaries and part headers in the request body.
+    private static final long MULTIPART_OVERHEAD_BYTES = 16 * 1024;
+    private static final List<DigestAlgorithm> DIGEST_ALGORITHMS =
+            List.of(DigestAlgorithm.SHA256, DigestAlgorithm.SHA384, DigestAlgorithm.SHA512);
+
+    private final JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> fileUpload = new JakartaServletFileUpload<>();
+    private final Path directory;
+    private final long maxUploadBytes;
+    private final int maxInFlightKibibytes;
+    private final Duration inFlightWaitTimeout;
+    private final Semaphore inFlightKibibytes;
+    private final LongAdder rejectedTooLarge = new LongAdder();
+    private final LongAdder rejectedCapacity = new LongAdder();
+
+    public UploadService(Path directory, long maxUploadBytes, long maxInFlightBytes, Duration inFlightWaitTimeout) throws IOException {
+        this.directory = InstanceDirectories.create(directory);
+        this.maxUploadBytes = maxUploadBytes;
+        this.maxInFlightKibibytes = toKibibytes(maxInFlightBytes);
+        this.inFlightWaitTimeout = inFlightWaitTimeout;
+        this.inFlightKibibytes = new Semaphore(maxInFlightKibibytes, true);
+        // Browsers send the file name in UTF-8 and the request does not declare a character encoding.
+        fileUpload.setHeaderCharset(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receives the file in the {@value #FILE_PART_NAME} part of the request body.
+     *
+     * @param request request with a {@code multipart/form-data} body that has not been read
+     * @return uploaded file, which the caller must delete when it is no longer needed
+     */
+    public UploadedFile receive(HttpServletRequest request) throws IOException {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new MalformedUploadException("Request body must be multipart/form-data");
+        }
+        final long contentLength = request.getContentLengthLong();
+        if (contentLength > maxUploadBytes + MULTIPART_OVERHEAD_BYTES) {
+            throw tooLarge();
+        }
+
+        final int permits = Math.min(toKibibytes(contentLength >= 0 ? contentLength : maxUploadBytes), maxInFlightKibibytes);
+        acquire(permits);
+        try {
+            final FileItemInputIterator parts = fileUpload.getItemIterator(request);
+            while (parts.hasNext()) {
+                final FileItemInput part = parts.next();
+                if (FILE_PART_NAME.equals(part.getFieldName()) && !part.isFormField()) {
+                    return write(part);
+                }
+            }
+            throw new MalformedUploadException("Request body does not contain a file in the '" + FILE_PART_NAME + "' part");
+        } catch (FileUploadException e) {
+            throw new MalformedUploadException("Request body is not a valid multipart/form-data body: " + e.getMessage());
+        } finally {
+            inFlightKibibytes.release(permits);
+        }
+    }
+
+    public long inFlightBytes() {
+        return (long) (maxInFlightKibibytes - inFlightKibibytes.availablePermits()) * 1024;
+    }
+
+    @Override
+    public void close() {
+        InstanceDirectories.delete(directory);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("webeid.uploads.in.flight.bytes", this, UploadService::inFlightBytes)
+                .description("Bytes reserved by the uploads that are being received")
+                .baseUnit("bytes")
+                .register(registry);
+        bindRejectedCounter(registry, rejectedTooLarge, "too-large");
+        bindRejectedCounter(registry, rejectedCapacity, "capacity");
+    }
+
+    private static void bindRejectedCounter(MeterRegistry registry, LongAdder counter, String reason) {
+        FunctionCounter.builder("webeid.uploads.rejected", counter, LongAdder::sum)
+                .tag("reason", reason)
+                .description("Rejected uploads by reason")
+                .register(registry);
+    }
+
+    private UploadedFile write(FileItemInput part) throws IOException {
+        final Map<DigestAlgorithm, MessageDigest> messageDigests = new EnumMap<>(DigestAlgorithm.class);
+        DIGEST_ALGORITHMS.forEach(algorithm -> messageDigests.put(algorithm, algorithm.getMessageDigest()));
+
+        final Path file = Files.createTempFile(directory, TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+        try {
+            long size = 0;
+            try (InputStream content = part.getInputStream(); OutputStream out = Files.newOutputStream(file)) {
+                final byte[] chunk = new byte[CHUNK_SIZE];
+                for (int read = content.read(chunk); read >= 0; read = content.read(chunk)) {
+                    size += read;
+                    if (size > maxUploadBytes) {
+                        throw tooLarge();
+                    }
+                    for (MessageDigest messageDigest : messageDigests.values()) {
+                        messageDigest.update(chunk, 0, read);
+                    }
+                    out.write(chunk, 0, read);
+                }
+            }
+            if (size == 0) {
+                throw new MalformedUploadException("Uploaded file is empty");
+            }
+
+            final Map<DigestAlgorithm, byte[]> digests = new EnumMap<>(DigestAlgorithm.class);
+            messageDigests.forEach((algorithm, messageDigest) -> digests.put(algorithm, messageDigest.digest()));
+            final String contentType = part.getContentType() != null && !part.getContentType().isBlank()
+                    ? part.getContentType() : MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE;
+            return new UploadedFile(file, fileName(part.getName()), contentType, size, digests);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private void acquire(int permits) throws InterruptedIOException {
+        try {
+            if (!inFlightKibibytes.tryAcquire(permits, inFlightWaitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejectedCapacity.increment();
+                throw new UploadCapacityExceededException("Too many uploads in progress, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for upload capacity");
+        }
+    }
+
+    private UploadTooLargeException tooLarge() {
+        rejectedTooLarge.increment();
+        return new UploadTooLargeException("Uploaded file must not be larger than " + maxUploadBytes + " bytes");
+    }
+
+    /**
+     * Returns the file name without any path that the client may have sent and without control characters.
+     */
+    private static String fileName(String uploadedFileName) {
+        final String name = FilenameUtils.getName(uploadedFileName).replaceAll("\\p{Cntrl}", "").trim();
+        return name.isEmpty() ? DEFAULT_FILE_NAME : name;
+    }
+
+    private static int toKibibytes(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + 1023) / 1024);
+    }
+}
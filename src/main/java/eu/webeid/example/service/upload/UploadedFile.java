@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.upload;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import org.digidoc4j.DataFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * File that was uploaded to a temporary file, together with the digests of its content that were computed while
+ * it was written.
+ * <p>
+ * The owner of the uploaded file must delete the temporary file when it is no longer needed.
+ */
+public final class UploadedFile {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadedFile.class);
+
+    private final Path path;
+    private final String name;
+    private final String contentType;
+    private final long size;
+    private final Map<DigestAlgorithm, byte[]> digests;
+
+    UploadedFile(Path path, String name, String contentType, long size, Map<DigestAlgorithm, byte[]> digests) {
+        this.path = path;
+        this.name = name;
+        this.contentType = contentType;
+        this.size = size;
+        this.digests = Map.copyOf(digests);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the digest of the content, or {@code null} if it was not computed during the upload.
+     */
+    public byte[] getDigest(DigestAlgorithm digestAlgorithm) {
+        final byte[] digest = digests.get(digestAlgorithm);
+        return digest != null ? digest.clone() : null;
+    }
+
+    /**
+     * Creates a data file that reads the content from the uploaded file instead of memory.
+     */
+    public DataFile toDataFile() {
+        return new DataFile(new UploadedFileDssDocument(this));
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete uploaded file {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Access to the OpenTelemetry tracer of the application spans.
+ * <p>
+ * The {@link OpenTelemetry} instance is configured by Spring Boot, which exports the spans with the
+ * {@code SpanExporter} beans and propagates the W3C trace context of incoming requests. Components that are
+ * created without it, for example in benchmarks, use a no-op tracer.
+ */
+public final class Tracing {
+
+    public static final String INSTRUMENTATION_SCOPE = "eu.webeid.example";
+
+    private Tracing() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static OpenTelemetry openTelemetry(ObjectProvider<OpenTelemetry> openTelemetry) {
+        return openTelemetry.getIfAvailable(OpenTelemetry::noop);
+    }
+
+    public static Tracer tracer(OpenTelemetry openTelemetry) {
+        return openTelemetry.getTracer(INSTRUMENTATION_SCOPE);
+    }
+
+    public static Tracer tracer(ObjectProvider<OpenTelemetry> openTelemetry) {
+        return tracer(openTelemetry(openTelemetry));
+    }
+
+    /**
+     * Marks the span as failed with the exception.
+     */
+    public static void recordFailure(Span span, Throwable failure) {
+        span.recordException(failure);
+        span.setStatus(StatusCode.ERROR, failure.getClass().getSimpleName());
+    }
+}
@@ -22,8 +22,12 @@
 
 package eu.webeid.example.web.rest;
 
+import eu.webeid.example.jfr.ChallengeNonceGenerationEvent;
+import eu.webeid.example.metrics.Instrumentation;
+import eu.webeid.example.metrics.TaggedTimers;
 import eu.webeid.example.service.dto.ChallengeDTO;
 import eu.webeid.security.challenge.ChallengeNonceGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -33,15 +37,23 @@ import org.springframework.web.bind.annotation.RestController;
 public class ChallengeController {
 
     private final ChallengeNonceGenerator challengeNonceGenerator;
+    private final TaggedTimers challengeTimers;
 
-    public ChallengeController(ChallengeNonceGenerator challengeNonceGenerator) {
+    public ChallengeController(ChallengeNonceGenerator challengeNonceGenerator, MeterRegistry meterRegistry) {
         this.challengeNonceGenerator = challengeNonceGenerator;
+        this.challengeTimers = new TaggedTimers(meterRegistry, "webeid.challenge",
+                "Challenge nonce generation and storage", "outcome", "reason");
     }
 
     @GetMapping("challenge")
     public ChallengeDTO challenge() {
         final ChallengeDTO challenge = new ChallengeDTO();
-        challenge.setNonce(challengeNonceGenerator.generateAndStoreNonce().getBase64EncodedNonce());
+        challenge.setNonce(Instrumentation.call(
+                () -> challengeNonceGenerator.generateAndStoreNonce().getBase64EncodedNonce(),
+                new ChallengeNonceGenerationEvent(), (event, nonce) -> {
+                    event.setGenerator(challengeNonceGenerator.getClass().getSimpleName());
+                    event.setNonceSize(nonce != null ? nonce.length() : 0);
+                }, null, challengeTimers));
         return challenge;
     }
 }
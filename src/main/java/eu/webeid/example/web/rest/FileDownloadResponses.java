@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.web.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Builds download responses for files with conditional request and single byte range support.
+ * <p>
+ * The file is opened before the response is returned and transferred to the response output stream with
+ * {@link FileChannel#transferTo} from a {@link StreamingResponseBody}, so the file content does not pass through the
+ * heap as a whole. As the open channel keeps the content readable when the file is deleted, a concurrent request
+ * that replaces the file in the session does not truncate a download that has already started. Tomcat sendfile is
+ * not used, because it opens the file by name only after the response has been returned.
+ * <p>
+ * The channel is closed by the response body after the transfer. In case the body is never written, for example
+ * when the async dispatch times out or the client disconnects before the body runs, the channel is also closed when
+ * the asynchronous request processing completes. Closing a channel twice has no effect.
+ */
+final class FileDownloadResponses {
+
+    private FileDownloadResponses() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns the response to a download request for the file, or {@code null} if the conditional request headers
+     * already determined the response status. The file is opened here, before the response is returned.
+     *
+     * @param eTag strong entity tag of the file content, or {@code null} if not known
+     */
+    static ResponseEntity<StreamingResponseBody> download(HttpServletRequest request, HttpServletResponse response,
+                                                          Path file, long length, Instant lastModified, String eTag,
+                                                          MediaType contentType, String contentDisposition) throws IOException {
+        // Handles If-None-Match, If-Modified-Since and If-Unmodified-Since, setting 304 or 412 on the response.
+        // Also sets the ETag and Last-Modified headers on the response, so they are not repeated below.
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified.toEpochMilli())) {
+            return null;
+        }
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        final HttpRange range = requestedRange(request, lastModified, eTag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        final long count = end - start + 1;
+        headers.setContentLength(count);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return new ResponseEntity<>(headers, status);
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        closeOnCompletion(request, channel);
+        final long position = start;
+        return new ResponseEntity<>(out -> transfer(channel, file, position, count, Channels.newChannel(out)),
+                headers, status);
+    }
+
+    /**
+     * Returns the single byte range that the request asks for, or {@code null} if the full file should be sent.
+     * Requests for several ranges are answered with the full file.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, Instant lastModified, String eTag) {
+        final String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !HttpMethod.GET.matches(request.getMethod())) {
+            return null;
+        }
+        final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(eTag) && !isSameDate(ifRange, lastModified)) {
+            return null;
+        }
+        try {
+            final List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            // Invalid Range headers are ignored.
+            return null;
+        }
+    }
+
+    private static boolean isSameDate(String httpDate, Instant instant) {
+        try {
+            return ZonedDateTime.parse(httpDate, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                    .equals(instant);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static void closeOnCompletion(HttpServletRequest request, FileChannel channel) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(channel,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) throws IOException {
+                        channel.close();
+                    }
+                });
+    }
+
+    private static void transfer(FileChannel channel, Path file, long position, long count,
+                                 WritableByteChannel target) throws IOException {
+        try (channel) {
+            long transferred = 0;
+            while (transferred < count) {
+                final long written = channel.transferTo(position + transferred, count - transferred, target);
+                if (written <= 0) {
+                    throw new IOException("File is shorter than expected: " + file);
+                }
+                transferred += written;
+            }
+        }
+    }
+}
@@ -24,24 +24,36 @@ package eu.webeid.example.web.rest;
 
 import eu.webeid.example.security.WebEidAuthentication;
 import eu.webeid.example.service.SigningService;
+import eu.webeid.example.service.container.SignedContainerFile;
 import eu.webeid.example.service.dto.CertificateDTO;
 import eu.webeid.example.service.dto.DigestDTO;
 import eu.webeid.example.service.dto.FileDTO;
 import eu.webeid.example.service.dto.SignatureDTO;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import eu.webeid.example.service.dto.SigningJobDTO;
+import eu.webeid.example.service.job.SigningJob;
+import eu.webeid.example.service.upload.UploadService;
+import eu.webeid.example.service.upload.UploadedFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.Base64;
 
 import static eu.webeid.example.security.AuthTokenDTOAuthenticationProvider.ROLE_USER;
 
@@ -50,10 +62,16 @@ import static eu.webeid.example.security.AuthTokenDTOAuthenticationProvider.ROLE
 @Secured(ROLE_USER)
 public class SigningController {
 
+    private static final String ASIC_E_CONTENT_TYPE = "application/vnd.etsi.asic-e+zip";
+    private static final String REPR_DIGEST_HEADER = "Repr-Digest";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     private final SigningService signingService;
+    private final UploadService uploadService;
 
-    public SigningController(SigningService signingService) {
+    public SigningController(SigningService signingService, UploadService uploadService) {
         this.signingService = signingService;
+        this.uploadService = uploadService;
     }
 
     @PostMapping("prepare")
@@ -61,27 +79,53 @@ public class SigningController {
         return signingService.prepareContainer(data, authentication);
     }
 
+    /**
+     * Finalizes the signature. When asynchronous signing is enabled, responds with {@code 202 Accepted} and the
+     * signing job status, which the client polls at the {@code Location} until the job has completed.
+     */
     @PostMapping("sign")
-    public FileDTO sign(@RequestBody SignatureDTO data) {
-        return signingService.signContainer(data);
+    public ResponseEntity<?> sign(@RequestBody SignatureDTO data) throws IOException {
+        if (signingService.isAsyncSigning()) {
+            final SigningJobDTO job = signingService.startSigningJob(data);
+            return ResponseEntity.accepted()
+                    .location(URI.create("jobs/" + job.getJobId()))
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(job);
+        }
+        return ResponseEntity.ok(signingService.signContainer(data));
     }
 
-    @GetMapping(value = "download", produces = "application/vnd.etsi.asic-e+zip")
-    public ResponseEntity<Resource> download() throws IOException {
-
-        ByteArrayResource resource = signingService.getSignedContainerAsResource();
-        return ResponseEntity.ok()
-                .contentLength(resource.contentLength())
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + signingService.getContainerName())
-                .body(resource);
+    @GetMapping(value = "jobs/{jobId}", produces = "application/json")
+    public ResponseEntity<SigningJobDTO> job(@PathVariable String jobId) {
+        final SigningJobDTO job = signingService.getSigningJob(jobId);
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (job.getStatus() == SigningJob.Status.PENDING) {
+            response.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        }
+        return response.body(job);
     }
 
-    /*  Here is an example endpoint that demonstrates how to handle file uploads.
-        See also resources/templates/welcome-with-file-upload-support.html.
+    /**
+     * Sends the signed container from a file without loading it into memory. Supports conditional requests and
+     * single byte ranges, so that interrupted downloads of large containers can be resumed. The strong entity tag
+     * and the {@code Repr-Digest} header (RFC 9530) carry the SHA-256 digest of the container.
+     */
+    @GetMapping(value = "download", produces = ASIC_E_CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> download(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final SignedContainerFile containerFile = signingService.getSignedContainerFile();
+        response.setHeader(REPR_DIGEST_HEADER, "sha-256=:" + Base64.getEncoder().encodeToString(containerFile.getSha256Digest()) + ":");
+        return FileDownloadResponses.download(request, response, containerFile.getPath(), containerFile.getSize(),
+                containerFile.getLastModified(), containerFile.getETag(), MediaType.parseMediaType(ASIC_E_CONTENT_TYPE),
+                ContentDisposition.attachment().filename(containerFile.getName(), StandardCharsets.UTF_8).build().toString());
+    }
 
-    @PostMapping(value = "upload", produces = "application/json")
-    public FileDTO upload(@RequestParam("file") MultipartFile multipartFile) throws IOException {
-        return signingService.createContainer(FileDTO.fromMultipartFile(multipartFile));
+    /**
+     * Receives the file to sign in the {@code file} part of a multipart request. The request body is streamed to a
+     * temporary file, see also resources/templates/welcome-with-file-upload-support.html.
+     */
+    @PostMapping(value = "upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = "application/json")
+    public FileDTO upload(HttpServletRequest request) throws IOException {
+        final UploadedFile uploadedFile = uploadService.receive(request);
+        return signingService.setFileToSign(uploadedFile);
     }
-    */
 }
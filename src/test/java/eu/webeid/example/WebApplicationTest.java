@@ -33,6 +33,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockHttpSession;
@@ -49,6 +50,7 @@ import eu.webeid.security.validator.certvalidators.SubjectCertificateNotRevokedV
 import java.security.cert.X509Certificate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @SpringBootTest
@@ -81,6 +83,18 @@ public class WebApplicationTest {
         System.out.println(response.getContentAsString());
     }
 
+    @Test
+    public void testPrometheusEndpoint_RequiresAuthentication() throws Exception {
+        // @formatter:off
+        MockHttpServletResponse response = mvcBuilder
+            .build()
+            .perform(get("/actuator/prometheus"))
+            .andReturn()
+            .getResponse();
+        // @formatter:on
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+
     @Test
     public void testHappyFlow_LoginPrepareSignDownload() throws Exception {
 
@@ -130,6 +144,14 @@ public class WebApplicationTest {
 
         response = HttpHelper.download(mvcBuilder, session);
         assertEquals(HttpStatus.OK.value(), response.getStatus());
-        assertEquals("attachment; filename=example-for-signing.asice", response.getHeader("Content-Disposition"));
+        ContentDisposition contentDisposition = ContentDisposition.parse(response.getHeader("Content-Disposition"));
+        assertTrue(contentDisposition.isAttachment());
+        assertEquals("example-for-signing.asice", contentDisposition.getFilename());
+        assertEquals(Long.parseLong(response.getHeader("Content-Length")), response.getContentAsByteArray().length);
+
+        // The container was serialized when it was signed, repeated downloads are served from the same file.
+        String eTag = response.getHeader("ETag");
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), HttpHelper.downloadIfNoneMatch(mvcBuilder, session, eTag).getStatus());
+        assertEquals(HttpStatus.OK.value(), HttpHelper.download(mvcBuilder, session).getStatus());
     }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.http;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.europa.esig.dss.model.DSSException;
+import eu.webeid.example.ocsp.SharedHttpOcspClient;
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedHttpClientTest {
+
+    private static final X509Certificate ISSUER_CERTIFICATE =
+            TestPki.selfSignedCertificate("CN=Test CA", TestPki.generateKeyPair());
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private OcspResponderStandIn responder;
+    private SharedHttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        responder = new OcspResponderStandIn();
+        httpClient = new SharedHttpClient(Duration.ofSeconds(1), Duration.ofSeconds(5), 4, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        responder.close();
+    }
+
+    @Test
+    void whenOcspRequestIsSent_thenResponseIsReturnedAndRequestIsTimed() throws Exception {
+        final SharedHttpOcspClient ocspClient = new SharedHttpOcspClient(httpClient);
+        final OCSPReq request = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, true);
+
+        final OCSPResp response = ocspClient.request(responder.getUri(), request);
+        ocspClient.request(responder.getUri(), request);
+
+        assertThat(response.getStatus()).isEqualTo(OCSPResp.SUCCESSFUL);
+        final Timer timer = registry.get("webeid.http.client.requests")
+                .tags("client", "auth-ocsp", "host", "127.0.0.1", "outcome", "SUCCESS")
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    @Test
+    void whenDataLoaderPosts_thenResponseBodyIsReturned() throws Exception {
+        final SharedHttpDataLoader dataLoader = new SharedHttpDataLoader(httpClient, "signing-ocsp", "application/ocsp-request");
+        final byte[] request = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, false).getEncoded();
+
+        final OCSPResp response = new OCSPResp(dataLoader.post(responder.getUri().toString(), request));
+
+        assertThat(response.getStatus()).isEqualTo(OCSPResp.SUCCESSFUL);
+        assertThat(responder.getRequestCount()).isOne();
+    }
+
+    @Test
+    void whenServerFails_thenDataLoaderThrowsDssExceptionAndOutcomeIsServerError() {
+        final SharedHttpDataLoader dataLoader = new SharedHttpDataLoader(httpClient, "signing-ocsp", "application/ocsp-request");
+
+        assertThatThrownBy(() -> dataLoader.post(responder.getUri().toString(), "not an OCSP request".getBytes(StandardCharsets.US_ASCII)))
+                .isInstanceOf(DSSException.class)
+                .hasMessageContaining("500");
+        assertThat(registry.get("webeid.http.client.requests").tag("outcome", "SERVER_ERROR").timer().count()).isOne();
+    }
+
+    @Test
+    void whenRequestIsSentInTrace_thenClientSpanIsRecordedAndPropagated() throws Exception {
+        final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+        final OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+                .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+        final SharedHttpClient tracedClient = new SharedHttpClient(Duration.ofSeconds(1), Duration.ofSeconds(5), 4,
+                new SimpleMeterRegistry(), openTelemetry);
+        final AtomicReference<String> traceparent = new AtomicReference<>();
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/tsa", exchange -> {
+            traceparent.set(exchange.getRequestHeaders().getFirst("traceparent"));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        final Span parent = openTelemetry.getTracer("test").spanBuilder("request").startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            tracedClient.send("signing-tsa", HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/tsa"))
+                    .POST(HttpRequest.BodyPublishers.noBody()));
+        } finally {
+            parent.end();
+            server.stop(0);
+        }
+
+        final SpanData clientSpan = exporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals("webeid.http.client"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(clientSpan.getKind()).isEqualTo(SpanKind.CLIENT);
+        assertThat(clientSpan.getParentSpanId()).isEqualTo(parent.getSpanContext().getSpanId());
+        assertThat(clientSpan.getAttributes().get(AttributeKey.stringKey("webeid.client"))).isEqualTo("signing-tsa");
+        assertThat(traceparent.get()).isEqualTo("00-" + clientSpan.getTraceId() + "-" + clientSpan.getSpanId() + "-01");
+    }
+
+    @Test
+    void whenHostIsUnreachable_thenOutcomeIsIoError() {
+        final SharedHttpDataLoader dataLoader = new SharedHttpDataLoader(httpClient, "signing-aia", null);
+
+        assertThatThrownBy(() -> dataLoader.get("http://127.0.0.1:1/ca.crt")).isInstanceOf(DSSException.class);
+        assertThat(registry.get("webeid.http.client.requests").tag("outcome", "IO_ERROR").timer().count()).isOne();
+    }
+
+    @Test
+    void whenFactoryIsDeserialized_thenItUsesOnlyTheBoundClient() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new SharedHttpDataLoaderFactory(httpClient, "signing-aia", null));
+        }
+        final SharedHttpDataLoaderFactory factory;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            factory = (SharedHttpDataLoaderFactory) in.readObject();
+        }
+
+        assertThatThrownBy(factory::create).isInstanceOf(IllegalStateException.class);
+        try (SharedHttpClientBinding ignored = SharedHttpClientBinding.bind(httpClient)) {
+            assertThat(factory.create()).isInstanceOf(SharedHttpDataLoader.class);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.jfr;
+
+import eu.webeid.example.ocsp.MeteredOcspClient;
+import eu.webeid.example.security.CertificateSubjectCache;
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.security.validator.ocsp.OcspClientImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebEidEventTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenSubjectIsParsedTwice_thenSecondEventIsCached() throws Exception {
+        final X509Certificate certificate = TestPki.selfSignedCertificate("CN=Test User, SERIALNUMBER=PNOEE-38001085718",
+                TestPki.generateKeyPair());
+        final CertificateSubjectCache cache = new CertificateSubjectCache(16);
+
+        final List<RecordedEvent> events = record("eu.webeid.example.CertificateSubjectParse", () -> {
+            cache.get(certificate);
+            cache.get(certificate);
+        });
+
+        assertThat(events).hasSize(2);
+        assertThat(events).extracting(event -> event.getBoolean("cached")).containsExactly(false, true);
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getString("outcome")).isEqualTo("SUCCESS");
+            assertThat(event.getLong("subjectSize")).isEqualTo(certificate.getSubjectX500Principal().getEncoded().length);
+        });
+    }
+
+    @Test
+    void whenOcspRequestIsSent_thenOcspStageIsRecorded() throws Exception {
+        final X509Certificate issuer = TestPki.selfSignedCertificate("CN=Test CA", TestPki.generateKeyPair());
+        try (OcspResponderStandIn responder = new OcspResponderStandIn()) {
+            final MeteredOcspClient client = new MeteredOcspClient(OcspClientImpl.build(Duration.ofSeconds(5)), new SimpleMeterRegistry());
+
+            final List<RecordedEvent> events = record("eu.webeid.example.AuthTokenValidation", () ->
+                    client.request(responder.getUri(), OcspResponderStandIn.createRequest(issuer, BigInteger.ONE, true)));
+
+            assertThat(events).singleElement().satisfies(event -> {
+                assertThat(event.getString("stage")).isEqualTo(AuthTokenValidationEvent.STAGE_OCSP);
+                assertThat(event.getString("outcome")).isEqualTo("SUCCESS");
+                assertThat(event.getLong("size")).isPositive();
+            });
+        }
+    }
+
+    private List<RecordedEvent> record(String eventName, RecordedAction action) throws Exception {
+        final Path file = directory.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .toList();
+    }
+
+    @FunctionalInterface
+    private interface RecordedAction {
+        void run() throws Exception;
+    }
+}
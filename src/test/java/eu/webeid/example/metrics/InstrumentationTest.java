@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.metrics;
+
+import eu.webeid.example.jfr.SigningPhaseEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstrumentationTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TaggedTimers timers = new TaggedTimers(registry, "webeid.test", "Test timer", "phase", "outcome", "reason");
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+
+    @Test
+    void whenOperationSucceeds_thenSuccessIsRecordedAndSpanIsCurrent() {
+        final Span span = tracerProvider.get("test").spanBuilder("webeid.test").startSpan();
+
+        final String result = Instrumentation.call(() -> Span.current().getSpanContext().getSpanId(),
+                new SigningPhaseEvent(), (event, value) -> event.setSize(value.length()), span, timers, "build");
+
+        assertThat(result).isEqualTo(span.getSpanContext().getSpanId());
+        assertThat(registry.get("webeid.test").tag("phase", "build").tag("outcome", "SUCCESS").tag("reason", "none")
+                .timer().count()).isOne();
+        assertThat(exporter.getFinishedSpanItems()).singleElement()
+                .satisfies(data -> assertThat(data.getStatus().getStatusCode()).isEqualTo(StatusCode.UNSET));
+    }
+
+    @Test
+    void whenOperationFails_thenFailureIsRecordedAndRethrown() {
+        final Span span = tracerProvider.get("test").spanBuilder("webeid.test").startSpan();
+
+        assertThatThrownBy(() -> Instrumentation.call(() -> {
+            throw new IOException("Disk full");
+        }, new SigningPhaseEvent(), (event, value) -> event.setSize(0), span, timers, "build"))
+                .isInstanceOf(IOException.class);
+
+        assertThat(registry.get("webeid.test").tag("phase", "build").tag("outcome", "FAILURE").tag("reason", "IOException")
+                .timer().count()).isOne();
+        final SpanData data = exporter.getFinishedSpanItems().get(0);
+        assertThat(data.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+        assertThat(data.getStatus().getDescription()).isEqualTo("IOException");
+    }
+
+    @Test
+    void whenOnlyTimersAreGiven_thenDurationIsRecorded() {
+        final TaggedTimers outcomeTimers = new TaggedTimers(registry, "webeid.outcome", "Test timer", "outcome", "reason");
+
+        assertThat(Instrumentation.call(() -> 42, outcomeTimers)).isEqualTo(42);
+
+        assertThat(registry.get("webeid.outcome").tag("outcome", "SUCCESS").timer().count()).isOne();
+    }
+}
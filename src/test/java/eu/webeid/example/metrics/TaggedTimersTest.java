@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaggedTimersTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TaggedTimers timers = new TaggedTimers(registry, "webeid.test", "Test timer", "outcome", "reason");
+
+    @Test
+    void whenSameTagValuesAreRecorded_thenOneTimerIsRegistered() {
+        timers.record(1_000, "SUCCESS", "none");
+        timers.record(2_000, "SUCCESS", "none");
+        timers.record(3_000, "FAILURE", "IOException");
+
+        assertThat(registry.get("webeid.test").timers()).hasSize(2);
+        assertThat(registry.get("webeid.test").tag("outcome", "SUCCESS").tag("reason", "none").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void whenTagValuesDoNotMatchTagKeys_thenRecordingFails() {
+        assertThatThrownBy(() -> timers.record(1_000, "SUCCESS")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.ocsp;
+
+import eu.webeid.example.testutil.MutableClock;
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import eu.webeid.security.validator.ocsp.OcspClientImpl;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingOcspClientTest {
+
+    private static final X509Certificate ISSUER_CERTIFICATE =
+            TestPki.selfSignedCertificate("CN=Test CA", TestPki.generateKeyPair());
+
+    private OcspResponderStandIn responder;
+    private MutableClock clock;
+    private OcspResponseCache cache;
+    private OcspClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        responder = new OcspResponderStandIn();
+        responder.setLatency(Duration.ofMillis(200));
+        clock = new MutableClock(Instant.now());
+        cache = new OcspResponseCache(2, Duration.ofMinutes(2), clock);
+        client = new CachingOcspClient(OcspClientImpl.build(Duration.ofSeconds(5)), cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        responder.close();
+    }
+
+    @Test
+    void whenRequestIsRepeated_thenResponseIsServedFromCache() throws Exception {
+        final OCSPReq request = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, false);
+        final OCSPResp first = client.request(responder.getUri(), request);
+
+        final long start = System.nanoTime();
+        final OCSPResp second = client.request(responder.getUri(), request);
+        final Duration cachedRequestDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(second.getEncoded()).isEqualTo(first.getEncoded());
+        assertThat(responder.getRequestCount()).isOne();
+        assertThat(cachedRequestDuration).isLessThan(Duration.ofMillis(200));
+        assertThat(cache.hitCount()).isOne();
+    }
+
+    @Test
+    void whenRequestHasNonce_thenCacheIsBypassed() throws Exception {
+        client.request(responder.getUri(), OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, true));
+        client.request(responder.getUri(), OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, true));
+
+        assertThat(responder.getRequestCount()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenNextUpdateHasPassed_thenResponseIsFetchedAgain() throws Exception {
+        responder.setNextUpdateAfter(Duration.ofSeconds(30));
+        final OCSPReq request = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, false);
+        client.request(responder.getUri(), request);
+
+        clock.advance(Duration.ofSeconds(31));
+        client.request(responder.getUri(), request);
+
+        assertThat(responder.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void whenResponseIsOlderThanMaxStaleness_thenResponseIsFetchedAgain() throws Exception {
+        final OCSPReq request = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, false);
+        client.request(responder.getUri(), request);
+
+        clock.advance(Duration.ofMinutes(2).plusSeconds(1));
+        client.request(responder.getUri(), request);
+
+        assertThat(responder.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void whenCacheIsFull_thenLeastRecentlyUsedResponseIsEvicted() throws Exception {
+        final OCSPReq first = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, false);
+        client.request(responder.getUri(), first);
+        client.request(responder.getUri(), OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.TWO, false));
+        client.request(responder.getUri(), OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.TEN, false));
+        client.request(responder.getUri(), first);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(responder.getRequestCount()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.ocsp;
+
+import eu.webeid.example.testutil.OcspResponderStandIn;
+import eu.webeid.example.testutil.TestPki;
+import eu.webeid.security.validator.ocsp.OcspClient;
+import eu.webeid.security.validator.ocsp.OcspClientImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeteredOcspClientTest {
+
+    private static final X509Certificate ISSUER_CERTIFICATE =
+            TestPki.selfSignedCertificate("CN=Test CA", TestPki.generateKeyPair());
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void whenResponderAnswers_thenRequestIsTimedAsSuccess() throws Exception {
+        try (OcspResponderStandIn responder = new OcspResponderStandIn()) {
+            final OcspClient client = new MeteredOcspClient(OcspClientImpl.build(Duration.ofSeconds(5)), registry);
+
+            client.request(responder.getUri(), OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, true));
+
+            assertThat(registry.get("webeid.ocsp.requests")
+                    .tags("host", "127.0.0.1", "outcome", "SUCCESS", "reason", "none")
+                    .timer().count()).isOne();
+        }
+    }
+
+    @Test
+    void whenDelegateFails_thenRequestIsTimedWithExceptionAsReason() throws Exception {
+        final OcspClient client = new MeteredOcspClient((url, request) -> {
+            throw new IOException("Connection refused");
+        }, registry);
+        final OCSPReq request = OcspResponderStandIn.createRequest(ISSUER_CERTIFICATE, BigInteger.ONE, true);
+
+        assertThatThrownBy(() -> client.request(URI.create("http://ocsp.example.org"), request))
+                .isInstanceOf(IOException.class);
+        assertThat(registry.get("webeid.ocsp.requests")
+                .tags("host", "ocsp.example.org", "outcome", "FAILURE", "reason", "IOException")
+                .timer().count()).isOne();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.profiling;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JfrProfilerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenRecordingRuns_thenFileIsReturnedAndApplicationSitesAreSummarized() throws Exception {
+        final JfrProfiler profiler = new JfrProfiler(directory, Duration.ofMinutes(1), 10 * 1024 * 1024);
+        final Thread worker = new Thread(JfrProfilerTest::spin);
+        worker.start();
+        try {
+            final Path file = profiler.record(Duration.ofSeconds(3), "profile");
+
+            try (RecordingFile recordingFile = new RecordingFile(file)) {
+                assertThat(recordingFile.hasMoreEvents()).isTrue();
+            }
+            Files.delete(file);
+        } finally {
+            worker.interrupt();
+            worker.join();
+        }
+
+        final JfrProfiler.Summary summary = profiler.getSummary();
+        assertThat(summary.running()).isFalse();
+        assertThat(summary.settings()).isEqualTo("profile");
+        assertThat(summary.topCpuSites())
+                .anySatisfy(site -> assertThat(site.site()).startsWith(JfrProfilerTest.class.getName() + ".spin"));
+    }
+
+    @Test
+    void whenRecordingIsRunning_thenAnotherRecordingIsRejected() throws Exception {
+        final JfrProfiler profiler = new JfrProfiler(directory, Duration.ofMinutes(1), 10 * 1024 * 1024);
+        final CompletableFuture<Path> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return profiler.record(Duration.ofSeconds(2), "default");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (profiler.getSummary() == null) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> profiler.record(Duration.ofSeconds(1), "default"))
+                .isInstanceOf(ProfilingInProgressException.class);
+        Files.delete(first.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void whenSettingsAreUnknown_thenRecordingIsRejected() {
+        final JfrProfiler profiler = new JfrProfiler(directory, Duration.ofMinutes(1), 10 * 1024 * 1024);
+
+        assertThatThrownBy(() -> profiler.record(Duration.ofSeconds(1), "/etc/custom.jfc"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(profiler.getSummary()).isNull();
+    }
+
+    private static void spin() {
+        long value = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            value += Long.numberOfTrailingZeros(value + System.nanoTime());
+        }
+        assertThat(value).isNotNegative();
+    }
+}
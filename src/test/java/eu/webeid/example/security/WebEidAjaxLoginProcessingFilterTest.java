@@ -22,35 +22,41 @@
 
 package eu.webeid.example.security;
 
+import eu.webeid.example.testutil.ObjectMother;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 
-import java.io.BufferedReader;
-import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class WebEidAjaxLoginProcessingFilterTest {
 
-    private static final String AUTH_TOKEN = "{\"auth-token\":" +
-            "{\"algorithm\":\"ES384\"," +
-            "\"certificate\":\"MIIEAzCCA2WgAwIBAgIQHWbVWxCkcYxbzz9nBzGrDzAKBggqhkjOPQQDBDBgMQswCQYDVQQGEwJFRTEbMBkGA1UECgwSU0sgSUQgU29sdXRpb25zIEFTMRcwFQYDVQRhDA5OVFJFRS0xMDc0NzAxMzEbMBkGA1UEAwwSVEVTVCBvZiBFU1RFSUQyMDE4MB4XDTE4MTAyMzE1MzM1OVoXDTIzMTAyMjIxNTk1OVowfzELMAkGA1UEBhMCRUUxKjAoBgNVBAMMIUrDlUVPUkcsSkFBSy1LUklTVEpBTiwzODAwMTA4NTcxODEQMA4GA1UEBAwHSsOVRU9SRzEWMBQGA1UEKgwNSkFBSy1LUklTVEpBTjEaMBgGA1UEBRMRUE5PRUUtMzgwMDEwODU3MTgwdjAQBgcqhkjOPQIBBgUrgQQAIgNiAAQ/u+9IncarVpgrACN6aRgUiT9lWC9H7llnxoEXe8xoCI982Md8YuJsVfRdeG5jwVfXe0N6KkHLFRARspst8qnACULkqFNat/Kj+XRwJ2UANeJ3Gl5XBr+tnLNuDf/UiR6jggHDMIIBvzAJBgNVHRMEAjAAMA4GA1UdDwEB/wQEAwIDiDBHBgNVHSAEQDA+MDIGCysGAQQBg5EhAQIBMCMwIQYIKwYBBQUHAgEWFWh0dHBzOi8vd3d3LnNrLmVlL0NQUzAIBgYEAI96AQIwHwYDVR0RBBgwFoEUMzgwMDEwODU3MThAZWVzdGkuZWUwHQYDVR0OBBYEFOTddHnA9rJtbLwhBNyn0xZTQGCMMGEGCCsGAQUFBwEDBFUwUzBRBgYEAI5GAQUwRzBFFj9odHRwczovL3NrLmVlL2VuL3JlcG9zaXRvcnkvY29uZGl0aW9ucy1mb3ItdXNlLW9mLWNlcnRpZmljYXRlcy8TAkVOMCAGA1UdJQEB/wQWMBQGCCsGAQUFBwMCBggrBgEFBQcDBDAfBgNVHSMEGDAWgBTAhJkpxE6fOwI09pnhClYACCk+ezBzBggrBgEFBQcBAQRnMGUwLAYIKwYBBQUHMAGGIGh0dHA6Ly9haWEuZGVtby5zay5lZS9lc3RlaWQyMDE4MDUGCCsGAQUFBzAChilodHRwOi8vYy5zay5lZS9UZXN0X29mX0VTVEVJRDIwMTguZGVyLmNydDAKBggqhkjOPQQDBAOBiwAwgYcCQgHYElkX4vn821JR41akI/lpexCnJFUf4GiOMbTfzAxpZma333R8LNrmI4zbzDp03hvMTzH49g1jcbGnaCcbboS8DAJBObenUp++L5VqldHwKAps61nM4V+TiLqD0jILnTzl+pV+LexNL3uGzUfvvDNLHnF9t6ygi8+Bsjsu3iHHyM1haKM=\"," +
-            "\"issuerApp\":\"https://web-eid.eu/web-eid-app/releases/2.0.0+976\"," +
-            "\"signature\":\"Z+r6IIx0lmXNTHrlJOTknVaOYszXba5ko1e8rjWJXd4nzIVsxeTps/Revg+tuKREkkIuIKhwvOnARdWV6vBmhjlpRUZn9aNPSDRP98T/0sPZgDp31hwsWfCAYnPzzYC9\"," +
-            "\"version\":\"web-eid:1\"}}";
-
     @Test
     void testAttemptAuthentication() throws Exception {
-        final HttpServletRequest request = mock(HttpServletRequest.class);
+        final HttpServletRequest request = loginRequest(ObjectMother.toJson(ObjectMother.mockAuthToken()));
         final HttpServletResponse response = mock(HttpServletResponse.class);
-        when(request.getMethod()).thenReturn(HttpMethod.POST.name());
-        when(request.getHeader("Content-type")).thenReturn("application/json");
-        when(request.getReader()).thenReturn(new BufferedReader(new StringReader(AUTH_TOKEN)));
 
         final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
 
@@ -58,4 +64,84 @@ class WebEidAjaxLoginProcessingFilterTest {
                 new WebEidAjaxLoginProcessingFilter("/auth/login", authenticationManager)
                         .attemptAuthentication(request, response));
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenBodyIsTooLarge_thenAuthenticationFailsBeforeValidation() throws Exception {
+        final String padding = "a".repeat(AuthTokenDTOReader.MAX_BODY_BYTES);
+        final HttpServletRequest request = loginRequest("{\"padding\":\"" + padding + "\"}");
+        final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+
+        assertThrows(AuthenticationServiceException.class, () ->
+                new WebEidAjaxLoginProcessingFilter("/auth/login", authenticationManager)
+                        .attemptAuthentication(request, mock(HttpServletResponse.class)));
+        verifyNoInteractions(authenticationManager);
+    }
+
+    @Test
+    void whenTokenFieldIsMalformed_thenAuthenticationFailsBeforeValidation() throws Exception {
+        final String json = ObjectMother.toJson(ObjectMother.mockAuthToken())
+                .replace("\"algorithm\":\"ES384\"", "\"algorithm\":\"none\"");
+        final HttpServletRequest request = loginRequest(json);
+        final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+
+        assertThrows(AuthenticationServiceException.class, () ->
+                new WebEidAjaxLoginProcessingFilter("/auth/login", authenticationManager)
+                        .attemptAuthentication(request, mock(HttpServletResponse.class)));
+        verifyNoInteractions(authenticationManager);
+    }
+
+    @Test
+    void whenConcurrencyLimitIsReached_thenAsyncLoginFailsWithoutWaiting() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        final WebEidAjaxLoginProcessingFilter filter = asyncFilter(tasks);
+        filter.doFilter(asyncLoginRequest(), new MockHttpServletResponse(), mock(FilterChain.class));
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(asyncLoginRequest(), response, mock(FilterChain.class));
+
+        assertEquals(1, tasks.size());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+    }
+
+    @Test
+    void whenAsyncLoginTimesOut_thenItFailsAndLateResultIsNotDispatched() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        final MockHttpServletRequest request = asyncLoginRequest();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        asyncFilter(tasks).doFilter(request, response, mock(FilterChain.class));
+
+        final MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext, request, response));
+        }
+        tasks.get(0).run();
+
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        assertNull(asyncContext.getDispatchedPath());
+    }
+
+    private static WebEidAjaxLoginProcessingFilter asyncFilter(List<Runnable> tasks) {
+        // The tasks are not run, so that the login stays in progress.
+        return new WebEidAjaxLoginProcessingFilter("/auth/login", mock(AuthenticationManager.class), tasks::add, 1,
+                Duration.ofSeconds(30));
+    }
+
+    private static MockHttpServletRequest asyncLoginRequest() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.POST.name(), "/auth/login");
+        request.setServletPath("/auth/login");
+        request.setAsyncSupported(true);
+        request.setContentType("application/json");
+        request.setContent(ObjectMother.toJson(ObjectMother.mockAuthToken()).getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static HttpServletRequest loginRequest(String body) throws Exception {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(HttpMethod.POST.name());
+        when(request.getHeader("Content-type")).thenReturn("application/json");
+        when(request.getContentLengthLong()).thenReturn(-1L);
+        when(request.getInputStream()).thenReturn(new DelegatingServletInputStream(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+        return request;
+    }
+}
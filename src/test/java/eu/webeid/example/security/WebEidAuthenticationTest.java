@@ -22,6 +22,8 @@
 
 package eu.webeid.example.security;
 
+import eu.webeid.example.testutil.ObjectMother;
+import eu.webeid.security.certificate.CertificateData;
 import eu.webeid.security.certificate.CertificateLoader;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.core.Authentication;
@@ -42,4 +44,29 @@ class WebEidAuthenticationTest {
         assertThat(authentication.getPrincipal()).isEqualTo("Testijad.ee isikutuvastus");
     }
 
+    @Test
+    void whenPersonalCertificate_thenSubjectFieldsMatchCertificateData() throws Exception {
+        final X509Certificate certificate = CertificateLoader.decodeCertificateFromBase64(
+                ObjectMother.mockAuthToken().getToken().getUnverifiedCertificate());
+        final WebEidAuthentication authentication = (WebEidAuthentication) WebEidAuthentication.fromCertificate(certificate, Collections.emptyList());
+        final CertificateSubject subject = authentication.getSubject();
+
+        assertThat(subject.getCommonName()).isEqualTo(CertificateData.getSubjectCN(certificate));
+        assertThat(subject.getGivenName()).isEqualTo(CertificateData.getSubjectGivenName(certificate));
+        assertThat(subject.getSurname()).isEqualTo(CertificateData.getSubjectSurname(certificate));
+        assertThat(subject.getIdCode()).isEqualTo(CertificateData.getSubjectIdCode(certificate));
+        assertThat(subject.getCountry()).isEqualTo(CertificateData.getSubjectCountryCode(certificate));
+        assertThat(authentication.getPrincipal()).isEqualTo("JAAK-KRISTJAN JÕEORG");
+    }
+
+    @Test
+    void whenSameCertificateIsSeenAgain_thenCachedSubjectIsReused() throws Exception {
+        final X509Certificate certificate = CertificateLoader.decodeCertificateFromBase64(ORGANIZATION_CERT);
+        final CertificateSubjectCache cache = new CertificateSubjectCache(16);
+
+        assertThat(cache.get(certificate)).isSameAs(cache.get(certificate));
+        assertThat(cache.hitCount()).isOne();
+        assertThat(cache.missCount()).isOne();
+    }
+
 }
\ No newline at end of file
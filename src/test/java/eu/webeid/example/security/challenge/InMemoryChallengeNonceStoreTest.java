@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.exceptions.ChallengeNonceNotFoundException;
+import eu.webeid.security.util.DateAndTime;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static eu.webeid.example.security.challenge.InMemoryChallengeNonceStore.CHALLENGE_KEY_COOKIE;
+import static eu.webeid.example.security.challenge.InMemoryChallengeNonceStore.CHALLENGE_KEY_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryChallengeNonceStoreTest {
+
+    private static final String NONCE = "12345678123456781234567812345678912356789123";
+
+    @AfterEach
+    void resetRequestAttributes() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void whenNonceIsPut_thenItIsReturnedOnceForTheIssuedKey() throws Exception {
+        try (InMemoryChallengeNonceStore store = new InMemoryChallengeNonceStore(Duration.ofMinutes(5), 1000)) {
+            final ChallengeNonce nonce = new ChallengeNonce(NONCE, DateAndTime.utcNow().plusMinutes(5));
+            final Cookie keyCookie = putInNewRequest(store, nonce);
+
+            bindRequest(requestWithCookie(keyCookie));
+            assertThat(store.getAndRemove()).isSameAs(nonce);
+            assertThat(store.size()).isZero();
+
+            bindRequest(requestWithCookie(keyCookie));
+            assertThatThrownBy(store::getAndRemove).isInstanceOf(ChallengeNonceNotFoundException.class);
+        }
+    }
+
+    @Test
+    void whenKeyIsSentInHeader_thenNonceIsFound() throws Exception {
+        try (InMemoryChallengeNonceStore store = new InMemoryChallengeNonceStore(Duration.ofMinutes(5), 1000)) {
+            final ChallengeNonce nonce = new ChallengeNonce(NONCE, DateAndTime.utcNow().plusMinutes(5));
+            final Cookie keyCookie = putInNewRequest(store, nonce);
+
+            final MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(CHALLENGE_KEY_HEADER, keyCookie.getValue());
+            bindRequest(request);
+            assertThat(store.getAndRemove()).isSameAs(nonce);
+        }
+    }
+
+    @Test
+    void whenNonceExpires_thenTimerWheelEvictsIt() throws Exception {
+        try (InMemoryChallengeNonceStore store = new InMemoryChallengeNonceStore(
+                Duration.ofMillis(200), 1000, Duration.ofMillis(10), Clock.systemUTC())) {
+            putInNewRequest(store, new ChallengeNonce(NONCE, DateAndTime.utcNow().plusNanos(Duration.ofMillis(50).toNanos())));
+            assertThat(store.size()).isOne();
+
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (store.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(store.size()).isZero();
+        }
+    }
+
+    private static Cookie putInNewRequest(InMemoryChallengeNonceStore store, ChallengeNonce nonce) {
+        final MockHttpServletResponse response = bindRequest(new MockHttpServletRequest());
+        store.put(nonce);
+        final Cookie keyCookie = response.getCookie(CHALLENGE_KEY_COOKIE);
+        assertThat(keyCookie).isNotNull();
+        assertThat(keyCookie.getSecure()).isTrue();
+        assertThat(keyCookie.getAttribute("SameSite")).isEqualTo("Strict");
+        return keyCookie;
+    }
+
+    private static MockHttpServletRequest requestWithCookie(Cookie cookie) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        return request;
+    }
+
+    private static MockHttpServletResponse bindRequest(MockHttpServletRequest request) {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        return response;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static eu.webeid.security.challenge.ChallengeNonceGenerator.NONCE_LENGTH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NoncePoolTest {
+
+    @Test
+    void whenPoolIsCreated_thenRefillThreadsFillItToCapacity() {
+        try (NoncePool pool = new NoncePool(64, 2)) {
+            awaitCondition(() -> pool.size() == 64);
+            assertThat(pool.capacity()).isEqualTo(64);
+            assertThat(pool.isRefilling()).isTrue();
+        }
+    }
+
+    @Test
+    void whenNoncesAreTaken_thenPoolIsRefilled() {
+        try (NoncePool pool = new NoncePool(16, 1)) {
+            awaitCondition(() -> pool.size() == 16);
+            for (int i = 0; i < 16; i++) {
+                pool.take();
+            }
+            assertThat(pool.hitCount()).isEqualTo(16);
+
+            awaitCondition(() -> pool.size() == 16);
+            assertThat(pool.missCount()).isZero();
+        }
+    }
+
+    @Test
+    void whenPoolIsEmpty_thenNonceIsGeneratedOnCallingThreadWithoutBlocking() {
+        final NoncePool pool = new NoncePool(4, 1);
+        pool.close();
+        final int pooled = pool.size();
+        for (int i = 0; i < pooled; i++) {
+            pool.take();
+        }
+        assertThat(pool.size()).isZero();
+
+        final byte[] nonce = pool.take();
+
+        assertThat(nonce).hasSize(NONCE_LENGTH);
+        assertThat(pool.hitCount()).isEqualTo(pooled);
+        assertThat(pool.missCount()).isOne();
+    }
+
+    @Test
+    void whenPoolIsClosed_thenRefillThreadsStop() throws InterruptedException {
+        final NoncePool pool = new NoncePool(8, 3);
+        awaitCondition(() -> pool.size() == 8);
+
+        pool.close();
+
+        assertThat(pool.isRefilling()).isFalse();
+        for (int i = 0; i < 8; i++) {
+            pool.take();
+        }
+        Thread.sleep(50);
+        assertThat(pool.size()).isZero();
+    }
+
+    @Test
+    void whenManyNoncesAreTaken_thenAllHaveNonceLengthAndAreUnique() {
+        try (NoncePool pool = new NoncePool(256, 2)) {
+            final Set<String> nonces = new HashSet<>();
+            for (int i = 0; i < 10_000; i++) {
+                final byte[] nonce = pool.take();
+                assertThat(nonce).hasSize(NONCE_LENGTH);
+                nonces.add(Base64.getEncoder().encodeToString(nonce));
+            }
+            assertThat(nonces).hasSize(10_000);
+            assertThat(pool.hitCount() + pool.missCount()).isEqualTo(10_000);
+        }
+    }
+
+    @Test
+    void whenCapacityOrThreadCountIsNotPositive_thenConstructorFails() {
+        assertThatThrownBy(() -> new NoncePool(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new NoncePool(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
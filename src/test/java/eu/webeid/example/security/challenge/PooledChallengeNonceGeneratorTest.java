@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.challenge.ChallengeNonce;
+import eu.webeid.security.challenge.ChallengeNonceStore;
+import eu.webeid.security.util.DateAndTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static eu.webeid.security.challenge.ChallengeNonceGenerator.NONCE_LENGTH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PooledChallengeNonceGeneratorTest {
+
+    @Test
+    void whenNonceIsGenerated_thenItIsTakenFromPoolEncodedAndStoredWithTtl() {
+        final RecordingChallengeNonceStore store = new RecordingChallengeNonceStore();
+        try (NoncePool pool = new NoncePool(8, 1)) {
+            final PooledChallengeNonceGenerator generator =
+                    new PooledChallengeNonceGenerator(pool, store, Duration.ofMinutes(5));
+            final ZonedDateTime before = DateAndTime.utcNow();
+
+            final ChallengeNonce nonce = generator.generateAndStoreNonce();
+
+            assertThat(Base64.getDecoder().decode(nonce.getBase64EncodedNonce())).hasSize(NONCE_LENGTH);
+            assertThat(nonce.getExpirationTime()).isBetween(before.plusMinutes(5), DateAndTime.utcNow().plusMinutes(5));
+            assertThat(store.nonces).containsExactly(nonce);
+            assertThat(pool.hitCount() + pool.missCount()).isOne();
+        }
+    }
+
+    @Test
+    void whenPoolIsEmpty_thenGeneratorStillReturnsDistinctNonces() {
+        final RecordingChallengeNonceStore store = new RecordingChallengeNonceStore();
+        final NoncePool pool = new NoncePool(1, 1);
+        pool.close();
+        final PooledChallengeNonceGenerator generator =
+                new PooledChallengeNonceGenerator(pool, store, Duration.ofMinutes(5));
+
+        final ChallengeNonce first = generator.generateAndStoreNonce();
+        final ChallengeNonce second = generator.generateAndStoreNonce();
+
+        assertThat(first.getBase64EncodedNonce()).isNotEqualTo(second.getBase64EncodedNonce());
+        assertThat(pool.missCount()).isPositive();
+        assertThat(store.nonces).containsExactly(first, second);
+    }
+
+    private static final class RecordingChallengeNonceStore implements ChallengeNonceStore {
+        private final List<ChallengeNonce> nonces = new ArrayList<>();
+
+        @Override
+        public void put(ChallengeNonce challengeNonce) {
+            nonces.add(challengeNonce);
+        }
+
+        @Override
+        public ChallengeNonce getAndRemoveImpl() {
+            return nonces.isEmpty() ? null : nonces.remove(0);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.challenge;
+
+import eu.webeid.security.exceptions.ChallengeNonceExpiredException;
+import eu.webeid.security.exceptions.ChallengeNonceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static eu.webeid.security.challenge.ChallengeNonceGenerator.NONCE_LENGTH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SealedChallengeNonceVerifierTest {
+
+    private static final Duration NONCE_TTL = Duration.ofMinutes(5);
+    private static final Duration KEY_ROTATION_PERIOD = Duration.ofHours(1);
+    private static final byte[] SECRET = new byte[32];
+    private static final Clock ISSUE_TIME = Clock.fixed(Instant.parse("2025-01-01T10:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void whenNonceIsVerified_thenItCanBeUsedOnlyOnce() throws Exception {
+        final String nonce = generateNonce();
+        final SealedChallengeNonceVerifier verifier = verifier(Clock.offset(ISSUE_TIME, Duration.ofMinutes(1)));
+
+        assertThat(verifier.verifyAndConsume(nonce)).isEqualTo(nonce);
+        assertThatThrownBy(() -> verifier.verifyAndConsume(nonce))
+                .isInstanceOf(ChallengeNonceNotFoundException.class);
+    }
+
+    @Test
+    void whenNonceIsTampered_thenVerificationFails() {
+        final byte[] nonceBytes = Base64.getDecoder().decode(generateNonce());
+        nonceBytes[20] ^= 1;
+        final String tamperedNonce = Base64.getEncoder().encodeToString(nonceBytes);
+
+        assertThatThrownBy(() -> verifier(ISSUE_TIME).verifyAndConsume(tamperedNonce))
+                .isInstanceOf(ChallengeNonceNotFoundException.class);
+    }
+
+    @Test
+    void whenNonceIsSealedWithAnotherSecret_thenVerificationFails() {
+        final byte[] otherSecret = Arrays.copyOf(SECRET, SECRET.length);
+        otherSecret[0] = 1;
+        final String nonce = new SealedChallengeNonceGenerator(
+                new SealedChallengeNonceCodec(otherSecret, KEY_ROTATION_PERIOD, ISSUE_TIME),
+                SealedChallengeNonceVerifierTest::randomBytes, NONCE_TTL, ISSUE_TIME).generateAndStoreNonce().getBase64EncodedNonce();
+
+        assertThatThrownBy(() -> verifier(ISSUE_TIME).verifyAndConsume(nonce))
+                .isInstanceOf(ChallengeNonceNotFoundException.class);
+    }
+
+    @Test
+    void whenNonceIsMissing_thenVerificationFails() {
+        assertThatThrownBy(() -> verifier(ISSUE_TIME).verifyAndConsume(null))
+                .isInstanceOf(ChallengeNonceNotFoundException.class);
+    }
+
+    @Test
+    void whenNonceHasExpired_thenVerificationFails() {
+        final String nonce = generateNonce();
+
+        assertThatThrownBy(() -> verifier(Clock.offset(ISSUE_TIME, NONCE_TTL)).verifyAndConsume(nonce))
+                .isInstanceOf(ChallengeNonceExpiredException.class);
+    }
+
+    @Test
+    void whenSealKeyHasRotatedTwice_thenVerificationFails() {
+        final String nonce = generateNonce();
+
+        assertThatThrownBy(() -> verifier(Clock.offset(ISSUE_TIME, KEY_ROTATION_PERIOD.multipliedBy(2))).verifyAndConsume(nonce))
+                .isInstanceOf(ChallengeNonceNotFoundException.class);
+    }
+
+    private static String generateNonce() {
+        return new SealedChallengeNonceGenerator(
+                new SealedChallengeNonceCodec(SECRET, KEY_ROTATION_PERIOD, ISSUE_TIME),
+                SealedChallengeNonceVerifierTest::randomBytes, NONCE_TTL, ISSUE_TIME).generateAndStoreNonce().getBase64EncodedNonce();
+    }
+
+    private static byte[] randomBytes() {
+        final byte[] bytes = new byte[NONCE_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static SealedChallengeNonceVerifier verifier(Clock clock) {
+        return new SealedChallengeNonceVerifier(
+                new SealedChallengeNonceCodec(SECRET, KEY_ROTATION_PERIOD, clock),
+                new ConsumedNonceFilter(NONCE_TTL, 1000, clock),
+                clock);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.trust;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrustAnchorLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path certificateDirectory;
+    private long cerFileCount;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        certificateDirectory = Files.createDirectory(tempDir.resolve("certs"));
+        try (Stream<Path> cerFiles = Files.list(Path.of("src/main/resources/certs/dev"))) {
+            for (Path cerFile : cerFiles.filter(path -> path.toString().endsWith(".cer")).toList()) {
+                Files.copy(cerFile, certificateDirectory.resolve(cerFile.getFileName()));
+                cerFileCount++;
+            }
+        }
+    }
+
+    @Test
+    void whenCertificatesAreLoaded_thenEveryCerFileIsParsedAndLoadIsMeasured() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final TrustAnchorLoader loader = loader();
+        loader.bindTo(meterRegistry);
+
+        final TrustAnchorRegistry registry = loader.load();
+
+        assertThat(registry.size()).isEqualTo(cerFileCount);
+        assertThat(meterRegistry.get("webeid.trust.anchors").gauge().value()).isEqualTo(cerFileCount);
+        assertThat(meterRegistry.get("webeid.trust.anchors.load.duration").timeGauge().value()).isPositive();
+    }
+
+    @Test
+    void whenCerFileCannotBeParsed_thenLoadFails() throws IOException {
+        Files.writeString(certificateDirectory.resolve("broken.cer"), "not a certificate");
+
+        assertThatThrownBy(() -> loader().load())
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Error initializing trusted CA certificates.");
+    }
+
+    private TrustAnchorLoader loader() {
+        return new TrustAnchorLoader(certificateDirectory.toUri().toString(), null);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.security.trust;
+
+import eu.webeid.example.testutil.TestPki;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrustAnchorRegistryTest {
+
+    private static final KeyPair CA_KEY_PAIR = TestPki.generateKeyPair();
+    private static final X509Certificate CA_CERTIFICATE = TestPki.selfSignedCertificate("CN=Test CA", CA_KEY_PAIR);
+
+    @Test
+    void whenCertificateOccursInSeveralSources_thenItIsIncludedOnce() {
+        final TrustAnchorRegistry registry = TrustAnchorRegistry.of(List.of(CA_CERTIFICATE, CA_CERTIFICATE));
+
+        assertThat(registry.size()).isOne();
+    }
+
+    @Test
+    void whenCertificateHasAuthorityKeyIdentifier_thenIssuerIsFoundByKeyIdentifier() {
+        // Same subject DN as the issuing CA, but a different key.
+        final KeyPair otherKeyPair = TestPki.generateKeyPair();
+        final X509Certificate otherCaCertificate = TestPki.selfSignedCertificate("CN=Test CA", otherKeyPair);
+        final X509Certificate userCertificate = TestPki.issueCertificate("CN=Test User", TestPki.generateKeyPair(),
+                "CN=Test CA", CA_KEY_PAIR, false);
+        final TrustAnchorRegistry registry = TrustAnchorRegistry.of(List.of(otherCaCertificate, CA_CERTIFICATE));
+
+        assertThat(registry.findBySubject(CA_CERTIFICATE.getSubjectX500Principal())).hasSize(2);
+        assertThat(registry.findIssuers(userCertificate)).containsExactly(CA_CERTIFICATE);
+    }
+
+    @Test
+    void whenIssuerIsNotTrusted_thenNoIssuersAreFound() {
+        final X509Certificate userCertificate = TestPki.issueCertificate("CN=Test User", TestPki.generateKeyPair(),
+                "CN=Other CA", TestPki.generateKeyPair(), false);
+
+        assertThat(TrustAnchorRegistry.of(List.of(CA_CERTIFICATE)).findIssuers(userCertificate)).isEmpty();
+    }
+}
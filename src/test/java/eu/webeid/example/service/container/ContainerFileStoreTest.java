@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.container;
+
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.DataFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContainerFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenContainerIsWritten_thenDigestAndETagMatchFileContent() throws Exception {
+        final ContainerFileStore store = new ContainerFileStore(directory);
+
+        final SignedContainerFile containerFile = store.write(container(), "example.asice");
+
+        final byte[] expectedDigest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(containerFile.getPath()));
+        assertThat(containerFile.getName()).isEqualTo("example.asice");
+        assertThat(containerFile.getSize()).isEqualTo(Files.size(containerFile.getPath()));
+        assertThat(containerFile.getSha256Digest()).isEqualTo(expectedDigest);
+        assertThat(containerFile.getETag()).isEqualTo("\"" + HexFormat.of().formatHex(expectedDigest) + "\"");
+        assertThat(store.serializationCount()).isOne();
+
+        containerFile.delete();
+        assertThat(containerFile.exists()).isFalse();
+    }
+
+    @Test
+    void whenStoreIsClosed_thenOnlyItsOwnFilesAreDeleted() throws IOException {
+        final SignedContainerFile otherStoreFile = new ContainerFileStore(directory).write(container(), "other.asice");
+        final ContainerFileStore store = new ContainerFileStore(directory);
+        final SignedContainerFile containerFile = store.write(container(), "example.asice");
+
+        store.close();
+
+        assertThat(containerFile.exists()).isFalse();
+        assertThat(otherStoreFile.exists()).isTrue();
+    }
+
+    private static Container container() {
+        return ContainerBuilder
+                .aContainer(Container.DocumentType.ASICE)
+                .withDataFile(new DataFile("example".getBytes(StandardCharsets.UTF_8), "example.txt", "text/plain"))
+                .withConfiguration(Configuration.of(Configuration.Mode.TEST))
+                .build();
+    }
+}
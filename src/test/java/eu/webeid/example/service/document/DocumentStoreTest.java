@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.document;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentStoreTest {
+
+    private static final byte[] CONTENT = "Hello, Web eID!".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void whenSameContentIsStoredTwice_thenItIsKeptOnce() {
+        final DocumentStore store = new DocumentStore(1024);
+        final DocumentReference first = store.store("a.txt", "text/plain", CONTENT);
+        final DocumentReference second = store.store("b.txt", "text/plain", CONTENT.clone());
+
+        assertThat(second.getDocument()).isSameAs(first.getDocument());
+        assertThat(second.getName()).isEqualTo("b.txt");
+        assertThat(store.size()).isOne();
+        assertThat(store.storedBytes()).isEqualTo(CONTENT.length);
+        assertThat(store.references(first.getDocumentId())).isEqualTo(2);
+    }
+
+    @Test
+    void whenOverBudget_thenOnlyUnreferencedDocumentsAreEvicted() {
+        final DocumentStore store = new DocumentStore(CONTENT.length);
+        final DocumentReference referenced = store.store("a.txt", "text/plain", CONTENT);
+        final DocumentReference released = store.store("b.txt", "text/plain", "other".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(store.size()).isEqualTo(2);
+        released.release();
+        released.release();
+
+        assertThat(store.size()).isOne();
+        assertThat(store.acquire(released.getDocumentId(), "b.txt", "text/plain")).isEmpty();
+        assertThat(store.references(referenced.getDocumentId())).isOne();
+    }
+
+    @Test
+    void whenDocumentIsReleasedWithinBudget_thenItCanBeAcquiredAgain() {
+        final DocumentStore store = new DocumentStore(1024);
+        final DocumentReference document = store.store("a.txt", "text/plain", CONTENT);
+        document.release();
+
+        assertThat(store.acquire(document.getDocumentId(), "a.txt", "text/plain"))
+                .hasValueSatisfying(reference -> assertThat(reference.getDocument()).isSameAs(document.getDocument()));
+    }
+
+    @Test
+    void whenDigestIsRequested_thenItMatchesContentAndIsReused() throws Exception {
+        final DocumentReference document = new DocumentStore(1024).store("a.txt", "text/plain", CONTENT);
+        final byte[] expected = MessageDigest.getInstance("SHA-384").digest(CONTENT);
+
+        assertThat(document.getDocument().getDigest(DigestAlgorithm.SHA384)).isEqualTo(expected);
+        assertThat(document.toDataFile().calculateDigest(org.digidoc4j.DigestAlgorithm.SHA384)).isEqualTo(expected);
+        assertThat(document.getDocumentId())
+                .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT)));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SigningJobExecutorTest {
+
+    private final SigningJobExecutor executor = new SigningJobExecutor(1, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    void whenJobCompletes_thenResultIsTakenOnce() throws Exception {
+        final SigningJob.Result result = new SigningJob.Result(null);
+        final CountDownLatch done = new CountDownLatch(1);
+        final SigningJob job = executor.submit("example.asice", () -> {
+            done.countDown();
+            return result;
+        });
+        done.await(5, TimeUnit.SECONDS);
+        awaitStatus(job, SigningJob.Status.COMPLETED);
+
+        assertThat(job.getContainerName()).isEqualTo("example.asice");
+        assertThat(job.takeResult()).containsSame(result);
+        assertThat(job.takeResult()).isEmpty();
+    }
+
+    @Test
+    void whenJobFails_thenStatusIsFailed() throws Exception {
+        final SigningJob job = executor.submit("example.asice", () -> {
+            throw new IllegalStateException("OCSP responder is not available");
+        });
+        awaitStatus(job, SigningJob.Status.FAILED);
+
+        assertThat(job.takeResult()).isEmpty();
+    }
+
+    @Test
+    void whenQueueIsFull_thenJobIsRejected() {
+        final SigningJob running = executor.submit("running.asice", this::blockUntilReleased);
+        final SigningJob queued = executor.submit("queued.asice", this::blockUntilReleased);
+
+        assertThatThrownBy(() -> executor.submit("rejected.asice", this::blockUntilReleased))
+                .isInstanceOf(SigningCapacityExceededException.class);
+        assertThat(running.getStatus()).isEqualTo(SigningJob.Status.PENDING);
+        assertThat(queued.getStatus()).isEqualTo(SigningJob.Status.PENDING);
+    }
+
+    @Test
+    void whenJobIsReleasedBeforeItRuns_thenItIsNotRun() throws Exception {
+        executor.submit("running.asice", this::blockUntilReleased);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final SigningJob queued = executor.submit("queued.asice", () -> {
+            ran.countDown();
+            return new SigningJob.Result(null);
+        });
+
+        queued.release();
+        release.countDown();
+
+        assertThat(ran.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queued.takeResult()).isEmpty();
+    }
+
+    private SigningJob.Result blockUntilReleased() throws InterruptedException {
+        release.await();
+        return new SigningJob.Result(null);
+    }
+
+    private static void awaitStatus(SigningJob job, SigningJob.Status status) throws InterruptedException {
+        for (int i = 0; i < 500 && job.getStatus() != status; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(job.getStatus()).isEqualTo(status);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.session;
+
+import eu.webeid.example.testutil.MutableClock;
+import org.digidoc4j.SignatureParameters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedFileSigningSessionStoreTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(15);
+    private static final String DOCUMENT_ID = "a591a6d40bf420404a011733cfb7b190d62c65bf0bcda32b57b277d9ad9f146e";
+    private static final byte[] DATA_TO_SIGN = "<ds:SignedInfo/>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private MockHttpSession httpSession;
+    private MutableClock clock;
+    private MappedFileSigningSessionStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpSession = new MockHttpSession();
+        clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+        store = new MappedFileSigningSessionStore(() -> httpSession, directory, TIME_TO_LIVE, 10 * 1024 * 1024, clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void whenSigningSessionIsStored_thenOnlyHandleIsKeptInHttpSession() throws IOException {
+        store.put(createSigningSession());
+
+        assertThat(Collections.list(httpSession.getAttributeNames())).hasSize(1);
+        assertThat(httpSession.getAttribute(httpSession.getAttributeNames().nextElement()))
+                .isInstanceOf(SigningSessionHandle.class);
+        assertThat(sessionFileCount()).isOne();
+        assertThat(store.get()).hasValueSatisfying(signingSession -> {
+            assertThat(signingSession.fileName()).isEqualTo("example.txt");
+            assertThat(signingSession.documentId()).isEqualTo(DOCUMENT_ID);
+            assertThat(signingSession.dataToSign()).isEqualTo(DATA_TO_SIGN);
+            assertThat(signingSession.signatureParameters()).isNotNull();
+        });
+    }
+
+    @Test
+    void whenSigningSessionIsReplaced_thenStoredBytesAreNotCountedTwice() throws IOException {
+        final SigningSession signingSession = createSigningSession();
+        store.put(signingSession);
+        final long storedBytes = store.storedBytes();
+        store.put(signingSession);
+
+        assertThat(store.size()).isOne();
+        assertThat(store.storedBytes()).isEqualTo(storedBytes);
+        assertThat(sessionFileCount()).isOne();
+    }
+
+    @Test
+    void whenSigningSessionIsRemovedOrHttpSessionEnds_thenFileIsDeleted() throws IOException {
+        store.put(createSigningSession());
+        store.remove();
+
+        assertThat(store.get()).isEmpty();
+        assertThat(sessionFileCount()).isZero();
+
+        store.put(createSigningSession());
+        httpSession.invalidate();
+
+        assertThat(store.size()).isZero();
+        assertThat(store.storedBytes()).isZero();
+        assertThat(sessionFileCount()).isZero();
+    }
+
+    @Test
+    void whenSigningSessionIsNotAccessedWithinTimeToLive_thenItExpires() throws IOException {
+        store.put(createSigningSession());
+        clock.advance(TIME_TO_LIVE.minusMinutes(1));
+        assertThat(store.get()).isPresent();
+
+        clock.advance(TIME_TO_LIVE.minusMinutes(1));
+        store.deleteExpired();
+        assertThat(store.get()).isPresent();
+
+        clock.advance(TIME_TO_LIVE.plusSeconds(1));
+        store.deleteExpired();
+        assertThat(store.get()).isEmpty();
+        assertThat(sessionFileCount()).isZero();
+    }
+
+    @Test
+    void whenBudgetIsExceeded_thenSigningSessionIsRejected() throws IOException {
+        store.close();
+        store = new MappedFileSigningSessionStore(() -> httpSession, directory, TIME_TO_LIVE, 1, clock);
+
+        assertThatThrownBy(() -> store.put(createSigningSession()))
+                .isInstanceOf(SigningSessionStoreFullException.class);
+        assertThat(httpSession.getAttributeNames().hasMoreElements()).isFalse();
+        assertThat(store.storedBytes()).isZero();
+        assertThat(sessionFileCount()).isZero();
+    }
+
+    @Test
+    void whenStoreIsClosed_thenFilesOfOtherStoresInTheDirectoryAreKept() throws IOException {
+        final MockHttpSession otherHttpSession = new MockHttpSession();
+        final MappedFileSigningSessionStore otherStore =
+                new MappedFileSigningSessionStore(() -> otherHttpSession, directory, TIME_TO_LIVE, 10 * 1024 * 1024, clock);
+        otherStore.put(createSigningSession());
+        store.put(createSigningSession());
+
+        otherStore.close();
+
+        assertThat(sessionFileCount()).isOne();
+        assertThat(store.get()).isPresent();
+    }
+
+    private static SigningSession createSigningSession() {
+        return new SigningSession("example.txt", DOCUMENT_ID, new SignatureParameters(), DATA_TO_SIGN);
+    }
+
+    private long sessionFileCount() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionResourceRegistryTest {
+
+    private static final String ATTRIBUTE_NAME = "resource";
+
+    private final List<String> released = new ArrayList<>();
+    private MockHttpSession httpSession;
+    private SessionResourceRegistry<String> registry;
+
+    @BeforeEach
+    void setUp() {
+        httpSession = new MockHttpSession();
+        registry = new SessionResourceRegistry<>(ATTRIBUTE_NAME, released::add);
+    }
+
+    @Test
+    void whenResourceIsPut_thenOnlyHandleIsKeptInHttpSession() {
+        registry.put(httpSession, "first");
+
+        assertThat(Collections.list(httpSession.getAttributeNames())).containsExactly(ATTRIBUTE_NAME);
+        assertThat(httpSession.getAttribute(ATTRIBUTE_NAME)).isInstanceOf(SessionResourceHandle.class);
+        assertThat(registry.get(httpSession)).hasValue("first");
+        assertThat(registry.size()).isOne();
+    }
+
+    @Test
+    void whenResourceIsReplaced_thenPreviousResourceIsReleased() {
+        registry.put(httpSession, "first");
+        registry.put(httpSession, "second");
+
+        assertThat(released).containsExactly("first");
+        assertThat(registry.get(httpSession)).hasValue("second");
+        assertThat(registry.size()).isOne();
+    }
+
+    @Test
+    void whenResourceIsRemoved_thenItIsReleased() {
+        registry.put(httpSession, "first");
+        registry.remove(httpSession);
+
+        assertThat(released).containsExactly("first");
+        assertThat(registry.get(httpSession)).isEmpty();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void whenHttpSessionIsInvalidated_thenResourceIsReleased() {
+        registry.put(httpSession, "first");
+        httpSession.invalidate();
+
+        assertThat(released).containsExactly("first");
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void whenHandleIsDeserialized_thenResourceIsNotFoundAndNothingIsReleased() throws Exception {
+        registry.put(httpSession, "first");
+        final Object handle = deserialize(serialize(httpSession.getAttribute(ATTRIBUTE_NAME)));
+
+        final MockHttpSession restoredSession = new MockHttpSession();
+        restoredSession.setAttribute(ATTRIBUTE_NAME, handle);
+        final SessionResourceRegistry<String> restoredRegistry = new SessionResourceRegistry<>(ATTRIBUTE_NAME, released::add);
+        assertThat(restoredRegistry.get(restoredSession)).isEmpty();
+        restoredSession.invalidate();
+
+        assertThat(released).isEmpty();
+        assertThat(registry.get(httpSession)).hasValue("first");
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
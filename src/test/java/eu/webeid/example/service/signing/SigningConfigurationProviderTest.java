@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.signing;
+
+import org.digidoc4j.Configuration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SigningConfigurationProviderTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final Duration REFRESH_INTERVAL = Duration.ofHours(1);
+
+    @Test
+    void whenTrustedListsAreLoaded_thenConfigurationIsSwapped() throws IOException {
+        final SigningConfigurationProvider provider = new SigningConfigurationProvider(standInConfiguration(), false,
+                REFRESH_INTERVAL, CLOCK);
+        final Configuration initial = provider.get();
+
+        assertThat(provider.refresh()).isTrue();
+
+        assertThat(provider.get()).isNotSameAs(initial);
+        assertThat(provider.isWarmedUp()).isTrue();
+    }
+
+    @Test
+    void whenWarmUpCompletes_thenHealthIsUp() throws Exception {
+        try (SigningConfigurationProvider provider = new SigningConfigurationProvider(standInConfiguration(), true,
+                REFRESH_INTERVAL, CLOCK)) {
+            for (int i = 0; i < 500 && !provider.isWarmedUp(); i++) {
+                Thread.sleep(20);
+            }
+
+            assertThat(provider.health().getStatus()).isEqualTo(Status.UP);
+            assertThat(provider.health().getDetails()).containsEntry("lastRefresh", "2025-01-01T10:00:00Z");
+        }
+    }
+
+    @Test
+    void whenLoadingFails_thenPreviousConfigurationIsKeptAndNodeIsNotReady() {
+        final AtomicInteger created = new AtomicInteger();
+        final Supplier<Configuration> failingAfterFirst = () -> {
+            if (created.getAndIncrement() > 0) {
+                throw new IllegalStateException("LOTL is not available");
+            }
+            return Configuration.of(Configuration.Mode.TEST);
+        };
+        try (SigningConfigurationProvider provider = new SigningConfigurationProvider(failingAfterFirst, true,
+                REFRESH_INTERVAL, CLOCK)) {
+            final Configuration initial = provider.get();
+
+            assertThat(provider.refresh()).isFalse();
+
+            assertThat(provider.get()).isSameAs(initial);
+            assertThat(provider.isWarmedUp()).isFalse();
+            assertThat(provider.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        }
+    }
+
+    @Test
+    void whenWarmUpIsDisabled_thenHealthIsUp() {
+        final SigningConfigurationProvider provider = new SigningConfigurationProvider(
+                () -> Configuration.of(Configuration.Mode.TEST), false, REFRESH_INTERVAL, CLOCK);
+
+        assertThat(provider.isWarmedUp()).isFalse();
+        assertThat(provider.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    private static Supplier<Configuration> standInConfiguration() throws IOException {
+        final String lotlLocation = new ClassPathResource("tsl/stand-in-lotl.xml").getURL().toString();
+        return () -> {
+            final Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+            configuration.setLotlLocation(lotlLocation);
+            return configuration;
+        };
+    }
+}
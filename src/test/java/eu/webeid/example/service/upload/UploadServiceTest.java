@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.service.upload;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.webeid.example.testutil.HttpHelper;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadServiceTest {
+
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + HttpHelper.MULTIPART_BOUNDARY;
+    private static final long MAX_UPLOAD_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenFileIsUploaded_thenContentAndDigestsMatch() throws Exception {
+        // Spans several read buffers and contains partial boundary delimiters.
+        final byte[] content = new byte[300 * 1024];
+        new Random(42).nextBytes(content);
+        final byte[] partialDelimiter = ("\r\n--" + HttpHelper.MULTIPART_BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(partialDelimiter, 0, content, 64 * 1024 - 5, partialDelimiter.length);
+
+        final UploadedFile uploadedFile = receive(new MockMultipartFile("file", "C:\\Documents\\contract.pdf", "application/pdf", content));
+
+        assertThat(uploadedFile.getName()).isEqualTo("contract.pdf");
+        assertThat(uploadedFile.getContentType()).isEqualTo("application/pdf");
+        assertThat(uploadedFile.getSize()).isEqualTo(content.length);
+        assertThat(Files.readAllBytes(uploadedFile.getPath())).isEqualTo(content);
+        assertThat(uploadedFile.getDigest(DigestAlgorithm.SHA256)).isEqualTo(MessageDigest.getInstance("SHA-256").digest(content));
+        assertThat(uploadedFile.getDigest(DigestAlgorithm.SHA384)).isEqualTo(MessageDigest.getInstance("SHA-384").digest(content));
+        assertThat(uploadedFile.getDigest(DigestAlgorithm.SHA512)).isEqualTo(MessageDigest.getInstance("SHA-512").digest(content));
+        assertThat(uploadedFile.toDataFile().calculateDigest(org.digidoc4j.DigestAlgorithm.SHA256))
+                .isEqualTo(MessageDigest.getInstance("SHA-256").digest(content));
+
+        uploadedFile.delete();
+        assertThat(uploadedFileCount()).isZero();
+    }
+
+    @Test
+    void whenFileIsTooLarge_thenItIsRejectedAndTemporaryFileIsDeleted() throws IOException {
+        final byte[] content = new byte[(int) MAX_UPLOAD_BYTES + 1];
+        final byte[] body = HttpHelper.multipartBody(new MockMultipartFile("file", "large.bin", "application/octet-stream", content));
+        final UploadService uploadService = new UploadService(directory, MAX_UPLOAD_BYTES, 10 * MAX_UPLOAD_BYTES, Duration.ZERO);
+
+        // Without content length, the limit is enforced while the body is read.
+        assertThatThrownBy(() -> uploadService.receive(request(new ByteArrayInputStream(body), CONTENT_TYPE, -1)))
+                .isInstanceOf(UploadTooLargeException.class);
+        assertThatThrownBy(() -> uploadService.receive(request(new ByteArrayInputStream(body), CONTENT_TYPE, body.length + MAX_UPLOAD_BYTES)))
+                .isInstanceOf(UploadTooLargeException.class);
+        assertThat(uploadedFileCount()).isZero();
+        assertThat(uploadService.inFlightBytes()).isZero();
+    }
+
+    @Test
+    void whenInFlightLimitIsReached_thenUploadIsRejectedAfterWaiting() throws IOException {
+        final UploadService uploadService = new UploadService(directory, MAX_UPLOAD_BYTES, 1024, Duration.ofMillis(10));
+        final byte[] body = HttpHelper.multipartBody(new MockMultipartFile("file", "a.txt", "text/plain", new byte[1]));
+        final BlockingInputStream blockedUpload = new BlockingInputStream(body);
+
+        final Thread thread = new Thread(() -> {
+            try {
+                uploadService.receive(request(blockedUpload, CONTENT_TYPE, body.length)).delete();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        try {
+            blockedUpload.awaitReading();
+            assertThat(uploadService.inFlightBytes()).isEqualTo(1024);
+            assertThatThrownBy(() -> uploadService.receive(request(new ByteArrayInputStream(body), CONTENT_TYPE, body.length)))
+                    .isInstanceOf(UploadCapacityExceededException.class);
+        } finally {
+            blockedUpload.unblock();
+        }
+    }
+
+    @Test
+    void whenBodyHasNoFilePart_thenItIsRejected() throws IOException {
+        final UploadService uploadService = new UploadService(directory, MAX_UPLOAD_BYTES, MAX_UPLOAD_BYTES, Duration.ZERO);
+        final byte[] body = HttpHelper.multipartBody(new MockMultipartFile("other", "a.txt", "text/plain", new byte[1]));
+
+        assertThatThrownBy(() -> uploadService.receive(request(new ByteArrayInputStream(body), CONTENT_TYPE, body.length)))
+                .isInstanceOf(MalformedUploadException.class);
+        assertThatThrownBy(() -> uploadService.receive(request(new ByteArrayInputStream(body), "application/json", body.length)))
+                .isInstanceOf(MalformedUploadException.class);
+        final byte[] truncated = Arrays.copyOf(body, body.length - 10);
+        assertThatThrownBy(() -> uploadService.receive(request(new ByteArrayInputStream(truncated), CONTENT_TYPE, truncated.length)))
+                .isInstanceOf(MalformedUploadException.class);
+    }
+
+    @Test
+    void whenServiceIsCreatedOrClosed_thenOnlyItsOwnFilesAreDeleted() throws IOException {
+        final UploadedFile otherInstanceFile = receive(new MockMultipartFile("file", "a.txt", "text/plain", new byte[1]));
+        final UploadService uploadService = new UploadService(directory, MAX_UPLOAD_BYTES, MAX_UPLOAD_BYTES, Duration.ZERO);
+        final byte[] body = HttpHelper.multipartBody(new MockMultipartFile("file", "b.txt", "text/plain", new byte[1]));
+        final UploadedFile uploadedFile = uploadService.receive(request(new ByteArrayInputStream(body), CONTENT_TYPE, body.length));
+
+        uploadService.close();
+
+        assertThat(uploadedFile.getPath()).doesNotExist();
+        assertThat(otherInstanceFile.getPath()).exists();
+    }
+
+    private UploadedFile receive(MockMultipartFile file) throws IOException {
+        final byte[] body = HttpHelper.multipartBody(file);
+        return new UploadService(directory, MAX_UPLOAD_BYTES, MAX_UPLOAD_BYTES, Duration.ZERO)
+                .receive(request(new ByteArrayInputStream(body), CONTENT_TYPE, body.length));
+    }
+
+    private static MockHttpServletRequest request(InputStream body, String contentType, long contentLength) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/sign/upload") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new DelegatingServletInputStream(body);
+            }
+
+            @Override
+            public int getContentLength() {
+                return (int) contentLength;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return contentLength;
+            }
+        };
+        request.setContentType(contentType);
+        return request;
+    }
+
+    private long uploadedFileCount() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static final class BlockingInputStream extends ByteArrayInputStream {
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch unblocked = new CountDownLatch(1);
+
+        BlockingInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int offset, int length) {
+            reading.countDown();
+            try {
+                unblocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.read(bytes, offset, length);
+        }
+
+        void awaitReading() {
+            try {
+                reading.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void unblock() {
+            unblocked.countDown();
+        }
+    }
+}
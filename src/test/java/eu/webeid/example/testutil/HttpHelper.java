@@ -22,18 +22,25 @@
 
 package eu.webeid.example.testutil;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
-import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
 import eu.webeid.example.security.dto.AuthTokenDTO;
 import eu.webeid.example.service.dto.CertificateDTO;
 import eu.webeid.example.service.dto.SignatureDTO;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
@@ -52,18 +59,33 @@ public class HttpHelper {
         // @formatter:on
     }
 
+    public static final String MULTIPART_BOUNDARY = "web-eid-test-boundary";
+
     public static MockHttpServletResponse upload(DefaultMockMvcBuilder mvcBuilder, MockHttpSession session, MockMultipartFile mockMultipartFile) throws Exception {
+        // The upload endpoint streams the raw request body, so the body is encoded here.
         // @formatter:off
         return mvcBuilder
                 .build()
-                .perform(MockMvcRequestBuilders.multipart("/sign/upload")
-                        .file(mockMultipartFile)
-                        .session(session))
+                .perform(post("/sign/upload")
+                        .session(session)
+                        .with(csrf())
+                        .contentType("multipart/form-data; boundary=" + MULTIPART_BOUNDARY)
+                        .content(multipartBody(mockMultipartFile)))
                 .andReturn()
                 .getResponse();
         // @formatter:on
     }
 
+    public static byte[] multipartBody(MockMultipartFile file) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + MULTIPART_BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"" + file.getName() + "\"; filename=\"" + file.getOriginalFilename() + "\"\r\n" +
+                "Content-Type: " + file.getContentType() + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(file.getBytes());
+        body.writeBytes(("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
     public static MockHttpServletResponse prepare(DefaultMockMvcBuilder mvcBuilder, MockHttpSession session, CertificateDTO certificateDTO) throws Exception {
         // @formatter:off
         return mvcBuilder
@@ -93,13 +115,24 @@ public class HttpHelper {
     }
 
     public static MockHttpServletResponse download(DefaultMockMvcBuilder mvcBuilder, MockHttpSession session) throws Exception {
+        return download(mvcBuilder, session, get("/sign/download"));
+    }
+
+    public static MockHttpServletResponse downloadIfNoneMatch(DefaultMockMvcBuilder mvcBuilder, MockHttpSession session, String eTag) throws Exception {
+        return download(mvcBuilder, session, get("/sign/download").header(HttpHeaders.IF_NONE_MATCH, eTag));
+    }
+
+    private static MockHttpServletResponse download(DefaultMockMvcBuilder mvcBuilder, MockHttpSession session, MockHttpServletRequestBuilder request) throws Exception {
+        final MockMvc mockMvc = mvcBuilder.build();
         // @formatter:off
-        return mvcBuilder
-                .build()
-                .perform(get("/sign/download")
+        final MvcResult result = mockMvc
+                .perform(request
                         .session(session))
-                .andReturn()
-                .getResponse();
+                .andReturn();
         // @formatter:on
+        // The container is streamed asynchronously from a StreamingResponseBody.
+        return result.getRequest().isAsyncStarted()
+                ? mockMvc.perform(asyncDispatch(result)).andReturn().getResponse()
+                : result.getResponse();
     }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.testutil;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local OCSP responder that answers every request with a signed "good" status, for tests that must not depend on
+ * external OCSP services. By default, the responder certificate is self-signed, so responses only pass validation
+ * when the validator is not checking the responder certificate chain.
+ */
+public final class OcspResponderStandIn implements AutoCloseable {
+
+    private static final String OCSP_RESPONSE_CONTENT_TYPE = "application/ocsp-response";
+
+    private final HttpServer server;
+    private final KeyPair responderKeyPair;
+    private final X509Certificate responderCertificate;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration nextUpdateAfter;
+
+    public OcspResponderStandIn() throws IOException {
+        this(TestPki.generateKeyPair());
+    }
+
+    private OcspResponderStandIn(KeyPair responderKeyPair) throws IOException {
+        this(responderKeyPair, TestPki.selfSignedCertificate("CN=Test OCSP Responder", responderKeyPair));
+    }
+
+    /**
+     * Creates a responder that signs the responses with the given key and certificate, for example with a
+     * certificate from {@link TestPki#issueOcspResponderCertificate}, so that the responses pass responder
+     * certificate validation.
+     */
+    public OcspResponderStandIn(KeyPair responderKeyPair, X509Certificate responderCertificate) throws IOException {
+        this.responderKeyPair = responderKeyPair;
+        this.responderCertificate = responderCertificate;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public URI getUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/ocsp");
+    }
+
+    public X509Certificate getResponderCertificate() {
+        return responderCertificate;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Delays every response to simulate a slow or distant responder.
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the {@code nextUpdate} time of responses relative to {@code thisUpdate}, {@code null} omits it.
+     */
+    public void setNextUpdateAfter(Duration nextUpdateAfter) {
+        this.nextUpdateAfter = nextUpdateAfter;
+    }
+
+    /**
+     * Creates a request for the status of a certificate with the given serial number issued by the given CA.
+     */
+    public static OCSPReq createRequest(X509Certificate issuerCertificate, BigInteger serialNumber, boolean withNonce) {
+        try {
+            final CertificateID certificateId = new CertificateID(
+                    new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1),
+                    new JcaX509CertificateHolder(issuerCertificate),
+                    serialNumber);
+            final OCSPReqBuilder builder = new OCSPReqBuilder()
+                    .addRequest(certificateId);
+            if (withNonce) {
+                final byte[] nonce = new byte[32];
+                new SecureRandom().nextBytes(nonce);
+                builder.setRequestExtensions(new Extensions(new Extension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce,
+                        false, new DEROctetString(nonce))));
+            }
+            return builder.build();
+        } catch (OCSPException | OperatorCreationException | CertificateEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            final byte[] response = respond(new OCSPReq(body.readAllBytes())).getEncoded();
+            Thread.sleep(latency.toMillis());
+            exchange.getResponseHeaders().set("Content-Type", OCSP_RESPONSE_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | OCSPException | OperatorCreationException | CertificateEncodingException e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private OCSPResp respond(OCSPReq request) throws OCSPException, OperatorCreationException, CertificateEncodingException {
+        final BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(responderCertificate.getPublicKey(),
+                new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1));
+        final Instant thisUpdate = Instant.now();
+        final Duration nextUpdate = nextUpdateAfter;
+        for (Req singleRequest : request.getRequestList()) {
+            builder.addResponse(singleRequest.getCertID(), CertificateStatus.GOOD, Date.from(thisUpdate),
+                    nextUpdate == null ? null : Date.from(thisUpdate.plus(nextUpdate)));
+        }
+        final Extension nonce = request.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce);
+        if (nonce != null) {
+            builder.setResponseExtensions(new Extensions(nonce));
+        }
+        final BasicOCSPResp basicResponse = builder.build(
+                new JcaContentSignerBuilder("SHA384withECDSA").build(responderKeyPair.getPrivate()),
+                new X509CertificateHolder[]{new JcaX509CertificateHolder(responderCertificate)},
+                Date.from(thisUpdate));
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResponse);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.testutil;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates keys and certificates for the local stand-ins of external services and for test signers.
+ */
+public final class TestPki {
+
+    private static final AtomicLong SERIAL = new AtomicLong(System.currentTimeMillis());
+
+    public static KeyPair generateKeyPair() {
+        return generateKeyPair("secp384r1");
+    }
+
+    public static KeyPair generateKeyPair(String curve) {
+        try {
+            final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec(curve));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static X509Certificate issueCertificate(String subjectDn, KeyPair subjectKeyPair,
+                                                   String issuerDn, KeyPair issuerKeyPair, boolean ca) {
+        return issueCertificate(subjectDn, subjectKeyPair, issuerDn, issuerKeyPair, ca, builder -> {
+        });
+    }
+
+    /**
+     * Issues a signing certificate with the non-repudiation key usage and the OCSP responder URL in the
+     * <em>Authority Information Access</em> extension, like the signing certificates of ID cards.
+     */
+    public static X509Certificate issueSigningCertificate(String subjectDn, KeyPair subjectKeyPair,
+                                                          String issuerDn, KeyPair issuerKeyPair, URI ocspUri) {
+        return issueCertificate(subjectDn, subjectKeyPair, issuerDn, issuerKeyPair, false, builder -> {
+            builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.nonRepudiation));
+            builder.addExtension(Extension.authorityInfoAccess, false, ocspAccess(ocspUri));
+        });
+    }
+
+    /**
+     * Issues an authentication certificate with the client authentication extended key usage and the OCSP responder
+     * URL in the <em>Authority Information Access</em> extension, like the authentication certificates of ID cards.
+     */
+    public static X509Certificate issueAuthenticationCertificate(String subjectDn, KeyPair subjectKeyPair,
+                                                                 String issuerDn, KeyPair issuerKeyPair, URI ocspUri) {
+        return issueCertificate(subjectDn, subjectKeyPair, issuerDn, issuerKeyPair, false, builder -> {
+            builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyAgreement));
+            builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_clientAuth));
+            builder.addExtension(Extension.authorityInfoAccess, false, ocspAccess(ocspUri));
+        });
+    }
+
+    /**
+     * Issues an OCSP responder certificate with the OCSP signing extended key usage, so that the responses of a
+     * responder that uses it pass responder certificate validation when the issuer is trusted.
+     */
+    public static X509Certificate issueOcspResponderCertificate(String subjectDn, KeyPair subjectKeyPair,
+                                                                String issuerDn, KeyPair issuerKeyPair) {
+        return issueCertificate(subjectDn, subjectKeyPair, issuerDn, issuerKeyPair, false, builder ->
+                builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_OCSPSigning)));
+    }
+
+    /**
+     * Creates a self-signed certificate with the critical time-stamping extended key usage that RFC 3161 requires
+     * from time-stamping authority certificates.
+     */
+    public static X509Certificate selfSignedTimestampingCertificate(String dn, KeyPair keyPair) {
+        return issueCertificate(dn, keyPair, dn, keyPair, false, builder ->
+                builder.addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(KeyPurposeId.id_kp_timeStamping)));
+    }
+
+    public static X509Certificate selfSignedCertificate(String dn, KeyPair keyPair) {
+        return issueCertificate(dn, keyPair, dn, keyPair, true);
+    }
+
+    private static X509Certificate issueCertificate(String subjectDn, KeyPair subjectKeyPair, String issuerDn,
+                                                    KeyPair issuerKeyPair, boolean ca, ExtensionAdder extensions) {
+        final Instant now = Instant.now();
+        try {
+            final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                    new X500Name(issuerDn),
+                    BigInteger.valueOf(SERIAL.incrementAndGet()),
+                    Date.from(now.minus(Duration.ofDays(1))),
+                    Date.from(now.plus(Duration.ofDays(365))),
+                    new X500Name(subjectDn),
+                    subjectKeyPair.getPublic());
+            final JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+            builder.addExtension(Extension.subjectKeyIdentifier, false,
+                    extensionUtils.createSubjectKeyIdentifier(subjectKeyPair.getPublic()));
+            builder.addExtension(Extension.authorityKeyIdentifier, false,
+                    extensionUtils.createAuthorityKeyIdentifier(issuerKeyPair.getPublic()));
+            extensions.addTo(builder);
+            return new JcaX509CertificateConverter().getCertificate(
+                    builder.build(new JcaContentSignerBuilder("SHA384withECDSA").build(issuerKeyPair.getPrivate())));
+        } catch (IOException | GeneralSecurityException | OperatorCreationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static AuthorityInformationAccess ocspAccess(URI ocspUri) {
+        return new AuthorityInformationAccess(new AccessDescription(AccessDescription.id_ad_ocsp,
+                new GeneralName(GeneralName.uniformResourceIdentifier, ocspUri.toString())));
+    }
+
+    private interface ExtensionAdder {
+        void addTo(JcaX509v3CertificateBuilder builder) throws IOException;
+    }
+}
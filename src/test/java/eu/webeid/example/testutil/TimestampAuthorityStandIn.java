@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.testutil;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.TSPAlgorithms;
+import org.bouncycastle.tsp.TSPException;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampResponseGenerator;
+import org.bouncycastle.tsp.TimeStampTokenGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local RFC 3161 time-stamping authority that time-stamps every request, for tests and benchmarks that must not
+ * depend on external time-stamping services. The authority certificate is self-signed, so time-stamps only pass
+ * validation when it is trusted, for example by adding it to the trusted list certificates of DigiDoc4j.
+ */
+public final class TimestampAuthorityStandIn implements AutoCloseable {
+
+    private static final String TIMESTAMP_REPLY_CONTENT_TYPE = "application/timestamp-reply";
+    private static final ASN1ObjectIdentifier POLICY = new ASN1ObjectIdentifier("1.3.6.1.4.1.99999.1");
+
+    private final HttpServer server;
+    private final KeyPair authorityKeyPair = TestPki.generateKeyPair();
+    private final X509Certificate authorityCertificate =
+            TestPki.selfSignedTimestampingCertificate("CN=Test Time-Stamping Authority", authorityKeyPair);
+    private final TimeStampResponseGenerator responseGenerator;
+    private final AtomicLong serialNumber = new AtomicLong();
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    public TimestampAuthorityStandIn() throws IOException {
+        try {
+            final TimeStampTokenGenerator tokenGenerator = new TimeStampTokenGenerator(
+                    new JcaSimpleSignerInfoGeneratorBuilder().build("SHA384withECDSA", authorityKeyPair.getPrivate(), authorityCertificate),
+                    new JcaDigestCalculatorProviderBuilder().build().get(new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256)),
+                    POLICY);
+            tokenGenerator.addCertificates(new JcaCertStore(List.of(authorityCertificate)));
+            responseGenerator = new TimeStampResponseGenerator(tokenGenerator, TSPAlgorithms.ALLOWED);
+        } catch (GeneralSecurityException | OperatorCreationException | TSPException e) {
+            throw new IllegalStateException(e);
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public URI getUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/tsa");
+    }
+
+    public X509Certificate getAuthorityCertificate() {
+        return authorityCertificate;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            final TimeStampRequest request = new TimeStampRequest(body.readAllBytes());
+            final byte[] response;
+            // The generator is not thread-safe.
+            synchronized (responseGenerator) {
+                response = responseGenerator.generate(request, BigInteger.valueOf(serialNumber.incrementAndGet()),
+                        new Date()).getEncoded();
+            }
+            exchange.getResponseHeaders().set("Content-Type", TIMESTAMP_REPLY_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (IOException | TSPException e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+}
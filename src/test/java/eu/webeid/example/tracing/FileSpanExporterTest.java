@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSpanExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenSpansEnd_thenTheyAreWrittenAsJsonLines() throws Exception {
+        final Path file = directory.resolve("traces/spans.jsonl");
+        final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(file)))
+                .build();
+        final Tracer tracer = Tracing.tracer(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build());
+
+        final Span parent = tracer.spanBuilder("webeid.login").startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            tracer.spanBuilder("webeid.token.validation").setAttribute("webeid.test", "value").startSpan().end();
+        } finally {
+            parent.end();
+        }
+        tracerProvider.shutdown().join(10, TimeUnit.SECONDS);
+
+        final List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final JsonNode child = objectMapper.readTree(lines.get(0));
+        final JsonNode root = objectMapper.readTree(lines.get(1));
+        assertThat(child.get("name").asText()).isEqualTo("webeid.token.validation");
+        assertThat(child.get("traceId").asText()).isEqualTo(root.get("traceId").asText());
+        assertThat(child.get("parentSpanId").asText()).isEqualTo(root.get("spanId").asText());
+        assertThat(child.get("attributes").get("webeid.test").asText()).isEqualTo("value");
+        assertThat(root.get("parentSpanId").isNull()).isTrue();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020-2025 Estonian Information System Authority
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package eu.webeid.example.web.rest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileDownloadResponsesTest {
+
+    private static final Instant LAST_MODIFIED = Instant.parse("2025-01-01T10:00:00Z");
+    private static final String LAST_MODIFIED_HTTP_DATE = "Wed, 01 Jan 2025 10:00:00 GMT";
+    private static final String ETAG = "\"e3b0c44298fc1c149afbf4c8996fb924\"";
+
+    @TempDir
+    Path directory;
+
+    private final byte[] content = new byte[100 * 1024];
+    private Path file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+        file = Files.write(directory.resolve("container.asice"), content);
+        request = new MockHttpServletRequest("GET", "/sign/download");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void whenFileIsDownloaded_thenFullContentIsStreamed() throws IOException {
+        final ResponseEntity<StreamingResponseBody> entity = download();
+
+        assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(entity.getHeaders().getContentLength()).isEqualTo(content.length);
+        assertThat(entity.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(body(entity)).isEqualTo(content);
+    }
+
+    @Test
+    void whenRangeIsRequested_thenOnlyRangeIsStreamed() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=1000-1999");
+
+        final ResponseEntity<StreamingResponseBody> entity = download();
+
+        assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(entity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 1000-1999/" + content.length);
+        assertThat(entity.getHeaders().getContentLength()).isEqualTo(1000);
+        assertThat(body(entity)).isEqualTo(Arrays.copyOfRange(content, 1000, 2000));
+    }
+
+    @Test
+    void whenRangeIsNotSatisfiable_thenStatusIs416() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + content.length + "-");
+
+        final ResponseEntity<StreamingResponseBody> entity = download();
+
+        assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(entity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + content.length);
+        assertThat(entity.getBody()).isNull();
+    }
+
+    @Test
+    void whenIfRangeDoesNotMatch_thenFullContentIsStreamed() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=1000-1999");
+        request.addHeader(HttpHeaders.IF_RANGE, "Thu, 02 Jan 2025 10:00:00 GMT");
+
+        final ResponseEntity<StreamingResponseBody> entity = download();
+
+        assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(entity)).isEqualTo(content);
+    }
+
+    @Test
+    void whenIfRangeMatches_thenRangeIsStreamed() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-100");
+        request.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED_HTTP_DATE);
+
+        assertThat(download().getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    }
+
+    @Test
+    void whenIfRangeMatchesETag_thenRangeIsStreamed() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-99");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        assertThat(download().getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    }
+
+    @Test
+    void whenETagMatches_thenStatusIs304() throws IOException {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+
+        assertThat(download()).isNull();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+    }
+
+    @Test
+    void whenETagDoesNotMatch_thenContentIsStreamedEvenIfNotModifiedSince() throws IOException {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED_HTTP_DATE);
+
+        assertThat(download().getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void whenFileIsNotModified_thenStatusIs304() throws IOException {
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED_HTTP_DATE);
+
+        assertThat(download()).isNull();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+    }
+
+    @Test
+    void whenFileIsDeletedAfterResponseIsReturned_thenFullContentIsStreamed() throws IOException {
+        final ResponseEntity<StreamingResponseBody> entity = download();
+        Files.delete(file);
+
+        assertThat(body(entity)).isEqualTo(content);
+    }
+
+    @Test
+    void whenRequestCompletesBeforeBodyIsWritten_thenFileIsClosed() throws Exception {
+        request.setAsyncSupported(true);
+        final ResponseEntity<StreamingResponseBody> entity = download();
+        final WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        asyncManager.startCallableProcessing(() -> {
+            throw new IOException("Client disconnected");
+        });
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!asyncManager.hasConcurrentResult() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        request.getAsyncContext().complete();
+
+        assertThatThrownBy(() -> body(entity)).isInstanceOf(ClosedChannelException.class);
+    }
+
+    private ResponseEntity<StreamingResponseBody> download() throws IOException {
+        return FileDownloadResponses.download(request, response, file, content.length, LAST_MODIFIED, ETAG,
+                MediaType.APPLICATION_OCTET_STREAM, "attachment; filename=container.asice");
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> entity) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+}